@@ -0,0 +1,19 @@
+#!/usr/bin/env bash
+# Local SMTP stand-in for the mail code channel. Nothing leaves the machine.
+#
+# Run the service against it:
+#   ./local_smtp.sh
+#   AUTH_CODE_MAIL_ENABLED=true SPRING_MAIL_HOST=localhost SPRING_MAIL_PORT=1025 ./mvnw spring-boot:run
+#
+# Uses Mailpit in Docker when available (web UI on http://localhost:8025), otherwise a Python aiosmtpd
+# debugging server that prints every received mail to stdout (pip install aiosmtpd).
+set -euo pipefail
+
+SMTP_PORT="${SMTP_PORT:-1025}"
+UI_PORT="${UI_PORT:-8025}"
+
+if command -v docker >/dev/null 2>&1; then
+  exec docker run --rm --name sharestar-smtp -p "$SMTP_PORT:1025" -p "$UI_PORT:8025" axllent/mailpit
+fi
+
+exec python3 -m aiosmtpd -n -d -l "localhost:$SMTP_PORT"
@@ -0,0 +1,116 @@
+#!/usr/bin/env python3
+"""Login/refresh load mix against a running instance, for auth capacity planning.
+
+Every worker keeps its own session: it logs in with password, then refreshes with the token it got
+back (refresh tokens rotate, a replayed one revokes the session), and logs in again with probability
+LOGIN_RATIO. Reports throughput, p50/p99 per operation and, given the server pid, CPU ms per request
+read from /proc/<pid>/stat (run on the server host).
+
+Prepare users that can log in with the same password, start the service, then:
+  IDENTIFIERS=b1@example.com,b2@example.com PASSWORD=secret SERVER_PID=$(pgrep -f share) ./auth_mix.py [label]
+Workers are spread over IDENTIFIERS; use enough users that no refresh-token hash grows large, since
+every login adds a token that lives for the whole refresh-token lifetime.
+
+Knobs (env): BASE_URL, IDENTIFIER_TYPE (EMAIL|PHONE), DURATION seconds, CONCURRENCY, LOGIN_RATIO (0..1).
+Python stdlib only; at high concurrency the client may saturate first, watch its own CPU.
+"""
+import json
+import os
+import random
+import sys
+import threading
+import time
+import urllib.error
+import urllib.request
+
+LABEL = sys.argv[1] if len(sys.argv) > 1 else "run"
+BASE_URL = os.environ.get("BASE_URL", "http://localhost:8080").rstrip("/")
+IDENTIFIER_TYPE = os.environ.get("IDENTIFIER_TYPE", "EMAIL")
+IDENTIFIERS = os.environ["IDENTIFIERS"].split(",")
+PASSWORD = os.environ["PASSWORD"]
+DURATION = float(os.environ.get("DURATION", "60"))
+CONCURRENCY = int(os.environ.get("CONCURRENCY", "32"))
+LOGIN_RATIO = float(os.environ.get("LOGIN_RATIO", "0.1"))
+SERVER_PID = os.environ.get("SERVER_PID")
+
+latencies = {"login": [], "refresh": []}
+errors = {"login": 0, "refresh": 0}
+lock = threading.Lock()
+
+
+def post(path, body):
+    req = urllib.request.Request(BASE_URL + path, data=json.dumps(body).encode(),
+                                 headers={"Content-Type": "application/json"}, method="POST")
+    with urllib.request.urlopen(req, timeout=10) as resp:
+        return json.loads(resp.read() or b"null")
+
+
+def timed(op, path, body):
+    start = time.perf_counter()
+    try:
+        result = post(path, body)
+    except (urllib.error.URLError, OSError, ValueError):
+        result = None
+    elapsed = time.perf_counter() - start
+    with lock:
+        if result is None:
+            errors[op] += 1
+        else:
+            latencies[op].append(elapsed)
+    return result
+
+
+def login(identifier):
+    res = timed("login", "/api/v1/auth/login",
+                {"identifierType": IDENTIFIER_TYPE, "identifier": identifier, "password": PASSWORD})
+    return res["token"]["refreshToken"] if res else None
+
+
+def worker(identifier, deadline):
+    refresh_token = None
+    while time.monotonic() < deadline:
+        if refresh_token is None or random.random() < LOGIN_RATIO:
+            refresh_token = login(identifier)
+            continue
+        res = timed("refresh", "/api/v1/auth/token/refresh", {"refreshToken": refresh_token})
+        refresh_token = res["refreshToken"] if res else None
+
+
+def cpu_seconds(pid):
+    with open(f"/proc/{pid}/stat") as f:
+        # fields after the parenthesised command name; utime and stime are fields 14 and 15
+        fields = f.read().rsplit(")", 1)[1].split()
+    return (int(fields[11]) + int(fields[12])) / os.sysconf("SC_CLK_TCK")
+
+
+def percentile(sorted_values, p):
+    if not sorted_values:
+        return float("nan")
+    return sorted_values[min(len(sorted_values) - 1, int(len(sorted_values) * p))]
+
+
+def main():
+    cpu_start = cpu_seconds(SERVER_PID) if SERVER_PID else None
+    start = time.monotonic()
+    deadline = start + DURATION
+    threads = [threading.Thread(target=worker, args=(IDENTIFIERS[i % len(IDENTIFIERS)], deadline), daemon=True)
+               for i in range(CONCURRENCY)]
+    for t in threads:
+        t.start()
+    for t in threads:
+        t.join()
+    elapsed = time.monotonic() - start
+    cpu_used = cpu_seconds(SERVER_PID) - cpu_start if SERVER_PID else None
+
+    total = sum(len(v) for v in latencies.values())
+    for op, values in latencies.items():
+        values.sort()
+        print("%-10s %-8s rps=%-10.1f p50=%.4fs p99=%.4fs errors=%d"
+              % (LABEL, op, len(values) / elapsed, percentile(values, 0.50), percentile(values, 0.99), errors[op]))
+    if cpu_used is not None and total:
+        print("%-10s %-8s rps=%-10.1f cpu=%.2fms/request (%.2f cores)"
+              % (LABEL, "all", total / elapsed, cpu_used * 1000 / total, cpu_used / elapsed))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,29 @@
+#!/usr/bin/env bash
+# Compare platform vs virtual thread mode on the read endpoints.
+#
+# Start the service once per mode, then run this script against it:
+#   SPRING_THREADS_VIRTUAL_ENABLED=false ./mvnw spring-boot:run   ->  ./threads_compare.sh platform
+#   SPRING_THREADS_VIRTUAL_ENABLED=true  ./mvnw spring-boot:run   ->  ./threads_compare.sh virtual
+#
+# Requires `hey` (https://github.com/rakyll/hey). Prints throughput and p50/p99 per endpoint.
+set -euo pipefail
+
+LABEL="${1:-run}"
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+REQUESTS="${REQUESTS:-20000}"
+CONCURRENCY="${CONCURRENCY:-400}"
+POST_ID="${POST_ID:-1}"
+
+run() {
+  local name="$1" url="$2"
+  local out
+  out="$(hey -n "$REQUESTS" -c "$CONCURRENCY" "$url")"
+  local rps p50 p99
+  rps="$(echo "$out" | awk '/Requests\/sec/ {print $2}')"
+  p50="$(echo "$out" | awk '/ 50% in/ {print $3}')"
+  p99="$(echo "$out" | awk '/ 99% in/ {print $3}')"
+  printf '%-10s %-8s rps=%-10s p50=%-8ss p99=%ss\n' "$LABEL" "$name" "$rps" "$p50" "$p99"
+}
+
+run feed   "$BASE_URL/api/v1/posts/feed?page=1&size=10"
+run detail "$BASE_URL/api/v1/posts/detail/$POST_ID"
@@ -0,0 +1,53 @@
+package com.star.share.auth.password;
+
+import com.star.share.auth.config.AuthProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost per password login and registration, around {@code auth.password.bcrypt-strength}.
+ *
+ * <p>One call is one core busy for its whole duration, so {@code cores * 1000 / matches(ms)} is the
+ * password-login ceiling of an instance; size {@code auth.password.threads} and the rollout of a new
+ * strength from it. {@code strength = 0} means the {@link AuthProperties} default. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="BcryptBenchmark"}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BcryptBenchmark {
+
+    private static final String PASSWORD = "correct-horse-battery-staple";
+
+    @Param({"10", "11", "0", "13"})
+    public int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        int cost = strength > 0 ? strength : new AuthProperties().getPassword().getBcryptStrength();
+        encoder = new BCryptPasswordEncoder(cost);
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, hash);
+    }
+}
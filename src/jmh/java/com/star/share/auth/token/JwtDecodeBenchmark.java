@@ -0,0 +1,102 @@
+package com.star.share.auth.token;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access token decode throughput: plain Nimbus RSA verification against {@link CachingJwtDecoder}.
+ *
+ * <p>{@code tokens} is the number of distinct live tokens the requests are spread over (active users
+ * per instance); every call picks one at random. Run with {@code mvn -Pjmh test-compile exec:exec}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class JwtDecodeBenchmark {
+
+    @Param({"1", "1000", "50000"})
+    public int tokens;
+
+    private String[] values;
+    private JwtDecoder nimbus;
+    private JwtDecoder cached;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        RSAKey jwk = new RSAKey.Builder(publicKey)
+                .privateKey((RSAPrivateKey) keyPair.getPrivate())
+                .keyID("bench")
+                .build();
+        JwtEncoder encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(jwk)));
+
+        Instant now = Instant.now();
+        values = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            JwtClaimsSet claims = JwtClaimsSet.builder()
+                    .issuer("sharestar")
+                    .issuedAt(now)
+                    .expiresAt(now.plus(Duration.ofMinutes(15)))
+                    .subject(String.valueOf(i + 1))
+                    .id(UUID.randomUUID().toString())
+                    .claim("token_type", "access")
+                    .claim("user_id", i + 1L)
+                    .claim("nickname", "user" + i)
+                    .build();
+            values[i] = encoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+        }
+
+        nimbus = NimbusJwtDecoder.withPublicKey(publicKey).build();
+        cached = new CachingJwtDecoder(NimbusJwtDecoder.withPublicKey(publicKey).build(), 100_000,
+                Duration.ofMinutes(15));
+        // Warm the cache so the cached run measures steady state
+        for (String value : values) {
+            cached.decode(value);
+        }
+    }
+
+    @Benchmark
+    public Jwt nimbus() {
+        return nimbus.decode(pick());
+    }
+
+    @Benchmark
+    public Jwt cached() {
+        return cached.decode(pick());
+    }
+
+    private String pick() {
+        return values[ThreadLocalRandom.current().nextInt(values.length)];
+    }
+}
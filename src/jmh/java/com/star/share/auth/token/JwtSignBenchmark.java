@@ -0,0 +1,91 @@
+package com.star.share.auth.token;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens per second for signing and (uncached) verification, per algorithm the key ring supports.
+ *
+ * <p>Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="JwtSignBenchmark"}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtSignBenchmark {
+
+    @Param({"RS256", "ES256"})
+    public String algorithm;
+
+    private NimbusJwtEncoder encoder;
+    private NimbusJwtDecoder decoder;
+    private JwsHeader header;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        SignatureAlgorithm alg = SignatureAlgorithm.from(algorithm);
+        JWK jwk = alg == SignatureAlgorithm.ES256
+                ? new ECKeyGenerator(Curve.P_256).keyID("bench").algorithm(JWSAlgorithm.ES256).generate()
+                : new RSAKeyGenerator(2048).keyID("bench").algorithm(JWSAlgorithm.RS256).generate();
+        ImmutableJWKSet<SecurityContext> source = new ImmutableJWKSet<>(new JWKSet(jwk));
+        encoder = new NimbusJwtEncoder(source);
+        header = JwsHeader.with(alg).keyId("bench").build();
+
+        // Same processor setup as AuthConfiguration.jwtDecoder
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JwtKeyRing.ALGORITHMS, source));
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        decoder = new NimbusJwtDecoder(processor);
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("sharestar")
+                .issuedAt(now)
+                .expiresAt(now.plus(Duration.ofMinutes(15)))
+                .subject("42")
+                .id(UUID.randomUUID().toString())
+                .claim("token_type", "access")
+                .claim("user_id", 42L)
+                .claim("nickname", "bench")
+                .build();
+        return encoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    }
+
+    @Benchmark
+    public Jwt verify() {
+        return decoder.decode(token);
+    }
+}
@@ -0,0 +1,95 @@
+package com.star.share.auth.token;
+
+import com.star.share.common.redis.BenchRedis;
+import com.star.share.common.redis.RedisKeyScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refresh token rotation throughput: the former check / revoke / save sequence (three round trips)
+ * against the single {@link RefreshTokenRepository#rotateToken} script.
+ *
+ * <p>Redis comes from {@link BenchRedis} ({@code REDIS_HOST} or an embedded server); every thread
+ * rotates the tokens of its own user id under {@code auth:rt:{...}}, the keys are deleted afterwards.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="RefreshRotationBenchmark"}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class RefreshRotationBenchmark {
+
+    private static final Duration TTL = Duration.ofDays(7);
+    private static final long FIRST_USER_ID = 9_000_000_000L;
+
+    private final AtomicLong userIds = new AtomicLong(FIRST_USER_ID);
+    private BenchRedis benchRedis;
+    private StringRedisTemplate redis;
+    private RefreshTokenRepoImpl repository;
+
+    @Setup
+    public void setUp() throws Exception {
+        benchRedis = BenchRedis.start();
+        redis = benchRedis.template();
+        repository = new RefreshTokenRepoImpl(redis, new RedisKeyScanner(redis), false);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (long id = FIRST_USER_ID; id < userIds.get(); id++) {
+            redis.delete(RefreshTokenRepoImpl.key(id));
+        }
+        benchRedis.close();
+    }
+
+    /**
+     * One user per benchmark thread, holding its current refresh token.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        long userId;
+        String tokenId;
+
+        @Setup(Level.Iteration)
+        public void login(RefreshRotationBenchmark bench) {
+            userId = bench.userIds.getAndIncrement();
+            tokenId = UUID.randomUUID().toString();
+            bench.repository.saveToken(userId, tokenId, TTL);
+        }
+    }
+
+    @Benchmark
+    public boolean checkRevokeSave(Session session) {
+        String next = UUID.randomUUID().toString();
+        if (!repository.isTokenValid(session.userId, session.tokenId)) {
+            return false;
+        }
+        repository.revokeToken(session.userId, session.tokenId);
+        repository.saveToken(session.userId, next, TTL);
+        session.tokenId = next;
+        return true;
+    }
+
+    @Benchmark
+    public RefreshTokenRepository.Rotation rotate(Session session) {
+        String next = UUID.randomUUID().toString();
+        RefreshTokenRepository.Rotation rotation =
+                repository.rotateToken(session.userId, session.tokenId, session.tokenId, next, TTL);
+        session.tokenId = next;
+        return rotation;
+    }
+}
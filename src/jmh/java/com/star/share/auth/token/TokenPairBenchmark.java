@@ -0,0 +1,73 @@
+package com.star.share.auth.token;
+
+import com.star.share.auth.config.AuthConfiguration;
+import com.star.share.auth.config.AuthProperties;
+import com.star.share.user.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtService} as wired in production ({@link AuthConfiguration}, keys from {@code classpath:keys}):
+ * issuing a token pair on login/refresh, and decoding an access token on every authenticated request.
+ *
+ * <p>{@code cache} switches the verified-token cache of the decoder; decode picks one of
+ * {@code tokens} live access tokens at random. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="TokenPairBenchmark"}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class TokenPairBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    @Param({"1000"})
+    public int tokens;
+
+    private JwtService jwtService;
+    private User user;
+    private String[] accessTokens;
+
+    @Setup
+    public void setUp() {
+        AuthProperties properties = new AuthProperties();
+        properties.getJwt().setPrivateKey(new ClassPathResource("keys/private.pem"));
+        properties.getJwt().setPublicKey(new ClassPathResource("keys/public.pem"));
+        JwtKeyRing keyRing = new JwtKeyRing(properties,
+                new StaticListableBeanFactory().getBeanProvider(JwtCacheGenerationSync.class));
+        AuthConfiguration configuration = new AuthConfiguration(properties);
+        jwtService = new JwtService(configuration.jwtEncoder(keyRing),
+                configuration.jwtDecoder(keyRing, cache, 100_000), properties, keyRing);
+
+        user = User.builder().id(1_000_001L).nickname("bench").build();
+        accessTokens = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            accessTokens[i] = jwtService.tokenPair(user).accessToken();
+        }
+    }
+
+    @Benchmark
+    public TokenPair tokenPair() {
+        return jwtService.tokenPair(user);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return jwtService.decode(accessTokens[ThreadLocalRandom.current().nextInt(tokens)]);
+    }
+}
@@ -0,0 +1,59 @@
+package com.star.share.auth.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IdentifierValidator} cost per call, run on every send-code, register and login.
+ *
+ * <p>{@code input} covers valid identifiers, near misses that fail late in the pattern and a long
+ * garbage string as sent by abusive clients. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="IdentifierValidatorBenchmark"}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IdentifierValidatorBenchmark {
+
+    @Param({"valid", "nearMiss", "long"})
+    public String input;
+
+    private String phone;
+    private String email;
+
+    @Setup
+    public void setUp() {
+        switch (input) {
+            case "valid" -> {
+                phone = "+353 87 123 4567";
+                email = "someone.name+tag@example.ie";
+            }
+            case "nearMiss" -> {
+                phone = "+353 87 123 45678";
+                email = "someone.name+tag@example.toolongtld";
+            }
+            default -> {
+                phone = "0" + "8".repeat(4096);
+                email = "a".repeat(4096) + "@" + "b".repeat(4096);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean phone() {
+        return IdentifierValidator.isValidPhone(phone);
+    }
+
+    @Benchmark
+    public boolean email() {
+        return IdentifierValidator.isValidEmail(email);
+    }
+}
@@ -0,0 +1,79 @@
+package com.star.share.auth.verification;
+
+import com.star.share.auth.pojo.VerificationCheckResult;
+import com.star.share.common.redis.BenchRedis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link VerificationCodeRepositoryImpl} scripts: storing a code on send-code and checking it on
+ * register/login, plus a wrong guess.
+ *
+ * <p>Redis comes from {@link BenchRedis} ({@code REDIS_HOST} or an embedded server). Each thread uses
+ * its own identifier in the {@code BENCH} scene; the keys expire with the code TTL. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="VerificationCodeBenchmark"}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class VerificationCodeBenchmark {
+
+    private static final String SCENE = "BENCH";
+    private static final String CODE = "123456";
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final Duration LOCKOUT = Duration.ofMinutes(30);
+
+    private final AtomicInteger identifiers = new AtomicInteger();
+    private BenchRedis benchRedis;
+    private VerificationCodeRepositoryImpl repository;
+
+    @Setup
+    public void setUp() throws Exception {
+        benchRedis = BenchRedis.start();
+        repository = new VerificationCodeRepositoryImpl(benchRedis.template());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        benchRedis.close();
+    }
+
+    /**
+     * One identifier per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+        String identifier;
+
+        @Setup(Level.Iteration)
+        public void setUp(VerificationCodeBenchmark bench) {
+            identifier = "bench-" + bench.identifiers.incrementAndGet() + "@example.com";
+            // Unlimited attempts, so wrong guesses never reach the lockout
+            bench.repository.saveCode(SCENE, identifier, CODE, TTL, Integer.MAX_VALUE, LOCKOUT);
+        }
+    }
+
+    @Benchmark
+    public VerificationCheckResult saveThenVerify(Caller caller) {
+        repository.saveCode(SCENE, caller.identifier, CODE, TTL, 5, LOCKOUT);
+        return repository.verify(SCENE, caller.identifier, CODE);
+    }
+
+    @Benchmark
+    public VerificationCheckResult wrongGuess(Caller caller) {
+        return repository.verify(SCENE, caller.identifier, "000000");
+    }
+}
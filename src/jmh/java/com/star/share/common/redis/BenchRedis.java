@@ -0,0 +1,57 @@
+package com.star.share.common.redis;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+
+/**
+ * Redis for benchmarks: the instance at {@code REDIS_HOST}:{@code REDIS_PORT} when {@code REDIS_HOST} is
+ * set, otherwise an embedded {@code redis-server} on a free local port, stopped again by {@link #close()}.
+ *
+ * <p>The embedded server runs without persistence on the benchmark machine, so its numbers show the
+ * script and client cost, not network latency; point {@code REDIS_HOST} at a real node for that.</p>
+ */
+public final class BenchRedis implements AutoCloseable {
+
+    private final RedisServer embedded;
+    private final LettuceConnectionFactory connectionFactory;
+    private final StringRedisTemplate template;
+
+    private BenchRedis(RedisServer embedded, String host, int port) {
+        this.embedded = embedded;
+        this.connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        this.template = new StringRedisTemplate(connectionFactory);
+        template.afterPropertiesSet();
+    }
+
+    public static BenchRedis start() throws Exception {
+        String host = System.getenv("REDIS_HOST");
+        if (host != null && !host.isBlank()) {
+            int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+            return new BenchRedis(null, host, port);
+        }
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer server = new RedisServer(port);
+        server.start();
+        return new BenchRedis(server, "localhost", port);
+    }
+
+    public StringRedisTemplate template() {
+        return template;
+    }
+
+    @Override
+    public void close() throws Exception {
+        connectionFactory.destroy();
+        if (embedded != null) {
+            embedded.stop();
+        }
+    }
+}
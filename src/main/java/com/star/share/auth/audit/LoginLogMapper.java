@@ -1,9 +1,17 @@
 package com.star.share.auth.audit;
 
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface LoginLogMapper {
 
     void insert(LoginLog loginLog);
+
+    /**
+     * Insert many rows with one multi-row VALUES statement
+     */
+    void insertBatch(@Param("logs") List<LoginLog> logs);
 }
@@ -2,16 +2,17 @@ package com.star.share.auth.audit;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
 
 @Service
 @RequiredArgsConstructor
 public class LoginLogService {
 
-    private final LoginLogMapper loginLogMapper;
+    private final LoginLogWriter loginLogWriter;
 
     /**
-     * Record a login attempt
+     * Record a login attempt, written asynchronously in batches by {@link LoginLogWriter}
      *
      * @param userId     ID of the user
      * @param identifier Identifier used for login (e.g., username or email)
@@ -20,7 +21,6 @@ public class LoginLogService {
      * @param userAgent  User agent string of the user's device
      * @param status     Status of the login attempt (e.g., success, failure)
      */
-    @Transactional
     public void record(Long userId,
                        String identifier,
                        String channel,
@@ -34,8 +34,9 @@ public class LoginLogService {
                         .ip(ip)
                         .userAgent(userAgent)
                         .status(status)
+                        .createdAt(Instant.now())
                         .build();
 
-        loginLogMapper.insert(log);
+        loginLogWriter.submit(log);
     }
 }
@@ -0,0 +1,272 @@
+package com.star.share.auth.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous, batched writer of {@link LoginLog} rows.
+ *
+ * <p>Callers only enqueue. One writer thread drains the queue and inserts with a multi-row
+ * {@code VALUES} statement:</p>
+ * - a batch is flushed when it reaches {@code auth.audit.batch-size} rows or
+ *   {@code auth.audit.flush-interval-ms} after its first row, whichever comes first;
+ * - the queue holds at most {@code auth.audit.queue-capacity} rows; when it is full
+ *   {@code auth.audit.overflow-policy} decides: DROP the row, BLOCK the caller for up to
+ *   {@code auth.audit.block-timeout-ms} (then drop), or SPILL it as a JSON line to
+ *   {@code auth.audit.spill-file};
+ * - spilled rows (and, with SPILL, batches whose insert failed) are replayed by the writer once the
+ *   queue is quiet, and on startup;
+ * - on shutdown the queue is drained before the thread exits.
+ *
+ * <p>Metrics: {@code auth.audit.queue.depth}, {@code auth.audit.written}, {@code auth.audit.dropped}
+ * and {@code auth.audit.spilled}.</p>
+ */
+@Slf4j
+@Component
+public class LoginLogWriter implements SmartLifecycle {
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK,
+        SPILL
+    }
+
+    private final LoginLogMapper loginLogMapper;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<LoginLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final Path spillFile;
+    private final Object spillLock = new Object();
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter spilled;
+    private volatile boolean running;
+    private Thread worker;
+
+    public LoginLogWriter(LoginLogMapper loginLogMapper,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          @Value("${auth.audit.queue-capacity:10000}") int queueCapacity,
+                          @Value("${auth.audit.batch-size:200}") int batchSize,
+                          @Value("${auth.audit.flush-interval-ms:500}") long flushIntervalMs,
+                          @Value("${auth.audit.overflow-policy:DROP}") OverflowPolicy overflowPolicy,
+                          @Value("${auth.audit.block-timeout-ms:50}") long blockTimeoutMs,
+                          @Value("${auth.audit.spill-file:logs/login-log-spill.jsonl}") String spillFile) {
+        this.loginLogMapper = loginLogMapper;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.spillFile = Path.of(spillFile);
+        meterRegistry.gauge("auth.audit.queue.depth", queue, BlockingQueue::size);
+        this.written = Counter.builder("auth.audit.written")
+                .description("Login log rows inserted")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("auth.audit.dropped")
+                .description("Login log rows dropped because the queue was full or the insert failed")
+                .register(meterRegistry);
+        this.spilled = Counter.builder("auth.audit.spilled")
+                .description("Login log rows spilled to the local file")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enqueue one row; never waits on MySQL.
+     */
+    public void submit(LoginLog row) {
+        if (queue.offer(row)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(row, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                dropped.increment();
+            }
+            case SPILL -> spill(List.of(row));
+            default -> dropped.increment();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("login-log-writer").daemon().start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread t = worker;
+        if (t != null) {
+            // No interrupt: an insert in flight finishes, the poll returns within one flush interval
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server, so late requests are still written
+        return Integer.MIN_VALUE + 1000;
+    }
+
+    private void run() {
+        replaySpill();
+        List<LoginLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                LoginLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpill();
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    long wait = deadline - System.currentTimeMillis();
+                    LoginLog next = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Shutdown: write what is still queued
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            flush(new ArrayList<>(batch.subList(from, Math.min(batch.size(), from + batchSize))));
+        }
+        batch.clear();
+    }
+
+    private void flush(List<LoginLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            loginLogMapper.insertBatch(batch);
+            written.increment(batch.size());
+        } catch (Exception e) {
+            log.warn("Login log batch insert failed for {} rows: {}", batch.size(), e.getMessage());
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                spill(batch);
+            } else {
+                dropped.increment(batch.size());
+            }
+        }
+        batch.clear();
+    }
+
+    private void spill(List<LoginLog> rows) {
+        synchronized (spillLock) {
+            try {
+                Path dir = spillFile.toAbsolutePath().getParent();
+                if (dir != null) {
+                    Files.createDirectories(dir);
+                }
+                try (BufferedWriter out = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (LoginLog row : rows) {
+                        out.write(objectMapper.writeValueAsString(row));
+                        out.newLine();
+                    }
+                }
+                spilled.increment(rows.size());
+            } catch (IOException e) {
+                log.warn("Login log spill failed for {} rows: {}", rows.size(), e.getMessage());
+                dropped.increment(rows.size());
+            }
+        }
+    }
+
+    // Runs on the writer thread only, while the queue is idle
+    private void replaySpill() {
+        Path replaying = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        synchronized (spillLock) {
+            try {
+                if (!Files.exists(replaying)) {
+                    if (!Files.exists(spillFile)) {
+                        return;
+                    }
+                    // New spills go to a fresh file while this one is replayed
+                    Files.move(spillFile, replaying, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                log.warn("Login log spill rotate failed: {}", e.getMessage());
+                return;
+            }
+        }
+
+        List<LoginLog> batch = new ArrayList<>(batchSize);
+        try (BufferedReader in = Files.newBufferedReader(replaying, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(objectMapper.readValue(line, LoginLog.class));
+                if (batch.size() >= batchSize) {
+                    loginLogMapper.insertBatch(batch);
+                    written.increment(batch.size());
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                loginLogMapper.insertBatch(batch);
+                written.increment(batch.size());
+            }
+            Files.delete(replaying);
+            log.info("Login log spill replayed from {}", replaying);
+        } catch (Exception e) {
+            // Keep the file, the whole file is retried on the next idle round (rows may repeat)
+            log.warn("Login log spill replay failed: {}", e.getMessage());
+        }
+    }
+}
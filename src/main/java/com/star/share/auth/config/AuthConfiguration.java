@@ -1,12 +1,12 @@
 package com.star.share.auth.config;
 
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
-import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
-import com.star.share.auth.utils.PemUtils;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.star.share.auth.token.CachingJwtDecoder;
+import com.star.share.auth.token.JwtKeyRing;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,8 +17,7 @@ import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
 
 /**
  * Bean for Verification
@@ -41,30 +40,34 @@ public class AuthConfiguration {
 
     /**
      * Create JWT Encoder
-     * @return JwtEncoder Based on RSA JWK
+     * @return JwtEncoder over the key ring, the kid in the header picks the key
      */
     @Bean
-    public JwtEncoder jwtEncoder(){
-        AuthProperties.Jwt jwtProps = properties.getJwt();
-        RSAPrivateKey privateKey = PemUtils.readPrivateKey(jwtProps.getPrivateKey());
-        RSAPublicKey publicKey = PemUtils.readPublicKey(jwtProps.getPublicKey());
-        RSAKey jwk = new RSAKey.Builder(publicKey)
-                .privateKey(privateKey)
-                .keyID(jwtProps.getKeyId())
-                .build();
-        JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(jwk));
-        return new NimbusJwtEncoder(jwkSource);
+    public JwtEncoder jwtEncoder(JwtKeyRing keyRing){
+        return new NimbusJwtEncoder(keyRing);
     }
 
     /**
      *  Creating Jwt Decoder
-     *  Read RSA and build by Nimbus
-     * @return JwtDecoder based on Public kdy
+     *  Verify with the key ring (RS256/ES256, selected by kid), wrapped in a verified-token cache
+     *  unless {@code auth.jwt.cache.enabled=false}
+     * @return JwtDecoder based on the key ring
      */
     @Bean
-    public JwtDecoder jwtDecoder(){
-        AuthProperties.Jwt jwtProps = properties.getJwt();
-        RSAPublicKey publicKey = PemUtils.readPublicKey(jwtProps.getPublicKey());
-        return NimbusJwtDecoder.withPublicKey(publicKey).build();
+    public JwtDecoder jwtDecoder(JwtKeyRing keyRing,
+                                 @Value("${auth.jwt.cache.enabled:true}") boolean cacheEnabled,
+                                 @Value("${auth.jwt.cache.max-size:100000}") long cacheMaxSize){
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JwtKeyRing.ALGORITHMS, keyRing));
+        // Claims are checked by Spring's validators (exp/nbf with clock skew)
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        if (!cacheEnabled) {
+            return decoder;
+        }
+        // Access tokens are the hot path; no entry outlives one access token lifetime
+        Duration maxTtl = properties.getJwt().getAccessTokent1();
+        return new CachingJwtDecoder(decoder, cacheMaxSize, maxTtl);
     }
 }
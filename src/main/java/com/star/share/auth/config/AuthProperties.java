@@ -5,6 +5,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Identification properties
@@ -33,9 +36,30 @@ public class AuthProperties {
         private Resource privateKey;
         /** RSA public PEM */
         private Resource publicKey;
+        /** Algorithm of the key above: RS256 or ES256 (P-256 PEM keys) */
+        private String algorithm = "RS256";
+        /** Extra keys for rotation: the newest active key signs, every unretired key verifies */
+        private List<Key> keys = new ArrayList<>();
 
     }
 
+    /** One rotation key */
+    @Data
+    public static class Key{
+        /** JWK kid, written to the token header */
+        private String keyId;
+        /** RS256 or ES256 */
+        private String algorithm = "ES256";
+        /** Private PEM (PKCS#8) */
+        private Resource privateKey;
+        /** Public PEM (X.509) */
+        private Resource publicKey;
+        /** Signing starts at this instant, the key verifies before that already */
+        private Instant activeFrom;
+        /** Key stops verifying at this instant, leave at least one token lifetime after the next key took over */
+        private Instant retireAt;
+    }
+
     @Data
     public static class Verification{
         /** verification length */
@@ -44,6 +68,8 @@ public class AuthProperties {
         private Duration ttl = Duration.ofMinutes(5);
         /** verification attempts */
         private int maxAttempts = 5;
+        /** Lock duration after maxAttempts failed guesses, no new code is sent meanwhile */
+        private Duration lockout = Duration.ofMinutes(30);
         /** Intervals of min continuously sent */
         private Duration sendInterval = Duration.ofSeconds(60);
         /** Daily limitation */
@@ -0,0 +1,160 @@
+package com.star.share.auth.password;
+
+import com.star.share.auth.config.AuthProperties;
+import com.star.share.common.exception.BusinessException;
+import com.star.share.common.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt on its own CPU-sized pool instead of the request thread.
+ *
+ * <p>Admission control:</p>
+ * - {@code auth.password.threads} workers (default: CPU count) and a queue of
+ *   {@code auth.password.queue-capacity}; when both are full the call fails at once with
+ *   {@link ErrorCode#AUTH_BUSY}, so a credential-stuffing burst is shed instead of occupying every
+ *   request thread and starving other endpoints;
+ * - a caller waits at most {@code auth.password.timeout-ms} for its hash.
+ *
+ * <p>Hashes whose cost differs from {@code auth.password.bcrypt-strength} are re-hashed after a
+ * successful login ({@link #needsRehash(String)}, {@link #encodeAsync(String)}), so a tuned cost
+ * rolls out without a migration. Those background hashes never compete with logins for admission:
+ * at most {@code auth.password.background-permits} (default 1) run at once, and only while the
+ * queue is empty; otherwise they are skipped and retried on a later login.</p>
+ *
+ * <p>Metrics: {@code auth.password.hash{op}} (queue wait plus hashing), {@code auth.password.rejected}
+ * and {@code auth.password.queue.depth}.</p>
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final int strength;
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejected;
+    private final Semaphore background;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          AuthProperties properties,
+                          MeterRegistry meterRegistry,
+                          @Value("${auth.password.threads:0}") int threads,
+                          @Value("${auth.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${auth.password.timeout-ms:5000}") long timeoutMs,
+                          @Value("${auth.password.background-permits:1}") int backgroundPermits) {
+        this.passwordEncoder = passwordEncoder;
+        this.background = new Semaphore(Math.max(backgroundPermits, 1));
+        this.timeoutMs = timeoutMs;
+        this.strength = properties.getPassword().getBcryptStrength();
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = Timer.builder("auth.password.hash")
+                .description("Password hashing latency including queue wait")
+                .tag("op", "encode")
+                .register(meterRegistry);
+        this.matchTimer = Timer.builder("auth.password.hash")
+                .description("Password hashing latency including queue wait")
+                .tag("op", "match")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected")
+                .description("Password hashing calls rejected because the pool was saturated")
+                .register(meterRegistry);
+        meterRegistry.gauge("auth.password.queue.depth", executor, e -> e.getQueue().size());
+    }
+
+    public String encode(String rawPassword) {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String passwordHash) {
+        return run(matchTimer, () -> passwordEncoder.matches(rawPassword, passwordHash));
+    }
+
+    /**
+     * Hash in the background at low priority; completes exceptionally, without queueing, when the pool
+     * has waiting work or the background permits are taken.
+     * The returned future completes on a hashing thread, continue elsewhere for anything blocking.
+     */
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        if (!executor.getQueue().isEmpty() || !background.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Password pool busy"));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), executor)
+                    .whenComplete((hash, e) -> background.release());
+        } catch (RejectedExecutionException e) {
+            background.release();
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * True when the hash was made with a different BCrypt cost than the configured one.
+     */
+    public boolean needsRehash(String passwordHash) {
+        if (passwordHash == null) {
+            return false;
+        }
+        Matcher m = BCRYPT_COST.matcher(passwordHash);
+        return m.find() && Integer.parseInt(m.group(1)) != strength;
+    }
+
+    private <T> T run(Timer timer, Callable<T> task) {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusinessException(ErrorCode.AUTH_BUSY);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new BusinessException(ErrorCode.AUTH_BUSY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.INTERNAL_SERVER_ERROR, "Password hashing interrupted");
+        } catch (ExecutionException e) {
+            log.error("Password hashing failed", e.getCause());
+            throw new BusinessException(ErrorCode.INTERNAL_SERVER_ERROR);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.star.share.auth.config.AuthProperties;
 import com.star.share.auth.enumerate.IdentifierType;
 import com.star.share.auth.enumerate.VerificationCodeStatus;
 import com.star.share.auth.enumerate.VerificationScene;
+import com.star.share.auth.password.PasswordHasher;
 import com.star.share.auth.pojo.ClientInfo;
 import com.star.share.auth.pojo.SendCodeResult;
 import com.star.share.auth.pojo.VerificationCheckResult;
@@ -26,7 +27,7 @@ import com.star.share.user.service.UserService;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.stereotype.Service;
@@ -45,11 +46,12 @@ import java.util.UUID;
 public class AuthServiceImpl implements AuthService {
     private final UserService userService;
     private final VerificationService verificationService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtService jwtService;
     private final RefreshTokenRepository refreshTokenRepository;
     private final LoginLogService loginLogService;
     private final AuthProperties authProperties;
+    private final TaskExecutor taskExecutor;
 
 
     /**
@@ -69,8 +71,8 @@ public class AuthServiceImpl implements AuthService {
             throw new BusinessException(ErrorCode.IDENTIFIER_EXISTS);
         }
 
-        if (request.scene() == VerificationScene.LOGIN ||
-                request.scene() == VerificationScene.RESET_PASSWORD && !exists
+        if ((request.scene() == VerificationScene.LOGIN ||
+                request.scene() == VerificationScene.RESET_PASSWORD) && !exists
         ) {
             throw new BusinessException(ErrorCode.IDENTIFIER_NOT_FOUND);
         }
@@ -113,7 +115,7 @@ public class AuthServiceImpl implements AuthService {
 
         if (StringUtils.hasText(request.password())) {
             validatePassword(request.password());
-            user.setPasswordHash(passwordEncoder.encode(request.password().trim()));
+            user.setPasswordHash(passwordHasher.encode(request.password().trim()));
         }
 
         userService.createUser(user);
@@ -151,7 +153,7 @@ public class AuthServiceImpl implements AuthService {
         if (StringUtils.hasText(request.password())) {
             channel = "PASSWORD";
             if (!StringUtils.hasText(user.getPasswordHash()) ||
-                    !passwordEncoder.matches(request.password(),
+                    !passwordHasher.matches(request.password(),
                             user.getPasswordHash())) {
                 loginLogService.record(user.getId(),
                         normalizeIdentifier,
@@ -161,6 +163,9 @@ public class AuthServiceImpl implements AuthService {
                         "FAILURE: INVALID PASSWORD");
                 throw new BusinessException(ErrorCode.INVALID_CREDENTIALS);
             }
+            if (passwordHasher.needsRehash(user.getPasswordHash())) {
+                rehash(user.getId(), user.getPasswordHash(), request.password());
+            }
         } else if (StringUtils.hasText(request.code())) {
             channel = "CODE";
             ensureVerificationSuccess(
@@ -199,17 +204,22 @@ public class AuthServiceImpl implements AuthService {
 
         long userId = jwtService.extractUserId(jwt);
         String tokenId = jwtService.extractTokenId(jwt);
-
-        if (!refreshTokenRepository.isTokenValid(userId, tokenId)) {
-            throw new BusinessException(ErrorCode.REFRESH_TOKEN_INVALID, "Refresh token is invalid or expired");
-        }
+        String familyId = jwtService.extractFamilyId(jwt);
 
         User user = findUserById(userId).orElseThrow(
                 () -> new BusinessException(ErrorCode.IDENTIFIER_NOT_FOUND, "User not found")
         );
-        TokenPair tokenPair = jwtService.tokenPair(user);
-        refreshTokenRepository.revokeToken(userId, tokenId);
-        saveRefreshToken(userId, tokenPair);
+        // Check, consume and replace in one script, so two concurrent refreshes cannot both succeed
+        TokenPair tokenPair = jwtService.tokenPair(user, familyId);
+        RefreshTokenRepository.Rotation rotation = refreshTokenRepository.rotateToken(
+                userId, tokenId, familyId, tokenPair.refreshTokenId(), refreshTtl(tokenPair));
+        if (rotation == RefreshTokenRepository.Rotation.REUSED) {
+            log.warn("Refresh token reuse detected for user {}, token family {} revoked", userId, familyId);
+            throw new BusinessException(ErrorCode.REFRESH_TOKEN_INVALID, "Refresh token has already been used");
+        }
+        if (rotation != RefreshTokenRepository.Rotation.ROTATED) {
+            throw new BusinessException(ErrorCode.REFRESH_TOKEN_INVALID, "Refresh token is invalid or expired");
+        }
 
         return mapToken(tokenPair);
     }
@@ -247,7 +257,7 @@ public class AuthServiceImpl implements AuthService {
                 normalizeIdentifier,
                 request.code()
         ));
-        user.setPasswordHash(passwordEncoder.encode(request.newPassword().trim()));
+        user.setPasswordHash(passwordHasher.encode(request.newPassword().trim()));
         userService.updatePassword(user);
         refreshTokenRepository.revokeAllTokens(user.getId());
     }
@@ -374,6 +384,27 @@ public class AuthServiceImpl implements AuthService {
         };
     }
 
+    /**
+     * Re-hash a password with the configured BCrypt cost in the background, the login does not wait for it.
+     * The write runs on the task executor, not the hashing pool, and only replaces the hash it was verified
+     * against, so a password changed meanwhile is never overwritten.
+     *
+     * @param userId      user id
+     * @param oldHash     hash the password just matched
+     * @param rawPassword password that just matched the old hash
+     */
+    private void rehash(long userId, String oldHash, String rawPassword) {
+        passwordHasher.encodeAsync(rawPassword).thenAcceptAsync(hash -> {
+            if (!userService.replacePasswordHash(userId, oldHash, hash)) {
+                log.debug("Password re-hash dropped for user {}, the password changed meanwhile", userId);
+            }
+        }, taskExecutor).exceptionally(e -> {
+            // Saturated or failed: the next successful login tries again
+            log.debug("Password re-hash skipped for user {}: {}", userId, e.getMessage());
+            return null;
+        });
+    }
+
     /**
      * Save refresh token for user, used for refresh token management
      *
@@ -381,11 +412,13 @@ public class AuthServiceImpl implements AuthService {
      * @param tokenPair token pair contains refresh token and refresh token expire time, used for refresh token management
      */
     private void saveRefreshToken(Long userId, TokenPair tokenPair) {
+        refreshTokenRepository.saveToken(userId, tokenPair.refreshTokenId(), refreshTtl(tokenPair));
+    }
+
+    // Remaining lifetime of the pair's refresh token, never negative
+    private Duration refreshTtl(TokenPair tokenPair) {
         Duration ttl = Duration.between(Instant.now(), tokenPair.refreshTokenExpireAt());
-        if (ttl.isNegative()) {
-            ttl = Duration.ZERO;
-        }
-        refreshTokenRepository.saveToken(userId, tokenPair.refreshTokenId(), ttl);
+        return ttl.isNegative() ? Duration.ZERO : ttl;
     }
 
     // Helper function to generate random nickname for new user
@@ -9,63 +9,53 @@ import com.star.share.auth.verification.CodeSender;
 import com.star.share.auth.verification.VerificationCodeRepository;
 import com.star.share.common.exception.BusinessException;
 import com.star.share.common.exception.ErrorCode;
+import com.star.share.common.ratelimit.RateLimitRule;
+import com.star.share.common.ratelimit.RateLimiter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.security.SecureRandom;
 import java.time.Duration;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class VerificationServiceImpl implements VerificationService {
     private static final SecureRandom RANDOM = new SecureRandom();
-    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
 
     private final VerificationCodeRepository codeRepository;
     private final CodeSender codeSender;
-    private final StringRedisTemplate stringRedisTemplate;
+    private final RateLimiter rateLimiter;
     private final AuthProperties properties;
 
     /**
-     * Enforce send interval for identifier in scene
+     * Enforce send interval and daily limit for identifier in scene with one exact limiter call
      * @param scene verification scene
      * @param identifier    identifier(phone or email)
-     * @param interval   interval duration
+     * @param cfg   verification settings
      */
-    private void enforceSendInterval(VerificationScene scene, String identifier, Duration interval) {
-        if (interval.isZero() || interval.isNegative()) {
-            return;
+    private void enforceSendLimits(VerificationScene scene, String identifier, AuthProperties.Verification cfg) {
+        List<RateLimitRule> rules = new ArrayList<>(2);
+        Duration interval = cfg.getSendInterval();
+        RateLimitRule intervalRule = null;
+        if (interval != null && !interval.isZero() && !interval.isNegative()) {
+            // One send, one token back per interval
+            intervalRule = RateLimitRule.exact("code-send", 1, 1000D / interval.toMillis());
+            rules.add(intervalRule);
         }
-        String key = "auth:code:last:" + scene.name() + ":" + identifier;
-        String existing = stringRedisTemplate.opsForValue().get(key);
-        if (existing != null) {
-            throw new BusinessException(ErrorCode.VERIFICATION_RATE_LIMIT);
+        if (cfg.getDailyLimit() > 0) {
+            rules.add(RateLimitRule.exact("code-daily", cfg.getDailyLimit(),
+                    cfg.getDailyLimit() / (double) Duration.ofDays(1).toSeconds()));
         }
-        stringRedisTemplate.opsForValue().set(key, "1", interval);
-    }
-    /**
-     * Enforce daily limit for identifier in scene
-     * @param scene verification scene
-     * @param identifier    identifier(phone or email)
-     * @param limit     daily limit
-     */
-    private void enforceDailyLimit(VerificationScene scene, String identifier, int limit) {
-        if (limit <= 0) {
+        RateLimitRule rejected = rateLimiter.rejectedBy(rules, scene.name() + ":" + identifier);
+        if (rejected == null) {
             return;
         }
-        String date = DAY_FORMAT.format(LocalDate.now());
-        String key = "auth:code:count:" + scene.name() + ":" + identifier + ":" + date;
-        Long count = stringRedisTemplate.opsForValue().increment(key);
-        if (count != null && count == 1L) {
-            stringRedisTemplate.expire(key, Duration.ofDays(1));
-        }
-        if (count != null && count > limit) {
-            throw new BusinessException(ErrorCode.VERIFICATION_DAILY_LIMIT);
-        }
+        throw new BusinessException(rejected == intervalRule
+                ? ErrorCode.VERIFICATION_RATE_LIMIT
+                : ErrorCode.VERIFICATION_DAILY_LIMIT);
     }
 
     /**
@@ -97,11 +87,13 @@ public class VerificationServiceImpl implements VerificationService {
             throw new BusinessException(ErrorCode.BAD_REQUEST,"Please provide the correct verification");
         }
         AuthProperties.Verification cfg = properties.getVerification();
-        enforceSendInterval(scene, identifier, cfg.getSendInterval());
-        enforceDailyLimit(scene, identifier, cfg.getDailyLimit());
+        enforceSendLimits(scene, identifier, cfg);
 
         String code = generateNumericCode(cfg.getCodeLength());
-        codeRepository.saveCode(scene.name(), identifier, code, cfg.getTtl(), cfg.getMaxAttempts());
+        if (!codeRepository.saveCode(scene.name(), identifier, code, cfg.getTtl(), cfg.getMaxAttempts(),
+                cfg.getLockout())) {
+            throw new BusinessException(ErrorCode.VERIFICATION_TOO_MANY_ATTEMPTS);
+        }
         codeSender.sendCode(scene.name(), identifier, code, (int) cfg.getTtl().toMinutes());
         return new SendCodeResult(identifier, scene, (int) cfg.getTtl().toSeconds());
 
@@ -0,0 +1,121 @@
+package com.star.share.auth.token;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link JwtDecoder} that remembers tokens it already verified, so a client sending the same access
+ * token on hundreds of requests pays for one signature check.
+ *
+ * <p>Rules:</p>
+ * - entries are keyed by the SHA-256 of the token, the token itself is not kept as key;
+ * - an entry never outlives the token's {@code exp} (nor {@code maxTtl}), expired tokens always go
+ *   back to the delegate and fail there;
+ * - every entry carries the revocation generation it was verified under; once
+ *   {@link JwtCacheGenerationSync} adopts a newer generation, all older entries miss;
+ * - failures are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Verified> cache;
+    private final AtomicLong generation = new AtomicLong();
+    private final Clock clock;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize, Duration maxTtl) {
+        this(delegate, maxSize, maxTtl, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, long maxSize, Duration maxTtl, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        long maxTtlNanos = maxTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Verified>() {
+                    @Override
+                    public long expireAfterCreate(String key, Verified value, long currentTime) {
+                        Instant exp = value.jwt().getExpiresAt();
+                        if (exp == null) {
+                            return maxTtlNanos;
+                        }
+                        long untilExp = Duration.between(clock.instant(), exp).toNanos();
+                        return Math.max(0L, Math.min(untilExp, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Verified value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Verified value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (token == null) {
+            return delegate.decode(null);
+        }
+        String key = hash(token);
+        long gen = generation.get();
+        Verified hit = cache.getIfPresent(key);
+        if (hit != null && hit.generation() == gen && notExpired(hit.jwt())) {
+            return hit.jwt();
+        }
+
+        Jwt jwt = delegate.decode(token);
+        cache.put(key, new Verified(jwt, gen));
+        return jwt;
+    }
+
+    /**
+     * Adopt a newer revocation generation, older entries are dropped.
+     */
+    void advanceTo(long newGeneration) {
+        long current = generation.get();
+        if (newGeneration > current && generation.compareAndSet(current, newGeneration)) {
+            cache.invalidateAll();
+        }
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    private boolean notExpired(Jwt jwt) {
+        Instant exp = jwt.getExpiresAt();
+        return exp == null || clock.instant().isBefore(exp);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Verified(Jwt jwt, long generation) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.star.share.auth.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the revocation generation of {@link CachingJwtDecoder} in step across instances.
+ *
+ * <p>The generation is a counter in Redis ({@code auth:jwt:gen}):</p>
+ * - {@link #revokeAll()} bumps it and applies it on this instance right away;
+ * - every instance polls it each {@code auth.jwt.cache.generation-poll-ms}, so the others drop their
+ *   verified tokens within one poll interval.
+ */
+@Slf4j
+@Component
+public class JwtCacheGenerationSync {
+
+    static final String KEY = "auth:jwt:gen";
+
+    private final StringRedisTemplate redis;
+    private final CachingJwtDecoder decoder;
+
+    public JwtCacheGenerationSync(StringRedisTemplate redis, JwtDecoder jwtDecoder) {
+        this.redis = redis;
+        // Null when the cache is disabled, there is nothing to keep in step then
+        this.decoder = jwtDecoder instanceof CachingJwtDecoder caching ? caching : null;
+    }
+
+    /**
+     * Forget every verified token on all instances, e.g. after a signing key was withdrawn.
+     */
+    public void revokeAll() {
+        Long gen = redis.opsForValue().increment(KEY);
+        if (decoder != null && gen != null) {
+            decoder.advanceTo(gen);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.jwt.cache.generation-poll-ms:5000}")
+    public void poll() {
+        if (decoder == null) {
+            return;
+        }
+        try {
+            String gen = redis.opsForValue().get(KEY);
+            if (gen != null) {
+                decoder.advanceTo(Long.parseLong(gen));
+            }
+        } catch (Exception e) {
+            log.warn("JWT cache generation poll failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.star.share.auth.token;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.star.share.auth.config.AuthProperties;
+import com.star.share.auth.utils.PemUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The JWT signing and verification keys, as one JWK set selected by {@code kid}.
+ *
+ * <p>Keys come from {@code auth.jwt} (the original key, active from the start) plus
+ * {@code auth.jwt.keys}. Each key is RS256 or ES256:</p>
+ * - a key verifies from startup until its {@code retireAt};
+ * - the key with the latest {@code activeFrom} that has passed signs new tokens, and its kid goes
+ *   into the token header;
+ * - every {@code auth.jwt.rotation-check-ms} the ring is evaluated again, so a rotation planned in
+ *   configuration happens without a restart. When a key retires, the verified-token cache is
+ *   emptied through {@link JwtCacheGenerationSync}.
+ *
+ * <p>Publishing the next key well before its {@code activeFrom} lets every instance verify its tokens
+ * before any instance signs with it.</p>
+ */
+@Slf4j
+@Component
+public class JwtKeyRing implements JWKSource<SecurityContext> {
+
+    /**
+     * Algorithms accepted in token headers.
+     */
+    public static final Set<JWSAlgorithm> ALGORITHMS = Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256);
+
+    private final List<RingKey> keys;
+    private final ObjectProvider<JwtCacheGenerationSync> cacheSync;
+    private volatile JWKSet usable;
+    private volatile RingKey signing;
+
+    public JwtKeyRing(AuthProperties properties, ObjectProvider<JwtCacheGenerationSync> cacheSync) {
+        this.cacheSync = cacheSync;
+        AuthProperties.Jwt jwt = properties.getJwt();
+        List<RingKey> loaded = new ArrayList<>();
+        loaded.add(load(jwt.getKeyId(), jwt.getAlgorithm(), jwt.getPrivateKey(), jwt.getPublicKey(),
+                Instant.EPOCH, null));
+        for (AuthProperties.Key key : jwt.getKeys()) {
+            Instant activeFrom = key.getActiveFrom() == null ? Instant.EPOCH : key.getActiveFrom();
+            loaded.add(load(key.getKeyId(), key.getAlgorithm(), key.getPrivateKey(), key.getPublicKey(),
+                    activeFrom, key.getRetireAt()));
+        }
+        Set<String> kids = new HashSet<>();
+        for (RingKey key : loaded) {
+            if (!kids.add(key.jwk().getKeyID())) {
+                throw new IllegalStateException("Duplicate JWT key id " + key.jwk().getKeyID());
+            }
+        }
+        this.keys = List.copyOf(loaded);
+        rotate();
+        if (signing == null) {
+            throw new IllegalStateException("No active JWT signing key");
+        }
+    }
+
+    /**
+     * JWS header for a new token: algorithm and kid of the current signing key.
+     */
+    public JwsHeader signingHeader() {
+        RingKey key = signing;
+        return JwsHeader.with(key.algorithm()).keyId(key.jwk().getKeyID()).build();
+    }
+
+    public String signingKeyId() {
+        return signing.jwk().getKeyID();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        return jwkSelector.select(usable);
+    }
+
+    /**
+     * Re-evaluate which keys verify and which one signs.
+     */
+    @Scheduled(fixedDelayString = "${auth.jwt.rotation-check-ms:60000}")
+    public void rotate() {
+        Instant now = Instant.now();
+        List<JWK> verify = new ArrayList<>();
+        RingKey active = null;
+        for (RingKey key : keys) {
+            if (key.retireAt() != null && !now.isBefore(key.retireAt())) {
+                continue;
+            }
+            verify.add(key.jwk());
+            if (!key.activeFrom().isAfter(now) && (active == null || key.activeFrom().isAfter(active.activeFrom()))) {
+                active = key;
+            }
+        }
+        if (active == null) {
+            // Misconfigured schedule: keep signing with the previous key rather than failing logins
+            log.error("No active JWT signing key at {}, keeping {}", now, signing == null ? null : signingKeyId());
+            active = signing;
+        }
+
+        JWKSet previous = usable;
+        usable = new JWKSet(verify);
+        if (signing != active) {
+            log.info("JWT signing key is now {} ({})", active.jwk().getKeyID(), active.algorithm());
+            signing = active;
+        }
+        if (previous != null && previous.getKeys().size() > verify.size()) {
+            log.info("JWT keys retired, {} keys left for verification", verify.size());
+            cacheSync.ifAvailable(JwtCacheGenerationSync::revokeAll);
+        }
+    }
+
+    private static RingKey load(String kid, String algorithm, Resource privateKey, Resource publicKey,
+                                Instant activeFrom, Instant retireAt) {
+        SignatureAlgorithm alg = SignatureAlgorithm.from(algorithm);
+        if (alg == SignatureAlgorithm.RS256) {
+            RSAKey jwk = new RSAKey.Builder(PemUtils.readPublicKey(publicKey))
+                    .privateKey(PemUtils.readPrivateKey(privateKey))
+                    .keyID(kid)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.RS256)
+                    .build();
+            return new RingKey(jwk, alg, activeFrom, retireAt);
+        }
+        if (alg == SignatureAlgorithm.ES256) {
+            ECKey jwk = new ECKey.Builder(Curve.P_256, PemUtils.readEcPublicKey(publicKey))
+                    .privateKey(PemUtils.readEcPrivateKey(privateKey))
+                    .keyID(kid)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.ES256)
+                    .build();
+            return new RingKey(jwk, alg, activeFrom, retireAt);
+        }
+        throw new IllegalStateException("Unsupported JWT algorithm " + algorithm + " for key " + kid);
+    }
+
+    private record RingKey(JWK jwk, SignatureAlgorithm algorithm, Instant activeFrom, Instant retireAt) {
+    }
+}
@@ -18,10 +18,12 @@ import java.util.UUID;
 public class JwtService {
     private static final String CLAIM_TOKEN_TYPE = "token_type";
     private static final String CLAIM_USER_ID = "user_id";
+    private static final String CLAIM_FAMILY = "fam";
 
     private final JwtEncoder jwtEncoder;
     private final JwtDecoder jwtDecoder;
     private final AuthProperties properties;
+    private final JwtKeyRing keyRing;
     private final Clock clock = Clock.systemUTC();
 
     /**
@@ -41,12 +43,26 @@ public class JwtService {
      */
     public TokenPair tokenPair(User user) {
         String refreshTokenId = UUID.randomUUID().toString();
+        return tokenPair(user, refreshTokenId, refreshTokenId);
+    }
+
+    /**
+     * Generate a token pair whose refresh token continues an existing token family (refresh rotation)
+     * @param user user info to put in token
+     * @param familyId family of the refresh token being rotated, see {@link #extractFamilyId(Jwt)}
+     * @return TokenPair containing access token and refresh token with expire time and refresh token id
+     */
+    public TokenPair tokenPair(User user, String familyId) {
+        return tokenPair(user, UUID.randomUUID().toString(), familyId);
+    }
+
+    private TokenPair tokenPair(User user, String refreshTokenId, String familyId) {
         Instant issuedAt = Instant.now(clock);
         Instant accessTokenExpireAt = issuedAt.plus(properties.getJwt().getAccessTokent1());
         Instant refreshTokenExpireAt = issuedAt.plus(properties.getJwt().getRefreshTokent1());
 
         String accessToken = encodeToken(user, issuedAt, accessTokenExpireAt, "access", UUID.randomUUID().toString());
-        String refreshToken = encodeRefreshToken(user, issuedAt, refreshTokenExpireAt, refreshTokenId);
+        String refreshToken = encodeRefreshToken(user, issuedAt, refreshTokenExpireAt, refreshTokenId, familyId);
         return new TokenPair(accessToken, accessTokenExpireAt, refreshToken, refreshTokenExpireAt, refreshTokenId);
     }
 
@@ -72,7 +88,7 @@ public class JwtService {
                 .claim("nickname", user.getNickname())
                 .build();
 
-        return jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+        return jwtEncoder.encode(JwtEncoderParameters.from(keyRing.signingHeader(), claims)).getTokenValue();
     }
 
     /**
@@ -81,9 +97,10 @@ public class JwtService {
      * @param issueAt token issue time
      * @param expireAt  token expire time
      * @param tokenId token id, used for refresh token management, can be stored in database or cache
+     * @param familyId id of the login session the token belongs to, kept across rotations
      * @return Encoded JWT refresh token string
      */
-    private String encodeRefreshToken(User user, Instant issueAt, Instant expireAt, String tokenId) {
+    private String encodeRefreshToken(User user, Instant issueAt, Instant expireAt, String tokenId, String familyId) {
         JwtClaimsSet claims = JwtClaimsSet.builder()
                 .issuer(properties.getJwt().getIssuer())
                 .issuedAt(issueAt)
@@ -92,8 +109,9 @@ public class JwtService {
                 .id(tokenId)
                 .claim(CLAIM_TOKEN_TYPE, "refresh")
                 .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_FAMILY, familyId)
                 .build();
-        return jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+        return jwtEncoder.encode(JwtEncoderParameters.from(keyRing.signingHeader(), claims)).getTokenValue();
     }
 
     /**
@@ -137,4 +155,15 @@ public class JwtService {
         return tokenId != null ? tokenId : "";
     }
 
+    /**
+     * Extract the refresh token family, tokens issued before families existed are their own family
+     *
+     * @param jwt Decoded JWT object
+     * @return family id
+     */
+    public String extractFamilyId(Jwt jwt) {
+        Object claim = jwt.getClaims().get(CLAIM_FAMILY);
+        return claim != null ? claim.toString() : extractTokenId(jwt);
+    }
+
 }
@@ -1,34 +1,71 @@
 package com.star.share.auth.token;
 
+import com.star.share.common.redis.RedisKeyScanner;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.Cursor;
-import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+
+/**
+ * Refresh tokens of a user in one hash, {@code auth:rt:{userId}} with jti -> expiry (epoch ms) and family,
+ * plus {@code fam:<family>} -> expiry and the family's current jti.
+ *
+ * <p>Layout rules:</p>
+ * - the hash expires with the latest token in it, expired entries are pruned when a token is saved;
+ * - a refresh is one {@link #rotateToken} script: the old jti is checked and replaced by the new one,
+ *   which becomes the family's current jti; presenting any other jti of a live family (however many
+ *   rotations ago it was superseded) is reuse and revokes the family;
+ * - revoke-all is a single DEL, no keyspace SCAN;
+ * - while {@code auth.refresh-token.legacy-read} is on (rollout), the old one-key-per-token layout
+ *   {@code auth:rt:{userId}:<jti>} is still honoured: valid there, deleted on revoke and SCANned on
+ *   revoke-all. Turn it off one refresh-token lifetime after the rollout.
+ */
 @Slf4j
 @Component
 public class RefreshTokenRepoImpl implements RefreshTokenRepository {
     private final StringRedisTemplate redisTemplate;
+    private final RedisKeyScanner keyScanner;
+    private final boolean legacyRead;
+    private final DefaultRedisScript<Long> saveScript;
+    private final DefaultRedisScript<Long> validScript;
+    private final DefaultRedisScript<Long> revokeScript;
+    private final DefaultRedisScript<Long> rotateScript;
 
-    public RefreshTokenRepoImpl(StringRedisTemplate redisTemplate) {
+    public RefreshTokenRepoImpl(StringRedisTemplate redisTemplate,
+                                RedisKeyScanner keyScanner,
+                                @Value("${auth.refresh-token.legacy-read:true}") boolean legacyRead) {
         this.redisTemplate = redisTemplate;
+        this.keyScanner = keyScanner;
+        this.legacyRead = legacyRead;
+        this.saveScript = script(SAVE_LUA);
+        this.validScript = script(VALID_LUA);
+        this.revokeScript = script(REVOKE_LUA);
+        this.rotateScript = script(ROTATE_LUA);
     }
 
     // Helper function to generate Redis key
 
     /**
-     * Generate Redis key for refresh token
+     * Generate Redis key of the user's refresh token hash
+     * @param userId user id
+     * @return Redis key
+     */
+    public static String key(long userId) {
+        return "auth:rt:{%d}".formatted(userId);
+    }
+
+    /**
+     * Generate Redis key for refresh token in the legacy one-key-per-token layout
      * @param userId user id
      * @param tokenId jti of refresh token
      * @return Redis key
      */
-    private static String key(long userId, String tokenId) {
-        return "auth:rt:%d:%s".formatted(userId, tokenId);
+    private static String legacyKey(long userId, String tokenId) {
+        return "auth:rt:{%d}:%s".formatted(userId, tokenId);
     }
 
     /**
@@ -39,9 +76,11 @@ public class RefreshTokenRepoImpl implements RefreshTokenRepository {
      */
     @Override
     public void saveToken(long userId, String tokenId, Duration ttl) {
-        String redisKey = key(userId, tokenId);
-        redisTemplate.opsForValue().set(redisKey, "1", ttl);
+        long now = System.currentTimeMillis();
+        redisTemplate.execute(saveScript, List.of(key(userId)),
+                tokenId, String.valueOf(now + ttl.toMillis()), String.valueOf(now));
     }
+
     /**
      * Check if refresh token is valid for user, used for refresh token management
      * @param userId user id
@@ -50,8 +89,10 @@ public class RefreshTokenRepoImpl implements RefreshTokenRepository {
      */
     @Override
     public boolean isTokenValid(long userId, String tokenId) {
-        String key = key(userId, tokenId);
-        return Objects.equals(redisTemplate.opsForValue().get(key), "1");
+        // Both keys share the {userId} hash tag, so one script can read both layouts
+        Long valid = redisTemplate.execute(validScript, List.of(key(userId), legacyKey(userId, tokenId)),
+                tokenId, String.valueOf(System.currentTimeMillis()), legacyRead ? "1" : "0");
+        return valid != null && valid == 1L;
     }
 
     /**
@@ -61,42 +102,147 @@ public class RefreshTokenRepoImpl implements RefreshTokenRepository {
      */
     @Override
     public void revokeToken(long userId, String tokenId) {
-        String key = key(userId, tokenId);
-        redisTemplate.delete(key);
+        redisTemplate.execute(revokeScript, List.of(key(userId), legacyKey(userId, tokenId)),
+                tokenId, legacyRead ? "1" : "0");
+    }
+
+    /**
+     * Rotate a refresh token in one round trip, see {@link RefreshTokenRepository#rotateToken}
+     */
+    @Override
+    public Rotation rotateToken(long userId, String oldTokenId, String familyId, String newTokenId, Duration ttl) {
+        long now = System.currentTimeMillis();
+        Long result = redisTemplate.execute(rotateScript, List.of(key(userId), legacyKey(userId, oldTokenId)),
+                oldTokenId, familyId, newTokenId, String.valueOf(now + ttl.toMillis()), String.valueOf(now),
+                legacyRead ? "1" : "0");
+        if (result == null || result == 0L) {
+            return Rotation.INVALID;
+        }
+        return result == 1L ? Rotation.ROTATED : Rotation.REUSED;
     }
 
     /**
      * Revoke all refresh tokens for user, used for refresh token management, e.g. when user change password or logout
-     * Optimizing using scan for pattern matching and batch delete, avoid using keys command which may
-     * cause performance issue in production environment with large data volume
+     * One DEL of the user's hash; the legacy keys are SCANned only while legacy reads are on
      * @param userId user id
      */
     @Override
     public void revokeAllTokens(long userId) {
-        String pattern = "auth:rt:%d:*".formatted(userId);
-        ScanOptions options = ScanOptions
-                .scanOptions()
-                .match(pattern)
-                .count(1000)
-                .build();
-
-        try (Cursor<String> cursor = redisTemplate.scan(options)) {
-            List<String> keysToDelete = new ArrayList<>();
-
-            while (cursor.hasNext()) {
-                keysToDelete.add(cursor.next());
-
-                if (keysToDelete.size() >= 100) {
-                    redisTemplate.delete(keysToDelete);
-                    keysToDelete.clear();
-                }
-            }
-
-            if (!keysToDelete.isEmpty()) {
-                redisTemplate.delete(keysToDelete);
-            }
+        redisTemplate.delete(key(userId));
+        if (!legacyRead) {
+            return;
+        }
+        // SCAN on every master node, the hash tag keeps all tokens of the user in one slot
+        String pattern = "auth:rt:{%d}:*".formatted(userId);
+        try {
+            keyScanner.delete(pattern);
         } catch (Exception e) {
             log.error("Scan tokens failed", e);
         }
     }
+
+    private static DefaultRedisScript<Long> script(String text) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setResultType(Long.class);
+        script.setScriptText(text);
+        return script;
+    }
+
+    // Field values: "<expiry ms>:<family>" for a live token, "<expiry ms>:<current jti>" for a fam:<family>
+    // record; plain "<expiry ms>" from before families existed, "x<expiry ms>:<family>" used markers from
+    // before family records (treated as reuse until they expire).
+    private static final String PARSE_LUA = """
+            local function parse(v)
+              local used, exp, fam = string.match(v, '^(x?)(%d+):?(.*)$')
+              return used == 'x', tonumber(exp), fam
+            end
+            local function prune(key, now, latest)
+              local flat = redis.call('HGETALL', key)
+              for i = 1, #flat, 2 do
+                local _, exp = parse(flat[i + 1])
+                if not exp or exp <= now then
+                  redis.call('HDEL', key, flat[i])
+                elseif exp > latest then
+                  latest = exp
+                end
+              end
+              return latest
+            end
+            """;
+
+    // KEYS[1] token hash; ARGV: jti, expiry ms, now ms.
+    // Drops expired entries, adds the new jti as its own family and keeps the hash alive until its latest expiry.
+    private static final String SAVE_LUA = PARSE_LUA + """
+            local now = tonumber(ARGV[3])
+            local latest = prune(KEYS[1], now, tonumber(ARGV[2]))
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[1], 'fam:' .. ARGV[1], ARGV[2] .. ':' .. ARGV[1])
+            redis.call('PEXPIRE', KEYS[1], latest - now)
+            return 1
+            """;
+
+    // KEYS[1] token hash, KEYS[2] legacy token key; ARGV: jti, now ms, legacy read flag.
+    private static final String VALID_LUA = PARSE_LUA + """
+            local v = redis.call('HGET', KEYS[1], ARGV[1])
+            if v then
+              local used, exp = parse(v)
+              if not used and exp and exp > tonumber(ARGV[2]) then return 1 end
+              if not used then redis.call('HDEL', KEYS[1], ARGV[1]) end
+              return 0
+            end
+            if ARGV[3] == '1' and redis.call('GET', KEYS[2]) == '1' then return 1 end
+            return 0
+            """;
+
+    // KEYS[1] token hash, KEYS[2] legacy token key; ARGV: jti, legacy read flag.
+    private static final String REVOKE_LUA = """
+            local n = redis.call('HDEL', KEYS[1], ARGV[1])
+            if ARGV[2] == '1' then n = n + redis.call('DEL', KEYS[2]) end
+            return n
+            """;
+
+    // KEYS[1] token hash, KEYS[2] legacy key of the old jti;
+    // ARGV: old jti, family, new jti, new expiry ms, now ms, legacy read flag.
+    // Returns 1 rotated, 0 unknown/expired/revoked, -1 reuse (the family's current token is revoked).
+    // Reuse is any jti other than the current one of a live family, so a token superseded twice by
+    // an attacker still revokes the family when the real client presents it.
+    private static final String ROTATE_LUA = PARSE_LUA + """
+            local now = tonumber(ARGV[5])
+            local family = ARGV[2]
+            local rec = redis.call('HGET', KEYS[1], 'fam:' .. family)
+            if rec then
+              local _, famExp, current = parse(rec)
+              if famExp and famExp > now and current ~= ARGV[1] then
+                redis.call('HDEL', KEYS[1], current, 'fam:' .. family)
+                return -1
+              end
+            end
+            local v = redis.call('HGET', KEYS[1], ARGV[1])
+            if v then
+              local used, exp, fam = parse(v)
+              if fam and fam ~= '' then family = fam end
+              if used then
+                -- marker from the previous layout: revoke whatever is left of that family
+                local flat = redis.call('HGETALL', KEYS[1])
+                for i = 1, #flat, 2 do
+                  local _, _, f = parse(flat[i + 1])
+                  if f == family then redis.call('HDEL', KEYS[1], flat[i]) end
+                end
+                redis.call('HDEL', KEYS[1], 'fam:' .. family)
+                return -1
+              end
+              if not exp or exp <= now then
+                redis.call('HDEL', KEYS[1], ARGV[1])
+                return 0
+              end
+            elseif ARGV[6] == '1' and redis.call('GET', KEYS[2]) == '1' then
+              redis.call('DEL', KEYS[2])
+            else
+              return 0
+            end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            local latest = prune(KEYS[1], now, tonumber(ARGV[4]))
+            redis.call('HSET', KEYS[1], ARGV[3], ARGV[4] .. ':' .. family, 'fam:' .. family, ARGV[4] .. ':' .. ARGV[3])
+            redis.call('PEXPIRE', KEYS[1], latest - now)
+            return 1
+            """;
 }
@@ -4,6 +4,18 @@ import java.time.Duration;
 
 public interface RefreshTokenRepository {
 
+    /**
+     * Outcome of {@link #rotateToken}
+     */
+    enum Rotation {
+        /** old token consumed, new token saved */
+        ROTATED,
+        /** old token unknown, expired or revoked */
+        INVALID,
+        /** old token was already rotated: replayed or stolen, its whole family is revoked */
+        REUSED
+    }
+
     /**
      * Save refresh token for user, used for refresh token management
      * @param userId user id
@@ -27,6 +39,17 @@ public interface RefreshTokenRepository {
      */
     void revokeToken(long userId, String tokenId);
 
+    /**
+     * Atomically consume a refresh token and save its successor in the same family
+     * @param userId user id
+     * @param oldTokenId jti of the presented refresh token
+     * @param familyId family of the presented refresh token, used when the store has none recorded
+     * @param newTokenId jti of the new refresh token
+     * @param ttl expire duration of the new refresh token
+     * @return rotation outcome
+     */
+    Rotation rotateToken(long userId, String oldTokenId, String familyId, String newTokenId, Duration ttl);
+
     /**
      * Revoke all refresh tokens for user, used for refresh token management, e.g. when user change password or logout
      * @param userId user id
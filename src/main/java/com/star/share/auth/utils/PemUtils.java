@@ -7,7 +7,11 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
-    import java.security.interfaces.RSAPrivateKey;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
@@ -15,7 +19,7 @@ import java.util.Base64;
 
 /**
  * Pem READ Utils
- * supporting read PKCS#8 private key and X.509 public Key
+ * supporting read PKCS#8 private key and X.509 public Key, RSA or EC
  * Encoding by Base 64
  */
 public class PemUtils {
@@ -42,6 +46,37 @@ public class PemUtils {
      * @return RSAPrivateKey
      */
     public static RSAPrivateKey readPrivateKey(Resource resource){
+        return (RSAPrivateKey) readPrivate(resource, "RSA");
+    }
+
+    /**
+     * Reading public key from PEM file
+     * @param resource point to private PEM file
+     * @return RSAPublicKey
+     */
+    public static RSAPublicKey readPublicKey(Resource resource){
+        return (RSAPublicKey) readPublic(resource, "RSA");
+    }
+
+    /**
+     * Reading EC (e.g. P-256) private key from PEM file
+     * @param resource point to private PEM file
+     * @return ECPrivateKey
+     */
+    public static ECPrivateKey readEcPrivateKey(Resource resource){
+        return (ECPrivateKey) readPrivate(resource, "EC");
+    }
+
+    /**
+     * Reading EC public key from PEM file
+     * @param resource point to public PEM file
+     * @return ECPublicKey
+     */
+    public static ECPublicKey readEcPublicKey(Resource resource){
+        return (ECPublicKey) readPublic(resource, "EC");
+    }
+
+    private static PrivateKey readPrivate(Resource resource, String algorithm){
         try{
             String pem = readResource(resource);
             String keyData = pem.replace(PRIVATE_BEGIN, "")
@@ -50,20 +85,15 @@ public class PemUtils {
 
             byte[] keyBytes = Base64.getDecoder().decode(keyData);
             PKCS8EncodedKeySpec spec = new PKCS8EncodedKeySpec(keyBytes);
-            KeyFactory kf = KeyFactory.getInstance("RSA");
+            KeyFactory kf = KeyFactory.getInstance(algorithm);
 
-            return(RSAPrivateKey) kf.generatePrivate(spec);
+            return kf.generatePrivate(spec);
         }catch (IOException | GeneralSecurityException e){
-            throw new IllegalStateException("Failed to read RSA private key", e);
+            throw new IllegalStateException("Failed to read " + algorithm + " private key", e);
         }
     }
 
-    /**
-     * Reading public key from PEM file
-     * @param resource point to private PEM file
-     * @return RSAPublicKey
-     */
-    public static RSAPublicKey readPublicKey(Resource resource){
+    private static PublicKey readPublic(Resource resource, String algorithm){
         try {
             String pem = readResource(resource);
             String keyData = pem.replace(PUBLIC_BEGIN, "")
@@ -72,14 +102,13 @@ public class PemUtils {
 
             byte[] keyBytes = Base64.getDecoder().decode(keyData);
             X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-            KeyFactory kf = KeyFactory.getInstance("RSA");
+            KeyFactory kf = KeyFactory.getInstance(algorithm);
 
-            return (RSAPublicKey) kf.generatePublic(spec);
+            return kf.generatePublic(spec);
         }catch (IOException | GeneralSecurityException e){
-            throw new IllegalStateException("Failed to read RSA public key", e);
+            throw new IllegalStateException("Failed to read " + algorithm + " public key", e);
         }
     }
 
 
 }
-
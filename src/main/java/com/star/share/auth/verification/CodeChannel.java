@@ -0,0 +1,31 @@
+package com.star.share.auth.verification;
+
+import java.util.List;
+
+/**
+ * A delivery channel for verification codes (mail, SMS, log...), used by {@link CodeDispatcher}.
+ *
+ * <p>Channels are tried in {@code @Order}; the first one that {@link #supports(String)} an identifier
+ * delivers it.</p>
+ */
+public interface CodeChannel {
+
+    /**
+     * Channel name, used in metrics and the dead-letter store
+     */
+    String name();
+
+    /**
+     * Whether this channel can deliver to the identifier
+     * @param identifier phone or email
+     */
+    boolean supports(String identifier);
+
+    /**
+     * Deliver a batch, e.g. over one connection
+     * @param batch messages of this channel
+     * @return messages that failed and may be retried, empty when all were delivered
+     * @throws Exception when the whole batch failed
+     */
+    List<CodeMessage> send(List<CodeMessage> batch) throws Exception;
+}
@@ -0,0 +1,296 @@
+package com.star.share.auth.verification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous {@link CodeSender}: {@link #sendCode} only enqueues, so the API returns as soon as the
+ * code is stored.
+ *
+ * <p>Delivery pipeline, one lane per {@link CodeChannel}:</p>
+ * - a bounded queue ({@code auth.code.queue-capacity}) drained by {@code auth.code.workers} threads;
+ * - a worker sends up to {@code auth.code.batch-size} messages at once, waiting at most
+ *   {@code auth.code.batch-wait-ms} to fill a batch;
+ * - failed messages are retried with exponential backoff ({@code auth.code.backoff-ms} doubled per
+ *   attempt, with jitter) up to {@code auth.code.max-attempts}, never after the code expired;
+ * - what cannot be delivered (queue full, attempts used up, expired) goes to the dead-letter list
+ *   {@code auth:code:dlq} in Redis, without the code itself, capped at {@code auth.code.dead-letter-max};
+ * - on shutdown, which runs after the web server stopped, queued messages are still delivered and
+ *   retries still waiting for their backoff are dead-lettered.
+ *
+ * <p>Metrics: {@code auth.code.sent}, {@code auth.code.retried} and {@code auth.code.dead}, each tagged
+ * by channel, and {@code auth.code.queue.depth{channel}}.</p>
+ */
+@Slf4j
+@Component
+public class CodeDispatcher implements CodeSender, SmartLifecycle {
+
+    static final String DEAD_LETTER_KEY = "auth:code:dlq";
+
+    private final List<Lane> lanes = new ArrayList<>();
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService retryScheduler;
+    private final int workers;
+    private final int batchSize;
+    private final long batchWaitMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long deadLetterMax;
+    private final List<Thread> threads = new ArrayList<>();
+    // Retries waiting on the scheduler; shutdownNow() only returns its own wrappers, so they are tracked here
+    private final Set<Retry> pendingRetries = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+
+    public CodeDispatcher(List<CodeChannel> channels,
+                          StringRedisTemplate redis,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          @Value("${auth.code.queue-capacity:10000}") int queueCapacity,
+                          @Value("${auth.code.workers:2}") int workers,
+                          @Value("${auth.code.batch-size:20}") int batchSize,
+                          @Value("${auth.code.batch-wait-ms:50}") long batchWaitMs,
+                          @Value("${auth.code.max-attempts:4}") int maxAttempts,
+                          @Value("${auth.code.backoff-ms:1000}") long backoffMs,
+                          @Value("${auth.code.dead-letter-max:10000}") long deadLetterMax) {
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchWaitMs = batchWaitMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.deadLetterMax = deadLetterMax;
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "code-sender-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        // Injected in @Order, the first channel supporting an identifier wins
+        for (CodeChannel channel : channels) {
+            lanes.add(new Lane(channel, new ArrayBlockingQueue<>(queueCapacity), meterRegistry));
+        }
+    }
+
+    @Override
+    public void sendCode(String scene, String identifier, String code, int expireMinutes) {
+        CodeMessage message = new CodeMessage(scene, identifier, code, expireMinutes, Instant.now(), 1);
+        Lane lane = laneFor(identifier);
+        if (lane == null) {
+            log.error("No code channel supports identifier {}", identifier);
+            return;
+        }
+        if (!lane.queue.offer(message)) {
+            deadLetter(lane, message, "queue full");
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (Lane lane : lanes) {
+            for (int i = 0; i < workers; i++) {
+                threads.add(Thread.ofPlatform()
+                        .name("code-sender-" + lane.channel.name() + "-" + i)
+                        .daemon()
+                        .start(() -> work(lane)));
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        retryScheduler.shutdownNow();
+        for (Retry retry : pendingRetries) {
+            if (pendingRetries.remove(retry)) {
+                deadLetter(retry.lane, retry.message, "shutdown before retry");
+            }
+        }
+        for (Thread t : threads) {
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        threads.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server, so codes requested by the last requests are still sent
+        return Integer.MIN_VALUE + 1000;
+    }
+
+    private Lane laneFor(String identifier) {
+        for (Lane lane : lanes) {
+            if (lane.channel.supports(identifier)) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    // Worker loop: keeps draining after stop() until the lane is empty
+    private void work(Lane lane) {
+        List<CodeMessage> batch = new ArrayList<>(batchSize);
+        while (running || !lane.queue.isEmpty()) {
+            try {
+                CodeMessage first = lane.queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + batchWaitMs;
+                while (batch.size() < batchSize) {
+                    long wait = deadline - System.currentTimeMillis();
+                    CodeMessage next = wait > 0 ? lane.queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    lane.queue.drainTo(batch, batchSize - batch.size());
+                }
+                deliver(lane, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(Lane lane, List<CodeMessage> batch) {
+        List<CodeMessage> failed;
+        String error;
+        try {
+            failed = lane.channel.send(List.copyOf(batch));
+            error = "rejected by channel";
+        } catch (Exception e) {
+            log.warn("Code channel {} failed a batch of {}: {}", lane.channel.name(), batch.size(), e.getMessage());
+            failed = batch;
+            error = e.getMessage();
+        }
+        lane.sent.increment(batch.size() - failed.size());
+        Instant now = Instant.now();
+        for (CodeMessage m : failed) {
+            if (m.attempt() >= maxAttempts || m.isExpired(now) || !running) {
+                deadLetter(lane, m, error);
+                continue;
+            }
+            long delay = backoffMs << Math.min(m.attempt() - 1, 16);
+            delay += ThreadLocalRandom.current().nextLong(Math.max(1, delay / 4));
+            Retry retry = new Retry(lane, m.nextAttempt());
+            pendingRetries.add(retry);
+            try {
+                retryScheduler.schedule(retry, delay, TimeUnit.MILLISECONDS);
+                lane.retried.increment();
+            } catch (Exception e) {
+                if (pendingRetries.remove(retry)) {
+                    deadLetter(lane, retry.message, error);
+                }
+            }
+        }
+    }
+
+    private void deadLetter(Lane lane, CodeMessage m, String error) {
+        lane.dead.increment();
+        try {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("channel", lane.channel.name());
+            entry.put("scene", m.scene());
+            entry.put("identifier", m.identifier());
+            entry.put("attempts", m.attempt());
+            entry.put("error", error);
+            entry.put("createdAt", m.createdAt().toString());
+            entry.put("failedAt", Instant.now().toString());
+            redis.opsForList().leftPush(DEAD_LETTER_KEY, objectMapper.writeValueAsString(entry));
+            redis.opsForList().trim(DEAD_LETTER_KEY, 0, deadLetterMax - 1);
+        } catch (Exception e) {
+            log.error("Code dead letter write failed for {} via {}: {}", m.identifier(), lane.channel.name(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * A failed message waiting for its backoff; whoever removes it from the pending set first,
+     * the scheduler or {@link #stop()}, handles it.
+     */
+    private final class Retry implements Runnable {
+        private final Lane lane;
+        private final CodeMessage message;
+
+        Retry(Lane lane, CodeMessage message) {
+            this.lane = lane;
+            this.message = message;
+        }
+
+        @Override
+        public void run() {
+            if (pendingRetries.remove(this) && !lane.queue.offer(message)) {
+                deadLetter(lane, message, "queue full on retry");
+            }
+        }
+    }
+
+    /**
+     * Queue and meters of one channel.
+     */
+    private static final class Lane {
+        private final CodeChannel channel;
+        private final BlockingQueue<CodeMessage> queue;
+        private final Counter sent;
+        private final Counter retried;
+        private final Counter dead;
+
+        Lane(CodeChannel channel, BlockingQueue<CodeMessage> queue, MeterRegistry registry) {
+            this.channel = channel;
+            this.queue = queue;
+            this.sent = Counter.builder("auth.code.sent")
+                    .description("Verification codes delivered")
+                    .tag("channel", channel.name())
+                    .register(registry);
+            this.retried = Counter.builder("auth.code.retried")
+                    .description("Verification code deliveries scheduled for retry")
+                    .tag("channel", channel.name())
+                    .register(registry);
+            this.dead = Counter.builder("auth.code.dead")
+                    .description("Verification codes moved to the dead-letter list")
+                    .tag("channel", channel.name())
+                    .register(registry);
+            registry.gauge("auth.code.queue.depth", Tags.of("channel", channel.name()), queue, BlockingQueue::size);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.star.share.auth.verification;
+
+import java.time.Instant;
+
+/**
+ * One verification code waiting for delivery.
+ *
+ * @param scene         scene name
+ * @param identifier    phone or email
+ * @param code          code to send
+ * @param expireMinutes code lifetime, also the deadline for delivery retries
+ * @param createdAt     when the code was issued
+ * @param attempt       delivery attempt, starting at 1
+ */
+public record CodeMessage(String scene, String identifier, String code, int expireMinutes, Instant createdAt,
+                          int attempt) {
+
+    public CodeMessage nextAttempt() {
+        return new CodeMessage(scene, identifier, code, expireMinutes, createdAt, attempt + 1);
+    }
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(createdAt.plusSeconds(expireMinutes * 60L));
+    }
+}
@@ -1,27 +1,44 @@
 package com.star.share.auth.verification;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * Log code sender implementation
  *
- * Not to send actual code, just log it, easy for development and testing
+ * Not to send actual code, just log it, easy for development and testing.
+ * Last channel in order, so it takes every identifier no real channel supports
  */
 @Slf4j
 @Component
-public class LogCodeSenderImpl implements CodeSender {
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class LogCodeSenderImpl implements CodeChannel {
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    @Override
+    public boolean supports(String identifier) {
+        return true;
+    }
 
     /**
      * Record send code to identifier
-     * @param scene scene name
-     * @param identifier identifier(phone or email)
-     * @param code code to send
-     * @param expireMinutes code expire time in minutes
+     * @param batch codes to "send"
+     * @return nothing failed
      */
     @Override
-    public void sendCode(String scene, String identifier, String code, int expireMinutes) {
-        log.info("Sending code [{}] for scene [{}] to identifier [{}], expire in {} minutes",
-                code, scene, identifier, expireMinutes);
+    public List<CodeMessage> send(List<CodeMessage> batch) {
+        for (CodeMessage m : batch) {
+            log.info("Sending code [{}] for scene [{}] to identifier [{}], expire in {} minutes",
+                    m.code(), m.scene(), m.identifier(), m.expireMinutes());
+        }
+        return List.of();
     }
 }
@@ -0,0 +1,79 @@
+package com.star.share.auth.verification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mail channel: plain text codes over {@code spring.mail.*} SMTP, one connection per batch.
+ *
+ * <p>Enabled with {@code auth.code.mail.enabled=true}; for local runs point {@code spring.mail.host}
+ * at the stand-in from {@code scripts/dev/local_smtp.sh}.</p>
+ */
+@Component
+@Order(0)
+@ConditionalOnProperty(name = "auth.code.mail.enabled", havingValue = "true")
+public class MailCodeChannel implements CodeChannel {
+
+    private final JavaMailSender mailSender;
+    private final String from;
+    private final String subject;
+
+    public MailCodeChannel(JavaMailSender mailSender,
+                           @Value("${auth.code.mail.from:no-reply@sharestar.local}") String from,
+                           @Value("${auth.code.mail.subject:Your ShareStar verification code}") String subject) {
+        this.mailSender = mailSender;
+        this.from = from;
+        this.subject = subject;
+    }
+
+    @Override
+    public String name() {
+        return "mail";
+    }
+
+    @Override
+    public boolean supports(String identifier) {
+        return identifier != null && identifier.indexOf('@') > 0;
+    }
+
+    @Override
+    public List<CodeMessage> send(List<CodeMessage> batch) {
+        SimpleMailMessage[] mails = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            CodeMessage m = batch.get(i);
+            SimpleMailMessage mail = new SimpleMailMessage();
+            mail.setFrom(from);
+            mail.setTo(m.identifier());
+            mail.setSubject(subject);
+            mail.setText("Your verification code is " + m.code() + ", valid for " + m.expireMinutes()
+                    + " minutes.");
+            mails[i] = mail;
+        }
+        try {
+            mailSender.send(mails);
+            return List.of();
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                throw e; // connection level failure, nothing was sent
+            }
+            // Failed messages are keyed by the SimpleMailMessage we passed in
+            List<CodeMessage> retry = new ArrayList<>();
+            for (int i = 0; i < mails.length; i++) {
+                if (failed.containsKey(mails[i])) {
+                    retry.add(batch.get(i));
+                }
+            }
+            return retry;
+        }
+    }
+}
@@ -16,8 +16,10 @@ public interface VerificationCodeRepository {
      * @param code verification code
      * @param ttl duration
      * @param maxAttempts
+     * @param lockout how long the identifier stays locked after maxAttempts failed guesses
+     * @return false when the identifier is still locked out and no code was saved
      */
-    void saveCode(String scene, String identifier, String code, Duration ttl, int maxAttempts);
+    boolean saveCode(String scene, String identifier, String code, Duration ttl, int maxAttempts, Duration lockout);
 
     /**
      * Verify code
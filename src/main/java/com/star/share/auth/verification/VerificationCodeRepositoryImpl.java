@@ -4,31 +4,33 @@ import com.star.share.auth.enumerate.VerificationCodeStatus;
 import com.star.share.auth.pojo.VerificationCheckResult;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.RedisSystemException;
-import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.Objects;
+import java.util.List;
 
 /**
  * Base on Redis for implementing interface of VerificationCodeRepo
  *
  * <p>
- *     Using Hash map to store 'code', 'maxAttempts', 'attempts', TTL
+ *     Using Hash map to store 'code', 'maxAttempts', 'attempts', 'lockMs', TTL.
+ *     Save and verify are each one Lua script: the comparison, attempt increment, lockout and TTL
+ *     happen atomically, so concurrent guesses cannot use more than maxAttempts.
  */
 @Component
 public class VerificationCodeRepositoryImpl implements VerificationCodeRepository{
 
-    private static final String FIELD_CODE = "code";
-    private static final String FIELD_MAX_ATTEMPTS = "maxAttempts";
-    private static final String FIELD_ATTEMPTS = "attempts";
-
     private final StringRedisTemplate redisTemplate;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> verifyScript;
+    private final DefaultRedisScript<Long> saveScript;
 
     public VerificationCodeRepositoryImpl(StringRedisTemplate redisTemplate){
         this.redisTemplate = redisTemplate;
+        this.verifyScript = new DefaultRedisScript<>(VERIFY_LUA, List.class);
+        this.saveScript = new DefaultRedisScript<>(SAVE_LUA, Long.class);
     }
 
     // Helper function
@@ -42,79 +44,49 @@ public class VerificationCodeRepositoryImpl implements VerificationCodeRepositor
         return "auth:code:%s:%s".formatted(scene,identifier);
     }
     /**
-     * parse string value, if failure return default value
-     * @param value string
-     * @param defaultValue default value
-     * @return INT
-     */
-    private static int parseInt(String value, int defaultValue){
-        if(value == null){
-            return defaultValue;
-        }
-        try{
-            return Integer.parseInt(value);
-        }catch (NumberFormatException e){
-            return defaultValue;
-        }
-    }
-
-    /**
-     * Save verification code to Redis Hash and set TTL
+     * Save verification code to Redis Hash and set TTL, in one script
      * @param scene scene name
      * @param identifier phone number or email address
      * @param code verification code
      * @param ttl duration
      * @param maxAttempts
+     * @param lockout how long the key stays locked after the last allowed attempt failed
+     * @return false when the identifier is still locked out
      */
     @Override
-    public void saveCode(String scene, String identifier, String code, Duration ttl, int maxAttempts) {
-        String key = buildKey(scene, identifier);
-        HashOperations<String, String, String> ops = redisTemplate.opsForHash();
+    public boolean saveCode(String scene, String identifier, String code, Duration ttl, int maxAttempts,
+                            Duration lockout) {
         try{
-            ops.put(key, FIELD_CODE, code);
-            ops.put(key, FIELD_MAX_ATTEMPTS, String.valueOf(maxAttempts));
-            ops.put(key, FIELD_ATTEMPTS, "0");
+            Long saved = redisTemplate.execute(saveScript, List.of(buildKey(scene, identifier)),
+                    code, String.valueOf(maxAttempts), String.valueOf(ttl.toMillis()),
+                    String.valueOf(lockout.toMillis()));
+            return saved != null && saved == 1L;
         } catch (DataAccessException e){
             throw new RedisSystemException("Failed to save verification code", e);
         }
     }
 
     /**
-     * Verification code is math, update the counter of attempts
+     * Check the code and count the attempt in one script, so parallel guesses cannot exceed maxAttempts
      * @param scene scene name
      * @param identifier phone number or email address
      * @param code verification code
-     * @return
+     * @return status with the attempts used so far and the allowed maximum
      */
     @Override
+    @SuppressWarnings("unchecked")
     public VerificationCheckResult verify(String scene, String identifier, String code) {
-        String key = buildKey(scene, identifier);
-        HashOperations<String,String,String> ops = redisTemplate.opsForHash();
-        Map<String,String> data = ops.entries(key);
-        if(data.isEmpty()){
-            return new VerificationCheckResult(VerificationCodeStatus.NOT_FOUND,0,0);
+        List<Long> res = redisTemplate.execute(verifyScript, List.of(buildKey(scene, identifier)), code);
+        if (res == null || res.size() < 3) {
+            return new VerificationCheckResult(VerificationCodeStatus.NOT_FOUND, 0, 0);
         }
-        String storedCode = data.get(FIELD_CODE);
-        int maxAttempts = parseInt(data.get(FIELD_MAX_ATTEMPTS), 5);
-        int attempts = parseInt(data.get(FIELD_ATTEMPTS),0);
-
-        if(attempts >= maxAttempts){
-            return new VerificationCheckResult(VerificationCodeStatus.TOO_MANY_ATTEMPTS,attempts, maxAttempts);
-        }
-
-        if (Objects.equals(storedCode, code)){
-            redisTemplate.delete(key);
-            return new VerificationCheckResult(VerificationCodeStatus.SUCCESS, attempts, maxAttempts);
-        }
-
-        int updatedAttempts = attempts + 1;
-        ops.put(key, FIELD_ATTEMPTS, String.valueOf(updatedAttempts));
-        if(updatedAttempts >= maxAttempts){
-            redisTemplate.expire(key, Duration.ofMinutes(39));
-            return new VerificationCheckResult(VerificationCodeStatus.TOO_MANY_ATTEMPTS, updatedAttempts, maxAttempts);
-        }
-
-        return new VerificationCheckResult(VerificationCodeStatus.MISMATCH, updatedAttempts, attempts);
+        VerificationCodeStatus status = switch (res.get(0).intValue()) {
+            case 1 -> VerificationCodeStatus.SUCCESS;
+            case 2 -> VerificationCodeStatus.MISMATCH;
+            case 3 -> VerificationCodeStatus.TOO_MANY_ATTEMPTS;
+            default -> VerificationCodeStatus.NOT_FOUND;
+        };
+        return new VerificationCheckResult(status, res.get(1).intValue(), res.get(2).intValue());
     }
 
     /**
@@ -127,4 +99,36 @@ public class VerificationCodeRepositoryImpl implements VerificationCodeRepositor
         redisTemplate.delete(buildKey(scene, identifier));
     }
 
+    // KEYS[1] code hash; ARGV: code, max attempts, ttl ms, lockout ms.
+    // Refuses (0) while a previous code is locked out, otherwise replaces the hash and sets its TTL.
+    private static final String SAVE_LUA = """
+            local v = redis.call('HMGET', KEYS[1], 'maxAttempts', 'attempts')
+            if v[1] and (tonumber(v[2]) or 0) >= tonumber(v[1]) then return 0 end
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], 'code', ARGV[1], 'maxAttempts', ARGV[2], 'attempts', '0', 'lockMs', ARGV[4])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """;
+
+    // KEYS[1] code hash; ARGV: code.
+    // Returns {status, attempts, maxAttempts}; status 0 not found, 1 success, 2 mismatch, 3 locked out.
+    private static final String VERIFY_LUA = """
+            local v = redis.call('HMGET', KEYS[1], 'code', 'maxAttempts', 'attempts', 'lockMs')
+            if not v[2] then return {0, 0, 0} end
+            local max = tonumber(v[2])
+            local attempts = tonumber(v[3]) or 0
+            if attempts >= max then return {3, attempts, max} end
+            if v[1] == ARGV[1] then
+              redis.call('DEL', KEYS[1])
+              return {1, attempts, max}
+            end
+            attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1)
+            if attempts >= max then
+              redis.call('HDEL', KEYS[1], 'code')
+              redis.call('PEXPIRE', KEYS[1], tonumber(v[4]) or 1800000)
+              return {3, attempts, max}
+            end
+            return {2, attempts, max}
+            """;
+
 }
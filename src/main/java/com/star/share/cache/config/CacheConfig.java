@@ -1,8 +1,42 @@
 package com.star.share.cache.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.star.share.cache.hotkey.HotKeyDetector;
+import com.star.share.posts.entity.vo.FeedPageResponse;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
+/**
+ * Local (Caffeine) feed page caches and the hot key detector.
+ */
 @Configuration
+@EnableConfigurationProperties(CacheProperties.class)
 public class CacheConfig {
 
+    @Bean
+    public HotKeyDetector hotKeyDetector(CacheProperties properties) {
+        return new HotKeyDetector(properties);
+    }
+
+    @Bean("feedPublicCache")
+    public Cache<String, FeedPageResponse> feedPublicCache(CacheProperties properties) {
+        CacheProperties.PublicCfg cfg = properties.getL2().getPublicCfg();
+        return Caffeine.newBuilder()
+                .maximumSize(cfg.getMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(cfg.getTtlSeconds()))
+                .build();
+    }
+
+    @Bean("feedMineCache")
+    public Cache<String, FeedPageResponse> feedMineCache(CacheProperties properties) {
+        CacheProperties.MineCfg cfg = properties.getL2().getMineCfg();
+        return Caffeine.newBuilder()
+                .maximumSize(cfg.getMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(cfg.getTtlSeconds()))
+                .build();
+    }
 }
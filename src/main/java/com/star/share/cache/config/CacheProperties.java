@@ -1,10 +1,14 @@
 package com.star.share.cache.config;
 
 import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
 @Data
+@ConfigurationProperties(prefix = "cache")
 public class CacheProperties {
     private L2 l2 = new L2();
     private HotKey hotKey = new HotKey();
+    private Warmup warmup = new Warmup();
 
     @Data
     public static class L2 {
@@ -63,4 +67,27 @@ public class CacheProperties {
         private int extendHighSeconds = 120;
     }
 
+    @Data
+    public static class Warmup {
+        // Whether to preload caches before the instance starts accepting traffic.
+        private boolean enabled = true;
+
+        // Number of public feed pages to preload, starting from page 1.
+        private int feedPages = 3;
+
+        // Page size of the preloaded feed pages, should match the client default.
+        private int feedPageSize = 10;
+
+        // Number of hot posts (from the persisted hot-key snapshot) whose detail and
+        // counters are preloaded.
+        private int hotPosts = 100;
+
+        // Total warm-up time budget (milliseconds). Startup continues once it is
+        // exhausted, whatever is left stays cold.
+        private long budgetMillis = 5000;
+
+        // How many of the hottest keys each instance persists to the shared snapshot.
+        private int snapshotSize = 200;
+    }
+
 }
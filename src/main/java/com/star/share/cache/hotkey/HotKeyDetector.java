@@ -1,6 +1,8 @@
 package com.star.share.cache.hotkey;
 
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -57,6 +59,20 @@ public class HotKeyDetector {
         return sum;
     }
 
+    /**
+     * Hottest keys starting with the given prefix within the current window,
+     * ordered by heat descending.
+     */
+    public List<Map.Entry<String, Integer>> hottest(String prefix, int limit) {
+        return counters.keySet().stream()
+                .filter(k -> k.startsWith(prefix))
+                .map(k -> Map.entry(k, heat(k)))
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .toList();
+    }
+
     public Level level(String key) {
         int heat = heat(key);
         if (heat >= cacheProperties.getHotKey().getLevelHigh()) {
@@ -0,0 +1,236 @@
+package com.star.share.cache.warmup;
+
+import com.star.share.cache.config.CacheProperties;
+import com.star.share.cache.hotkey.HotKeyDetector;
+import com.star.share.posts.entity.vo.FeedPageResponse;
+import com.star.share.posts.service.PostFeedService;
+import com.star.share.posts.service.PostService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Preloads the local and Redis caches before the instance starts serving traffic.
+ *
+ * <p>Warm-up runs as a {@link SmartLifecycle} in an early phase, so the embedded web
+ * server is started (and readiness reported) only after it returns:</p>
+ * - the first N public feed pages (L1 Caffeine + Redis page/item keys + counter near cache);
+ * - the hottest post details from the shared hot-key snapshot, together with their counters.
+ *
+ * <p>Warm-up runs on its own thread, not on {@code taskExecutor}: the feed and detail reads fan
+ * out on that pool themselves and must not wait on it from inside one of its tasks.</p>
+ *
+ * <p>The whole stage is bounded by {@code cache.warmup.budget-millis}; when the budget is
+ * exhausted startup continues and the rest stays cold. Every instance periodically persists
+ * its hottest post keys to the snapshot so a freshly deployed instance knows what to load.</p>
+ */
+@Slf4j
+@Component
+public class CacheWarmupService implements SmartLifecycle {
+
+    private static final String SNAPSHOT_KEY = "hotkey:snapshot:post";
+    private static final String POST_KEY_PREFIX = "post:";
+    private static final String DETAIL_KEY_PREFIX = "post:detail";
+
+    private final CacheProperties cacheProperties;
+    private final HotKeyDetector hotKey;
+    private final StringRedisTemplate redis;
+    private final PostFeedService postFeedService;
+    private final PostService postService;
+    private volatile boolean running;
+    private volatile boolean aborted;
+
+    public CacheWarmupService(CacheProperties cacheProperties,
+                              HotKeyDetector hotKey,
+                              StringRedisTemplate redis,
+                              PostFeedService postFeedService,
+                              PostService postService) {
+        this.cacheProperties = cacheProperties;
+        this.hotKey = hotKey;
+        this.redis = redis;
+        this.postFeedService = postFeedService;
+        this.postService = postService;
+    }
+
+    /**
+     * Run the warm-up within the configured budget. Blocks the lifecycle start so the
+     * instance is not reported ready while its caches are still empty.
+     */
+    @Override
+    public void start() {
+        running = true;
+        CacheProperties.Warmup cfg = cacheProperties.getWarmup();
+        if (!cfg.isEnabled()) {
+            log.info("cache.warmup skipped because it's disabled");
+            return;
+        }
+
+        aborted = false;
+        long begin = System.currentTimeMillis();
+        CompletableFuture<WarmupResult> task = CompletableFuture.supplyAsync(() -> warm(cfg),
+                r -> Thread.ofPlatform().name("cache-warmup").daemon().start(r));
+        try {
+            WarmupResult result = task.get(cfg.getBudgetMillis(), TimeUnit.MILLISECONDS);
+            log.info("cache.warmup done feedPages={} hotPosts={} costMs={}",
+                    result.feedPages(), result.hotPosts(), System.currentTimeMillis() - begin);
+        } catch (TimeoutException e) {
+            // Let the worker stop at the next item, the remaining keys are loaded lazily by traffic
+            aborted = true;
+            log.warn("cache.warmup budget exhausted budgetMs={}, continuing startup", cfg.getBudgetMillis());
+        } catch (InterruptedException e) {
+            aborted = true;
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("cache.warmup failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        aborted = true;
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start before the embedded web server and the Kafka listener containers.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Persist this instance's hottest post ids into the shared snapshot ZSET (score = heat),
+     * trimmed to the configured size so the snapshot keeps the hottest posts across instances.
+     */
+    @Scheduled(fixedDelayString = "${cache.warmup.snapshot-interval-ms:30000}")
+    public void persistHotSnapshot() {
+        int size = cacheProperties.getWarmup().getSnapshotSize();
+        List<Map.Entry<String, Integer>> hottest = hotKey.hottest(POST_KEY_PREFIX, size);
+        if (hottest.isEmpty()) {
+            return;
+        }
+
+        // Feed items and detail pages of the same post are recorded under different keys
+        Map<String, Double> heatById = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : hottest) {
+            Long postId = postIdOf(e.getKey());
+            if (postId != null) {
+                heatById.merge(String.valueOf(postId), e.getValue().doubleValue(), Double::sum);
+            }
+        }
+        if (heatById.isEmpty()) {
+            return;
+        }
+
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        heatById.forEach((id, heat) -> tuples.add(new DefaultTypedTuple<>(id, heat)));
+        try {
+            redis.opsForZSet().add(SNAPSHOT_KEY, tuples);
+            redis.opsForZSet().removeRange(SNAPSHOT_KEY, 0, -(size + 1L));
+            redis.expire(SNAPSHOT_KEY, Duration.ofHours(1));
+        } catch (Exception e) {
+            log.warn("cache.warmup snapshot persist failed: {}", e.getMessage());
+        }
+    }
+
+    private WarmupResult warm(CacheProperties.Warmup cfg) {
+        int pages = 0;
+        for (int page = 1; page <= cfg.getFeedPages() && !aborted; page++) {
+            try {
+                FeedPageResponse resp = postFeedService.getFeed(page, cfg.getFeedPageSize(), null);
+                pages++;
+                if (!resp.hasMore()) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.warn("cache.warmup feed page={} failed: {}", page, e.getMessage());
+                break;
+            }
+        }
+
+        int posts = 0;
+        for (Long postId : loadHotPostIds(cfg.getHotPosts())) {
+            if (aborted) {
+                break;
+            }
+            try {
+                // Fills the Redis detail page and the counter near cache
+                postService.getDetail(postId, null);
+                posts++;
+            } catch (Exception ignored) {
+                // Deleted or private posts simply stay cold
+            }
+        }
+        return new WarmupResult(pages, posts);
+    }
+
+    private List<Long> loadHotPostIds(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Set<String> members;
+        try {
+            members = redis.opsForZSet().reverseRange(SNAPSHOT_KEY, 0, limit - 1L);
+        } catch (Exception e) {
+            log.warn("cache.warmup snapshot read failed: {}", e.getMessage());
+            return List.of();
+        }
+        if (members == null || members.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(members.size());
+        for (String m : members) {
+            try {
+                ids.add(Long.valueOf(m));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Resolve the post id from a hot key: "post:{id}" (feed item) or "post:detail{id}:v{n}" (detail page).
+     */
+    private static Long postIdOf(String key) {
+        String rest;
+        if (key.startsWith(DETAIL_KEY_PREFIX)) {
+            rest = key.substring(DETAIL_KEY_PREFIX.length());
+            int colon = rest.indexOf(':');
+            if (colon >= 0) {
+                rest = rest.substring(0, colon);
+            }
+        } else {
+            rest = key.substring(POST_KEY_PREFIX.length());
+        }
+        try {
+            return Long.valueOf(rest);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record WarmupResult(int feedPages, int hotPosts) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.star.share.common.concurrent;
+
+import com.star.share.common.exception.BusinessException;
+import com.star.share.common.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Structured fan-out of independent lookups over the shared task executor.
+ *
+ * <p>All tasks but the last are submitted to {@code taskExecutor}, the last one runs on
+ * the calling thread. The call returns when every task has finished, so the latency is
+ * the slowest lookup rather than the sum of all of them:</p>
+ * - a single deadline covers the whole group;
+ * - the first failure or the deadline cancels (interrupts) the tasks still running;
+ * - a task cancelled by the deadline yields null, so callers degrade (e.g. unknown counts)
+ *   instead of failing the request;
+ * - results keep the order of the tasks.
+ *
+ * <p>Only fan out from request threads, never from inside a task, so a bounded pool
+ * can not end up waiting on its own queue.</p>
+ */
+@Slf4j
+@Component
+public class FanOut {
+
+    private final AsyncTaskExecutor executor;
+    private final Duration defaultDeadline;
+
+    public FanOut(@Qualifier("taskExecutor") AsyncTaskExecutor executor,
+                  @Value("${fanout.deadline-ms:500}") long deadlineMs) {
+        this.executor = executor;
+        this.defaultDeadline = Duration.ofMillis(deadlineMs);
+    }
+
+    /**
+     * Run two independent lookups concurrently and combine their results.
+     */
+    public <A, B, R> R both(Supplier<A> first, Supplier<B> second, BiFunction<A, B, R> combiner) {
+        return both(first, second, combiner, defaultDeadline);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <A, B, R> R both(Supplier<A> first, Supplier<B> second, BiFunction<A, B, R> combiner,
+                            Duration deadline) {
+        List<Object> results = all(List.<Supplier<?>>of(first, second), deadline);
+        return combiner.apply((A) results.get(0), (B) results.get(1));
+    }
+
+    /**
+     * Run independent lookups concurrently, results in task order; null for a lookup past the deadline.
+     */
+    public <T> List<T> all(List<? extends Supplier<? extends T>> tasks) {
+        return all(tasks, defaultDeadline);
+    }
+
+    public <T> List<T> all(List<? extends Supplier<? extends T>> tasks, Duration deadline) {
+        int n = tasks.size();
+        if (n == 0) {
+            return List.of();
+        }
+        if (n == 1) {
+            return Collections.singletonList(tasks.getFirst().get());
+        }
+
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        List<Future<T>> futures = new ArrayList<>(n - 1);
+        try {
+            for (int i = 0; i < n - 1; i++) {
+                Callable<T> call = tasks.get(i)::get;
+                futures.add(executor.submit(call));
+            }
+
+            // The caller would only wait otherwise, let it run the last lookup itself
+            T last = tasks.get(n - 1).get();
+
+            List<T> results = new ArrayList<>(n);
+            int late = 0;
+            for (Future<T> f : futures) {
+                long remaining = deadlineNanos - System.nanoTime();
+                try {
+                    results.add(f.get(Math.max(remaining, 0L), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    f.cancel(true);
+                    results.add(null);
+                    late++;
+                }
+            }
+            if (late > 0) {
+                log.warn("fanout {} of {} lookups missed the {}ms deadline", late, n, deadline.toMillis());
+            }
+            results.add(last);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.INTERNAL_SERVER_ERROR, "Lookups interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            // No-op for completed futures, interrupts the stragglers after a failure or timeout
+            for (Future<T> f : futures) {
+                f.cancel(true);
+            }
+        }
+    }
+}
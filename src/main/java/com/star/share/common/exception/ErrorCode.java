@@ -17,7 +17,8 @@ public enum ErrorCode {
     TERMS_NOT_ACCEPTED("TERMS_NOT_ACCEPTED", "terms of service not accepted"),
     REFRESH_TOKEN_INVALID("REFRESH_TOKEN_INVALID", "refresh token invalid"),
     INTERNAL_SERVER_ERROR("INTERNAL_SERVER_ERROR", "internal server error"),
-    INVALID_CREDENTIALS("INVALID_CREDENTIALS", "invalid credentials");
+    INVALID_CREDENTIALS("INVALID_CREDENTIALS", "invalid credentials"),
+    AUTH_BUSY("AUTH_BUSY", "too many authentication requests, please retry later");
 
 
 
@@ -0,0 +1,38 @@
+package com.star.share.common.ratelimit;
+
+/**
+ * A token bucket: {@code capacity} permits of burst, refilled at {@code refillPerSecond}.
+ *
+ * @param name            limiter name, used in Redis keys and as the metric tag
+ * @param capacity        bucket size (burst)
+ * @param refillPerSecond steady rate
+ * @param mode            where the bucket lives
+ */
+public record RateLimitRule(String name, long capacity, double refillPerSecond, Mode mode) {
+
+    public enum Mode {
+        /**
+         * Per-instance bucket, counts reconciled with Redis in the background; the global limit
+         * is approximate (may overshoot by one reconcile interval). For high-volume actions.
+         */
+        LOCAL_FIRST,
+        /**
+         * Bucket in Redis, checked and taken by one script per call. For security-sensitive actions.
+         */
+        EXACT
+    }
+
+    public RateLimitRule {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit rule " + name);
+        }
+    }
+
+    public static RateLimitRule localFirst(String name, long capacity, double refillPerSecond) {
+        return new RateLimitRule(name, capacity, refillPerSecond, Mode.LOCAL_FIRST);
+    }
+
+    public static RateLimitRule exact(String name, long capacity, double refillPerSecond) {
+        return new RateLimitRule(name, capacity, refillPerSecond, Mode.EXACT);
+    }
+}
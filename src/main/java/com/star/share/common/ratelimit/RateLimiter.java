@@ -0,0 +1,241 @@
+package com.star.share.common.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared rate limiter with two tiers, chosen per {@link RateLimitRule}.
+ *
+ * <p>{@link RateLimitRule.Mode#LOCAL_FIRST}:</p>
+ * - each instance keeps one token bucket per (rule, subject) in memory, a call never touches Redis;
+ * - every {@code ratelimit.reconcile-interval-ms} the permits taken since the last round are added to
+ *   a fixed-window counter in Redis ({@code ratelimit.global-window-seconds}), one pipeline for all;
+ * - once the cluster-wide count of a window exceeds {@code capacity + refill * window}, the subject
+ *   is blocked locally until the window ends.
+ *
+ * <p>{@link RateLimitRule.Mode#EXACT}: one Lua call checks every given bucket and takes a permit
+ * from all of them or from none, read and written with a single HMGET/HSET per bucket.</p>
+ *
+ * <p>Rejections are counted in {@code ratelimit.rejected{limiter=<rule name>}}.</p>
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    private final StringRedisTemplate redis;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, LocalBucket> buckets;
+    private final Map<String, LocalBucket> dirty = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+    private final long windowSeconds;
+
+    public RateLimiter(StringRedisTemplate redis,
+                       MeterRegistry meterRegistry,
+                       @Value("${ratelimit.global-window-seconds:60}") long windowSeconds,
+                       @Value("${ratelimit.local-max-subjects:100000}") long maxSubjects) {
+        this.redis = redis;
+        this.meterRegistry = meterRegistry;
+        this.windowSeconds = Math.max(windowSeconds, 1);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxSubjects)
+                .expireAfterAccess(Duration.ofSeconds(this.windowSeconds * 2))
+                .build();
+    }
+
+    /**
+     * Take one permit for {@code subject}.
+     *
+     * @return false when the subject is over the limit
+     */
+    public boolean tryAcquire(RateLimitRule rule, String subject) {
+        if (rule.mode() == RateLimitRule.Mode.EXACT) {
+            return rejectedBy(List.of(rule), subject) == null;
+        }
+        String id = rule.name() + ":" + subject;
+        LocalBucket bucket = buckets.get(id, k -> new LocalBucket(rule, subject));
+        if (bucket.tryTake()) {
+            dirty.put(id, bucket);
+            return true;
+        }
+        reject(rule);
+        return false;
+    }
+
+    /**
+     * Take one permit from every rule for {@code subject} atomically (exact mode).
+     *
+     * @return null when allowed, otherwise the first rule that rejected the call
+     */
+    public RateLimitRule rejectedBy(List<RateLimitRule> rules, String subject) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        byte[][] keysAndArgs = new byte[rules.size() * 3][];
+        for (int i = 0; i < rules.size(); i++) {
+            RateLimitRule rule = rules.get(i);
+            // One hash tag per subject, so all buckets of the call share a cluster slot
+            keysAndArgs[i] = bytes("rl:" + rule.name() + ":{" + subject + "}");
+            keysAndArgs[rules.size() + 2 * i] = bytes(String.valueOf(rule.capacity()));
+            keysAndArgs[rules.size() + 2 * i + 1] = bytes(String.valueOf(rule.refillPerSecond()));
+        }
+        Long res = redis.execute((RedisCallback<Long>) c -> c.scriptingCommands()
+                .eval(bytes(EXACT_LUA), ReturnType.INTEGER, rules.size(), keysAndArgs));
+        if (res == null || res == 0L) {
+            return null;
+        }
+        RateLimitRule rule = rules.get(res.intValue() - 1);
+        reject(rule);
+        return rule;
+    }
+
+    /**
+     * Push the permits taken locally to the shared window counters and block subjects that went
+     * over the global limit.
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<LocalBucket> batch = new ArrayList<>(dirty.size());
+        List<Long> taken = new ArrayList<>(dirty.size());
+        for (String id : dirty.keySet()) {
+            LocalBucket bucket = dirty.remove(id);
+            if (bucket != null) {
+                batch.add(bucket);
+                taken.add(bucket.drainPending());
+            }
+        }
+
+        long window = System.currentTimeMillis() / 1000 / windowSeconds;
+        long windowEndMs = (window + 1) * windowSeconds * 1000;
+        try {
+            List<Object> results = redis.executePipelined((RedisCallback<Object>) c -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    LocalBucket b = batch.get(i);
+                    byte[] key = bytes("rl:g:" + b.rule.name() + ":{" + b.subject + "}:" + window);
+                    c.stringCommands().incrBy(key, taken.get(i));
+                    c.keyCommands().expire(key, windowSeconds * 2);
+                }
+                return null;
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                LocalBucket b = batch.get(i);
+                Object total = results.get(2 * i);
+                double allowed = b.rule.capacity() + b.rule.refillPerSecond() * windowSeconds;
+                if (total instanceof Long n && n > allowed) {
+                    b.blockUntil(windowEndMs);
+                }
+            }
+        } catch (Exception e) {
+            // Local limits keep applying; the counts are retried next round
+            log.warn("Rate limit reconcile failed for {} subjects: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                LocalBucket b = batch.get(i);
+                b.restorePending(taken.get(i));
+                dirty.put(b.rule.name() + ":" + b.subject, b);
+            }
+        }
+    }
+
+    private void reject(RateLimitRule rule) {
+        rejected.computeIfAbsent(rule.name(), name -> Counter.builder("ratelimit.rejected")
+                .description("Calls rejected by a rate limiter")
+                .tag("limiter", name)
+                .register(meterRegistry)).increment();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * In-memory token bucket of one subject, plus the permits not yet reported to Redis.
+     */
+    private static final class LocalBucket {
+        private final RateLimitRule rule;
+        private final String subject;
+        private double tokens;
+        private long lastNanos;
+        private long pending;
+        private volatile long blockedUntilMs;
+
+        LocalBucket(RateLimitRule rule, String subject) {
+            this.rule = rule;
+            this.subject = subject;
+            this.tokens = rule.capacity();
+            this.lastNanos = System.nanoTime();
+        }
+
+        synchronized boolean tryTake() {
+            if (blockedUntilMs > System.currentTimeMillis()) {
+                return false;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(rule.capacity(), tokens + (now - lastNanos) / 1e9 * rule.refillPerSecond());
+            lastNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            pending++;
+            return true;
+        }
+
+        synchronized long drainPending() {
+            long n = pending;
+            pending = 0;
+            return n;
+        }
+
+        synchronized void restorePending(long n) {
+            pending += n;
+        }
+
+        void blockUntil(long epochMs) {
+            blockedUntilMs = epochMs;
+        }
+    }
+
+    // KEYS: one bucket hash per rule; ARGV: capacity, refill per second for each rule.
+    // Returns 0 when a permit was taken from every bucket, else the 1-based index of the empty one.
+    private static final String EXACT_LUA = """
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+            local tokens = {}
+            for i = 1, #KEYS do
+              local cap = tonumber(ARGV[2 * i - 1])
+              local rate = tonumber(ARGV[2 * i])
+              local v = redis.call('HMGET', KEYS[i], 'tokens', 'ts')
+              local tk = tonumber(v[1])
+              local ts = tonumber(v[2])
+              if not tk then tk = cap; ts = now end
+              tk = math.min(cap, tk + math.max(0, now - ts) * rate / 1000)
+              if tk < 1 then return i end
+              tokens[i] = tk
+            end
+            for i = 1, #KEYS do
+              local cap = tonumber(ARGV[2 * i - 1])
+              local rate = tonumber(ARGV[2 * i])
+              redis.call('HSET', KEYS[i], 'tokens', tostring(tokens[i] - 1), 'ts', tostring(now))
+              redis.call('PEXPIRE', KEYS[i], math.ceil(cap / rate * 1000) + 1000)
+            end
+            return 0
+            """;
+}
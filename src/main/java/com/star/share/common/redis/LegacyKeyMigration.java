@@ -0,0 +1,414 @@
+package com.star.share.common.redis;
+
+import com.star.share.auth.token.RefreshTokenRepoImpl;
+import com.star.share.counter.schema.CounterKeys;
+import com.star.share.counter.schema.CounterSchema;
+import com.star.share.counter.schema.UserCounterKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One-off move of the keys written before the slot-aware layout into their hash-tagged names:
+ * - counter blobs and aggregation hashes {@code cnt|agg:v1:<type>:<id>} -> {@code cnt|agg:v1:{<type>:<id>}};
+ * - like/fav bitmaps {@code bm:<metric>:<type>:<id>:<chunk>} -> {@code bm:<metric>:{<type>:<id>}:<chunk>};
+ * - user counters {@code ucnt:<uid>} -> {@code ucnt:{<uid>}};
+ * - refresh tokens {@code auth:rt:<uid>:<jti>} -> a field of {@code auth:rt:{<uid>}}.
+ * Feed keys are caches and are simply rebuilt on miss.
+ *
+ * <p>Each old key is taken (read and deleted in one script) and merged into the new key, never
+ * overwriting it: counter fields are added, bitmaps OR-ed, aggregation deltas HINCRBY-ed, tokens
+ * added with their remaining TTL. Writes that reached the new key first, and writes old instances
+ * still make to old keys during a rolling deploy, are therefore kept; such late old keys are picked
+ * up by the next pass. If a merge fails the value is merged back into the old key.</p>
+ *
+ * <p>Runs under {@code redis:key-migration:v1:lock} with per-master SCANs:</p>
+ * - once at startup, before the web server and the cache warm-up, so the first new instance
+ *   serves migrated data;
+ * - again every {@code redis.key-migration.interval-ms} until {@code redis.key-migration.quiet-passes}
+ *   passes in a row found nothing, then {@code redis:key-migration:v1:done} stops it everywhere.
+ * Set {@code redis.key-migration.enabled=false} once the marker exists.
+ */
+@Slf4j
+@Component
+public class LegacyKeyMigration implements SmartLifecycle {
+
+    private static final String DONE_KEY = "redis:key-migration:v1:done";
+    private static final String LOCK_KEY = "redis:key-migration:v1:lock";
+    private static final Pattern COUNTER = Pattern.compile("^(cnt|agg):" + CounterSchema.SCHEMA_ID + ":([^:{}]+):([^{}]+)$");
+    private static final Pattern BITMAP = Pattern.compile("^bm:([^:{}]+):([^:{}]+):([^{}]+):(\\d+)$");
+    private static final Pattern USER_COUNTER = Pattern.compile("^ucnt:(\\d+)$");
+    private static final Pattern REFRESH_TOKEN = Pattern.compile("^auth:rt:(\\d+):([^{}]+)$");
+
+    private final StringRedisTemplate redis;
+    private final RedisKeyScanner keyScanner;
+    private final RedissonClient redisson;
+    private final TaskExecutor taskExecutor;
+    private final boolean enabled;
+    private final long startupWaitMs;
+    private final int quietPasses;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private int quiet;
+    private volatile boolean done;
+    private volatile boolean running;
+
+    public LegacyKeyMigration(StringRedisTemplate redis,
+                              RedisKeyScanner keyScanner,
+                              RedissonClient redisson,
+                              @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                              @Value("${redis.key-migration.enabled:true}") boolean enabled,
+                              @Value("${redis.key-migration.startup-wait-ms:600000}") long startupWaitMs,
+                              @Value("${redis.key-migration.quiet-passes:3}") int quietPasses) {
+        this.redis = redis;
+        this.keyScanner = keyScanner;
+        this.redisson = redisson;
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.startupWaitMs = startupWaitMs;
+        this.quietPasses = Math.max(1, quietPasses);
+    }
+
+    /**
+     * First pass, blocking startup; another instance already migrating is waited for.
+     */
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled || isDone()) {
+            return;
+        }
+        RLock lock = redisson.getLock(LOCK_KEY);
+        try {
+            if (!lock.tryLock(startupWaitMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Key migration still running elsewhere, starting without waiting for it");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            record(migrate());
+        } catch (Exception e) {
+            log.error("Key migration pass failed, retried in the background", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Before the cache warm-up (phase 0), which already reads counters
+        return -100;
+    }
+
+    /**
+     * Follow-up passes for keys old instances wrote during the rollout, off the scheduler thread.
+     */
+    @Scheduled(fixedDelayString = "${redis.key-migration.interval-ms:300000}")
+    public void recheck() {
+        if (!enabled || !running || isDone() || !busy.compareAndSet(false, true)) {
+            return;
+        }
+        taskExecutor.execute(() -> {
+            RLock lock = redisson.getLock(LOCK_KEY);
+            try {
+                if (lock.tryLock()) {
+                    try {
+                        record(migrate());
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Key migration pass failed", e);
+            } finally {
+                busy.set(false);
+            }
+        });
+    }
+
+    private boolean isDone() {
+        if (!done) {
+            try {
+                done = Boolean.TRUE.equals(redis.hasKey(DONE_KEY));
+            } catch (Exception e) {
+                log.warn("Key migration state check failed: {}", e.getMessage());
+            }
+        }
+        return done;
+    }
+
+    private void record(long moved) {
+        quiet = moved == 0 ? quiet + 1 : 0;
+        if (quiet >= quietPasses) {
+            redis.opsForValue().set(DONE_KEY, String.valueOf(System.currentTimeMillis()));
+            done = true;
+            log.info("Key migration finished, no old keys left");
+        }
+    }
+
+    /**
+     * One pass over every old layout.
+     *
+     * @return number of old keys moved
+     */
+    long migrate() {
+        long start = System.currentTimeMillis();
+        long counters = pass("cnt:" + CounterSchema.SCHEMA_ID + ":*", this::moveCounter)
+                + pass("agg:" + CounterSchema.SCHEMA_ID + ":*", this::moveCounter);
+        long bitmaps = pass("bm:*", this::moveBitmap);
+        long userCounters = pass("ucnt:*", this::moveUserCounter);
+        long tokens = pass("auth:rt:*", this::moveRefreshToken);
+        long total = counters + bitmaps + userCounters + tokens;
+        if (total > 0) {
+            log.info("Key migration moved counters={} bitmaps={} userCounters={} refreshTokens={} in {} ms",
+                    counters, bitmaps, userCounters, tokens, System.currentTimeMillis() - start);
+        }
+        return total;
+    }
+
+    private long pass(String pattern, Predicate<String> move) {
+        AtomicLong moved = new AtomicLong();
+        keyScanner.scan(pattern, key -> {
+            // Tagged keys are already in the new layout
+            if (key.indexOf('{') >= 0) {
+                return;
+            }
+            try {
+                if (move.test(key)) {
+                    moved.incrementAndGet();
+                }
+            } catch (Exception e) {
+                log.error("Key migration of {} failed: {}", key, e.getMessage());
+            }
+        });
+        return moved.get();
+    }
+
+    private boolean moveCounter(String key) {
+        Matcher m = COUNTER.matcher(key);
+        if (!m.matches()) {
+            return false;
+        }
+        if ("agg".equals(m.group(1))) {
+            return moveHash(key, CounterKeys.aggKey(m.group(2), m.group(3)));
+        }
+        return moveValue(key, CounterKeys.sdsKey(m.group(2), m.group(3)), SUM_LUA,
+                String.valueOf(CounterSchema.FIELD_SIZE));
+    }
+
+    private boolean moveBitmap(String key) {
+        Matcher m = BITMAP.matcher(key);
+        if (!m.matches()) {
+            return false;
+        }
+        String target = CounterKeys.bitmapKey(m.group(1), m.group(2), m.group(3), Long.parseLong(m.group(4)));
+        return moveValue(key, target, OR_LUA, "");
+    }
+
+    private boolean moveUserCounter(String key) {
+        Matcher m = USER_COUNTER.matcher(key);
+        if (!m.matches()) {
+            return false;
+        }
+        return moveValue(key, UserCounterKeys.sdsKey(Long.parseLong(m.group(1))), SUM_LUA,
+                String.valueOf(UserCounterKeys.FIELD_SIZE));
+    }
+
+    private boolean moveRefreshToken(String key) {
+        Matcher m = REFRESH_TOKEN.matcher(key);
+        if (!m.matches()) {
+            return false;
+        }
+        Long ttl = redis.execute((RedisCallback<Long>) c -> c.scriptingCommands()
+                .eval(bytes(TAKE_TTL_LUA), ReturnType.INTEGER, 1, bytes(key)));
+        if (ttl == null || ttl <= 0) {
+            return false; // gone or never expiring, nothing valid to keep
+        }
+        long now = System.currentTimeMillis();
+        String target = RefreshTokenRepoImpl.key(Long.parseLong(m.group(1)));
+        try {
+            redis.execute((RedisCallback<Long>) c -> c.scriptingCommands().eval(bytes(TOKEN_LUA),
+                    ReturnType.INTEGER, 1, bytes(target), bytes(m.group(2)), bytes(String.valueOf(now + ttl)),
+                    bytes(String.valueOf(now))));
+        } catch (Exception e) {
+            redis.opsForValue().set(key, "1", ttl, TimeUnit.MILLISECONDS);
+            throw e;
+        }
+        return true;
+    }
+
+    // Take a string value (blob or bitmap) and merge it into the new key with the given script
+    private boolean moveValue(String key, String target, String mergeLua, String arg) {
+        byte[] value = redis.execute((RedisCallback<byte[]>) c -> c.scriptingCommands()
+                .eval(bytes(TAKE_LUA), ReturnType.VALUE, 1, bytes(key)));
+        if (value == null) {
+            return false;
+        }
+        try {
+            merge(mergeLua, target, value, arg);
+        } catch (Exception e) {
+            restore(key, () -> merge(mergeLua, key, value, arg), value);
+            throw e;
+        }
+        return true;
+    }
+
+    private void merge(String mergeLua, String target, byte[] value, String arg) {
+        redis.execute((RedisCallback<Long>) c -> c.scriptingCommands()
+                .eval(bytes(mergeLua), ReturnType.INTEGER, 1, bytes(target), value, bytes(arg)));
+    }
+
+    // Take an aggregation hash and HINCRBY its deltas into the new hash
+    private boolean moveHash(String key, String target) {
+        List<Object> flat = redis.execute((RedisCallback<List<Object>>) c -> c.scriptingCommands()
+                .eval(bytes(TAKE_HASH_LUA), ReturnType.MULTI, 1, bytes(key)));
+        if (flat == null || flat.isEmpty()) {
+            return false;
+        }
+        List<byte[]> args = new ArrayList<>(flat.size() + 1);
+        args.add(bytes(target));
+        for (Object o : flat) {
+            args.add((byte[]) o);
+        }
+        try {
+            incrementAll(args);
+        } catch (Exception e) {
+            args.set(0, bytes(key));
+            restore(key, () -> incrementAll(args), null);
+            throw e;
+        }
+        return true;
+    }
+
+    private void incrementAll(List<byte[]> keyAndArgs) {
+        redis.execute((RedisCallback<Long>) c -> c.scriptingCommands()
+                .eval(bytes(HINCRBY_LUA), ReturnType.INTEGER, 1, keyAndArgs.toArray(new byte[0][])));
+    }
+
+    // Put a taken value back into the old key (additive, so concurrent writes there survive)
+    private void restore(String key, Runnable putBack, byte[] value) {
+        try {
+            putBack.run();
+        } catch (Exception e) {
+            log.error("Key migration lost {}, value (base64) {}", key,
+                    value == null ? "<hash>" : Base64.getEncoder().encodeToString(value), e);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // KEYS[1] old key; returns its value and deletes it in one step.
+    private static final String TAKE_LUA = """
+            local v = redis.call('GET', KEYS[1])
+            if v then redis.call('DEL', KEYS[1]) end
+            return v
+            """;
+
+    // KEYS[1] old hash; returns its fields and values flat and deletes it.
+    private static final String TAKE_HASH_LUA = """
+            local v = redis.call('HGETALL', KEYS[1])
+            redis.call('DEL', KEYS[1])
+            return v
+            """;
+
+    // KEYS[1] old token key; returns its remaining TTL in ms and deletes it.
+    private static final String TAKE_TTL_LUA = """
+            local t = redis.call('PTTL', KEYS[1])
+            redis.call('DEL', KEYS[1])
+            return t
+            """;
+
+    // KEYS[1] target SDS blob; ARGV: blob to add, field size. Adds the big-endian fields one by one.
+    private static final String SUM_LUA = """
+            local size = tonumber(ARGV[2])
+            local add = ARGV[1]
+            local cur = redis.call('GET', KEYS[1]) or ''
+            local len = math.ceil(math.max(#add, #cur) / size) * size
+            add = add .. string.rep(string.char(0), len - #add)
+            cur = cur .. string.rep(string.char(0), len - #cur)
+            local out = {}
+            for off = 0, len - size, size do
+              local a = {string.byte(add, off + 1, off + size)}
+              local b = {string.byte(cur, off + 1, off + size)}
+              local x, y = 0, 0
+              for i = 1, size do
+                x = x * 256 + a[i]
+                y = y * 256 + b[i]
+              end
+              local n = x + y
+              local t = {}
+              for i = size, 1, -1 do t[i] = n % 256; n = math.floor(n / 256) end
+              out[#out + 1] = string.char(unpack(t))
+            end
+            redis.call('SET', KEYS[1], table.concat(out))
+            return 1
+            """;
+
+    // KEYS[1] target bitmap; ARGV[1] bitmap to OR into it.
+    private static final String OR_LUA = """
+            local add = ARGV[1]
+            local cur = redis.call('GET', KEYS[1])
+            if not cur then
+              redis.call('SET', KEYS[1], add)
+              return 1
+            end
+            local out = {}
+            for i = 1, math.max(#add, #cur) do
+              out[i] = string.char(bit.bor(string.byte(add, i) or 0, string.byte(cur, i) or 0))
+            end
+            redis.call('SET', KEYS[1], table.concat(out))
+            return 1
+            """;
+
+    // KEYS[1] target hash; ARGV: field, delta, field, delta...
+    private static final String HINCRBY_LUA = """
+            for i = 1, #ARGV, 2 do
+              redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            return 1
+            """;
+
+    // KEYS[1] refresh token hash; ARGV: jti, expiry ms, now ms. Same value layout as RefreshTokenRepoImpl,
+    // the token is its own family.
+    private static final String TOKEN_LUA = """
+            redis.call('HSETNX', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[1])
+            redis.call('HSETNX', KEYS[1], 'fam:' .. ARGV[1], ARGV[2] .. ':' .. ARGV[1])
+            local ttl = tonumber(ARGV[2]) - tonumber(ARGV[3])
+            if redis.call('PTTL', KEYS[1]) < ttl then redis.call('PEXPIRE', KEYS[1], ttl) end
+            return 1
+            """;
+}
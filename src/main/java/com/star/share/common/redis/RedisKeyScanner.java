@@ -0,0 +1,104 @@
+package com.star.share.common.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Topology-aware replacement for {@code KEYS pattern}.
+ *
+ * <p>Uses incremental SCAN so Redis is never blocked by a full keyspace walk. On a Redis
+ * Cluster a plain SCAN only sees the keys of the node it happens to hit, so every master
+ * is scanned in turn; standalone and sentinel setups scan the single master.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisKeyScanner {
+
+    private static final long SCAN_COUNT = 1000;
+    private static final int DELETE_BATCH = 100;
+
+    private final StringRedisTemplate redis;
+
+    /**
+     * Collect all keys matching the glob pattern across the whole keyspace.
+     */
+    public Set<String> keys(String pattern) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+        Set<String> keys = new LinkedHashSet<>();
+        try (RedisConnection connection = redis.getRequiredConnectionFactory().getConnection()) {
+            if (connection instanceof RedisClusterConnection cluster) {
+                for (RedisClusterNode node : cluster.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        drain(cluster.scan(node, options), keys);
+                    }
+                }
+            } else {
+                drain(connection.keyCommands().scan(options), keys);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Visit every key matching the glob pattern across the whole keyspace without collecting them,
+     * for walks over large key sets.
+     */
+    public void scan(String pattern, Consumer<String> action) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+        try (RedisConnection connection = redis.getRequiredConnectionFactory().getConnection()) {
+            if (connection instanceof RedisClusterConnection cluster) {
+                for (RedisClusterNode node : cluster.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        visit(cluster.scan(node, options), action);
+                    }
+                }
+            } else {
+                visit(connection.keyCommands().scan(options), action);
+            }
+        }
+    }
+
+    /**
+     * Delete all keys matching the glob pattern in small batches (UNLINK, freed in the background).
+     *
+     * @return number of keys removed
+     */
+    public long delete(String pattern) {
+        List<String> keys = new ArrayList<>(keys(pattern));
+        long removed = 0;
+        for (int i = 0; i < keys.size(); i += DELETE_BATCH) {
+            Long n = redis.unlink(keys.subList(i, Math.min(i + DELETE_BATCH, keys.size())));
+            removed += n == null ? 0 : n;
+        }
+        return removed;
+    }
+
+    private static void visit(Cursor<byte[]> cursor, Consumer<String> action) {
+        try (cursor) {
+            while (cursor.hasNext()) {
+                action.accept(new String(cursor.next(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static void drain(Cursor<byte[]> cursor, Set<String> out) {
+        try (cursor) {
+            while (cursor.hasNext()) {
+                out.add(new String(cursor.next(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
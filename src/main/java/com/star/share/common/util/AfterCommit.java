@@ -0,0 +1,27 @@
+package com.star.share.common.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class AfterCommit {
+    private AfterCommit() { // Utility class, prevent instantiation
+    }
+
+    /**
+     * Run a side effect (cache patch, filter add) only once the surrounding transaction committed,
+     * so a rollback never leaves it behind. Without an active transaction it runs at once.
+     * @param action side effect to run
+     */
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,7 +1,9 @@
 package com.star.share.common.util;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.star.share.relation.entity.RelationEvent;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -43,5 +45,58 @@ public final class OutboxMessageUtil {
             return Collections.emptyList();
         }
     }
-}
 
+    /** Number of shard buckets outbox rows are spread over, see {@link #shardBucket(long, long)} */
+    public static final int SHARD_BUCKETS = 1024;
+
+    /**
+     * Shard bucket of a relation event, a stable hash of its follow edge: every change of the same
+     * edge lands in the same bucket, so one polling relay sees them all and in order.
+     * @param fromUserId follower id
+     * @param toUserId followee id
+     * @return bucket in [0, SHARD_BUCKETS)
+     */
+    public static int shardBucket(long fromUserId, long toUserId) {
+        return Math.floorMod((fromUserId + ":" + toUserId).hashCode(), SHARD_BUCKETS);
+    }
+
+    /**
+     * Partition key of an outbox payload: the (fromUserId, toUserId) pair of a relation event,
+     * so every change of the same follow edge lands in the same partition and keeps its order.
+     * Bound straight to {@link RelationEvent}, no node tree is built per row.
+     * @param objectMapper JSON object mapper for parsing the payload
+     * @param payload The outbox payload column
+     * @return "from:to", or null (round-robin) when the payload carries no pair
+     */
+    public static String relationKey(ObjectMapper objectMapper, String payload) {
+        try {
+            RelationEvent event = objectMapper.readValue(payload, RelationEvent.class);
+            if (event.fromUserId() == null || event.toUserId() == null) {
+                return null;
+            }
+            return event.fromUserId() + ":" + event.toUserId();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build the relay message of one outbox row, in the same layout as a Canal row change:
+     * {"table":..., "type":"INSERT|UPDATE", "data":[{"payload":...}]}.
+     * @param objectMapper JSON object mapper for serializing the message
+     * @param table source table name
+     * @param type change type, INSERT or UPDATE
+     * @param payload the outbox payload column
+     * @return the JSON message
+     */
+    public static String toMessage(ObjectMapper objectMapper, String table, String type, String payload)
+            throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new RelayMessage(table, type, List.of(new RelayRow(payload))));
+    }
+
+    private record RelayMessage(String table, String type, List<RelayRow> data) {
+    }
+
+    private record RelayRow(String payload) {
+    }
+}
@@ -2,13 +2,24 @@ package com.star.share.config;
 
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
+import org.redisson.config.ClusterServersConfig;
 import org.redisson.config.Config;
+import org.redisson.config.SentinelServersConfig;
 import org.redisson.config.SingleServerConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
+/**
+ * Redisson client built from the same {@code spring.data.redis.*} properties as the
+ * Spring Data Redis (Lettuce) connection, so both clients always talk to the same topology:
+ * - {@code spring.data.redis.cluster.nodes} set: Redis Cluster;
+ * - {@code spring.data.redis.sentinel.master} set: Sentinel with automatic failover;
+ * - otherwise: single server ({@code host}/{@code port}/{@code database}).
+ */
 @Configuration
 public class RedissonConfig {
     @Value("${counter.rebuild.lock.watchdog-ms:30000}")
@@ -19,15 +30,42 @@ public class RedissonConfig {
         Config config = new Config();
 
         config.setLockWatchdogTimeout(lockWatchdogsMs);
-        String address = "redis://" + redisProperties.getHost() + ":" + redisProperties.getPort();
-        SingleServerConfig single = config.useSingleServer().setAddress(address);
+        String scheme = redisProperties.getSsl().isEnabled() ? "rediss://" : "redis://";
+        String password = hasText(redisProperties.getPassword()) ? redisProperties.getPassword() : null;
 
-        if(redisProperties.getPassword() != null && !redisProperties.getPassword().isEmpty()){
-            single.setPassword(redisProperties.getPassword());
+        RedisProperties.Cluster cluster = redisProperties.getCluster();
+        RedisProperties.Sentinel sentinel = redisProperties.getSentinel();
+        if (cluster != null && cluster.getNodes() != null && !cluster.getNodes().isEmpty()) {
+            ClusterServersConfig servers = config.useClusterServers()
+                    .addNodeAddress(addresses(scheme, cluster.getNodes()));
+            servers.setUsername(redisProperties.getUsername());
+            servers.setPassword(password);
+        } else if (sentinel != null && hasText(sentinel.getMaster())) {
+            SentinelServersConfig servers = config.useSentinelServers()
+                    .setMasterName(sentinel.getMaster())
+                    .addSentinelAddress(addresses(scheme, sentinel.getNodes()))
+                    .setDatabase(redisProperties.getDatabase());
+            servers.setUsername(redisProperties.getUsername());
+            servers.setPassword(password);
+            if (hasText(sentinel.getPassword())) {
+                servers.setSentinelPassword(sentinel.getPassword());
+            }
+        } else {
+            String address = scheme + redisProperties.getHost() + ":" + redisProperties.getPort();
+            SingleServerConfig single = config.useSingleServer().setAddress(address);
+            single.setUsername(redisProperties.getUsername());
+            single.setPassword(password);
+            single.setDatabase(redisProperties.getDatabase());
         }
-
-        single.setDatabase(redisProperties.getDatabase());
         return Redisson.create(config);
 
     }
+
+    private static String[] addresses(String scheme, List<String> nodes) {
+        return nodes.stream().map(n -> scheme + n.trim()).toArray(String[]::new);
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isEmpty();
+    }
 }
@@ -1,15 +1,29 @@
 package com.star.share.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.ThreadPoolExecutor;
 
+/**
+ * Application task executor.
+ * <p>
+ *     The mode follows {@code spring.threads.virtual.enabled}, the same switch Spring Boot
+ *     uses to run Tomcat request handling on virtual threads:
+ *     - false (default): bounded platform thread pool with CallerRunsPolicy;
+ *     - true: one virtual thread per task, optionally capped by
+ *       {@code thread-pool.virtual.concurrency-limit} (callers block once the cap is reached).
+ * </p>
+ */
 @Configuration
 public class ThreadPoolConfig {
 
     @Bean(name = "taskExecutor")
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "false", matchIfMissing = true)
     public ThreadPoolTaskExecutor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(10);
@@ -23,4 +37,16 @@ public class ThreadPoolConfig {
         executor.initialize();
         return executor;
     }
+
+    @Bean(name = "taskExecutor")
+    @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+    public SimpleAsyncTaskExecutor virtualTaskExecutor(
+            @Value("${thread-pool.virtual.concurrency-limit:-1}") int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("NoteExecutor-");
+        executor.setVirtualThreads(true);
+        // -1 means unbounded; a positive limit gives the same backpressure as the pool's CallerRunsPolicy
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setTaskTerminationTimeout(60_000L);
+        return executor;
+    }
 }
@@ -4,6 +4,7 @@ import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -15,12 +16,14 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableKafka
 public class CounterConfig {
     @Bean
+    @Primary
     public ProducerFactory<String, String> stringProducerFactory(KafkaProperties properties, SslBundles sslBundles) {
         var props = properties.buildProducerProperties(sslBundles);
         return new DefaultKafkaProducerFactory<>(props); // Using the default StringSerializer for both key and value
     }
 
     @Bean
+    @Primary
     public KafkaTemplate<String, String> stringkafkaTemplate(ProducerFactory<String, String> producerFactory) {
         return new KafkaTemplate<>(producerFactory);
     }
@@ -0,0 +1,24 @@
+package com.star.share.counter.entity;
+
+import java.util.Map;
+
+/**
+ * Live counter view of a single entity: the requested metric counts plus the
+ * like/fav state of the current user (both false for anonymous readers).
+ *
+ * @param counts metric name to count value (e.g., like, fav), null when the counters could not be read
+ * @param liked  whether the current user has liked the entity
+ * @param faved  whether the current user has favorited the entity
+ */
+public record CounterSnapshot(Map<String, Long> counts, boolean liked, boolean faved) {
+
+    // Counters not read in time: counts are shown as unknown (null) instead of failing the page
+    public static final CounterSnapshot UNAVAILABLE = new CounterSnapshot(null, false, false);
+
+    /**
+     * @return the count, or null when the counters are unavailable
+     */
+    public Long count(String metric) {
+        return counts == null ? null : counts.getOrDefault(metric, 0L);
+    }
+}
@@ -1,6 +1,7 @@
 package com.star.share.counter.event;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.star.share.common.redis.RedisKeyScanner;
 import com.star.share.counter.schema.CounterSchema;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -14,7 +15,6 @@ import org.springframework.stereotype.Service;
 import com.star.share.counter.schema.CounterKeys;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -27,15 +27,18 @@ public class CounterAggregationConsumer {
 
     private final ObjectMapper objectMapper;
     private final StringRedisTemplate redis;
-    private final DefaultRedisScript<Long> incrScript;
+    private final RedisKeyScanner keyScanner;
+    private final DefaultRedisScript<Long> flushScript;
 
     public CounterAggregationConsumer(ObjectMapper objectMapper,
-                                      StringRedisTemplate redis) {
+                                      StringRedisTemplate redis,
+                                      RedisKeyScanner keyScanner) {
         this.objectMapper = objectMapper;
         this.redis = redis;
-        this.incrScript = new DefaultRedisScript<>();
-        this.incrScript.setResultType(Long.class);
-        this.incrScript.setScriptText(INCR_FIELD_LUA);
+        this.keyScanner = keyScanner;
+        this.flushScript = new DefaultRedisScript<>();
+        this.flushScript.setResultType(Long.class);
+        this.flushScript.setScriptText(FLUSH_LUA);
     }
 
     /**
@@ -63,103 +66,64 @@ public class CounterAggregationConsumer {
 
     /**
      * Scheduled task to flush aggregated counters from Redis hashes to the final counter storage.
-     * This method runs every second, retrieves all aggregation keys, and for each key,
-     * it processes the fields and increments the final counters accordingly.
+     * This method runs every second, scans the aggregation keys on every master node, and for each key
+     * applies all pending deltas to the SDS counter and drops the hash in one Lua call.
+     * The hash and the SDS share the entity hash tag, so the script never crosses cluster slots.
      */
     @Scheduled(fixedDelay = 1000L)
     public void flush() {
-        // keys: agg:v1:1:
-        Set<String> keys = redis.keys("agg:" + CounterSchema.SCHEMA_ID + ":");
+        // keys: agg:v1:{entityType:entityId}
+        Set<String> keys = keyScanner.keys(CounterKeys.AGG_PATTERN);
         if (keys.isEmpty()) {
             return;
         }
 
         for (String aggkey : keys) {
-            // Get all fields and their corresponding deltas from the agg:v1:* hash
-            Map<Object, Object> entries = redis.opsForHash().entries(aggkey);
-            if (entries.isEmpty()) {
-                continue;
-            }
-            String[] parts = aggkey.split(":", 4);
-            if (parts.length < 4) {
-                log.warn("Invalid agg key format: {}", aggkey);
-                continue;
-            }
-            // cnt:v1:entityType:entityId
-            String cntKey = CounterKeys.sdsKey(parts[2], parts[3]);
-            for (Map.Entry<Object, Object> e : entries.entrySet()) {
-                String field = String.valueOf(e.getKey());
-
-                long delta;
-                try {
-                    delta = Long.parseLong(String.valueOf(e.getValue()));
-                } catch (NumberFormatException ex) {
-                    log.warn("Invalid counter value for key: {}, field: {}, value: {}", aggkey, field, e.getValue());
-                    continue;
-                }
-                if (delta == 0) continue;
-
-                int idx;
-                try {
-                    idx = Integer.parseInt(field);
-                } catch (NumberFormatException nfe) {
-                    continue;
-                }
-
-                try {
-                    redis.execute(incrScript,
-                            List.of(cntKey),
-                            String.valueOf(CounterSchema.SCHEMA_LEN),
-                            String.valueOf(CounterSchema.FIELD_SIZE),
-                            String.valueOf(idx),
-                            String.valueOf(delta)
-                    );
-
-                    redis.opsForHash().delete(aggkey, field);
-                } catch (Exception ex) {
-                    log.warn("Failed to flush counter for key: {}, field: {}, delta: {}, error: {}",
-                            cntKey, field, delta, ex.getMessage());
-                }
-            }
-
-            Long size = redis.opsForHash().size(aggkey);
-            if (size == 0L) {
-                redis.delete(aggkey);
+            // cnt:v1:{entityType:entityId}
+            String cntKey = CounterKeys.sdsKeyOfAgg(aggkey);
+            try {
+                redis.execute(flushScript,
+                        List.of(cntKey, aggkey),
+                        String.valueOf(CounterSchema.SCHEMA_LEN),
+                        String.valueOf(CounterSchema.FIELD_SIZE)
+                );
+            } catch (Exception ex) {
+                // The hash is kept, its deltas are retried on the next tick
+                log.warn("Failed to flush counters for key: {}, error: {}", aggkey, ex.getMessage());
             }
         }
     }
 
-    private static final String INCR_FIELD_LUA = """
-                        
+    // Apply every idx->delta field of the agg hash to the SDS blob, then delete the hash (atomic)
+    private static final String FLUSH_LUA = CounterSchema.INT32_LUA + """
             local cntKey = KEYS[1]
+            local aggKey = KEYS[2]
             local schemaLen = tonumber(ARGV[1])
             local fieldSize = tonumber(ARGV[2]) -- 固定为4
-            local idx = tonumber(ARGV[3])
-            local delta = tonumber(ARGV[4])
                         
-            local function read32be(s, off)
-              local b = {string.byte(s, off+1, off+4)}
-              local n = 0
-              for i=1,4 do n = n * 256 + b[i] end
-              return n
-            end
+            local entries = redis.call('HGETALL', aggKey)
+            if #entries == 0 then return 0 end
                         
-            local function write32be(n)
-              local t = {}
-              for i=4,1,-1 do t[i] = n % 256; n = math.floor(n/256) end
-              return string.char(unpack(t))
+            local cnt = redis.call('GET', cntKey)
+            if not cnt then cnt = '' end
+            if #cnt < schemaLen * fieldSize then
+              cnt = cnt .. string.rep(string.char(0), schemaLen * fieldSize - #cnt)
             end
                         
-            local cnt = redis.call('GET', cntKey)
-            if not cnt then cnt = string.rep(string.char(0), schemaLen * fieldSize) end
-            local off = idx * fieldSize
-            local v = read32be(cnt, off) + delta
-            if v < 0 then v = 0 end
-            local seg = write32be(v)
-            cnt = string.sub(cnt, 1, off) .. seg .. string.sub(cnt, off+fieldSize+1)
+            local applied = 0
+            for i=1,#entries,2 do
+              local idx = tonumber(entries[i])
+              local delta = tonumber(entries[i+1])
+              if idx and delta and delta ~= 0 and idx >= 0 and idx < schemaLen then
+                local off = idx * fieldSize
+                local v = read32be(cnt, off) + delta
+                if v < 0 then v = 0 end
+                cnt = string.sub(cnt, 1, off) .. write32be(v) .. string.sub(cnt, off+fieldSize+1)
+                applied = applied + 1
+              end
+            end
             redis.call('SET', cntKey, cnt)
-            return 1
+            redis.call('DEL', aggKey)
+            return applied
             """;
 }
-
-
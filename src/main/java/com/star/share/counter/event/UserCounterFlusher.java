@@ -0,0 +1,110 @@
+package com.star.share.counter.event;
+
+import com.star.share.counter.schema.CounterSchema;
+import com.star.share.counter.schema.UserCounterKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Periodically folds the buffered user counter deltas ({@code ucnt:agg:{uid}}) into the
+ * SDS blobs ({@code ucnt:{uid}}).
+ *
+ * <p>Unlike the post counter flush no key scan is needed:</p>
+ * - writers add the user id to one of {@link UserCounterKeys#DIRTY_SHARDS} dirty sets;
+ * - each tick SPOPs the dirty ids, so with several instances every id is flushed by one of them;
+ * - the hash and the SDS share the user hash tag, one script applies all fields and drops the hash;
+ * - ids whose flush failed are put back and retried on the next tick.
+ */
+@Service
+@Slf4j
+public class UserCounterFlusher {
+
+    private final StringRedisTemplate redis;
+    private final int batchSize;
+
+    public UserCounterFlusher(StringRedisTemplate redis,
+                              @Value("${user-counter.flush-batch-size:500}") int batchSize) {
+        this.redis = redis;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${user-counter.flush-interval-ms:1000}")
+    public void flush() {
+        for (int shard = 0; shard < UserCounterKeys.DIRTY_SHARDS; shard++) {
+            String dirtyKey = UserCounterKeys.dirtyKey(shard);
+            List<String> userIds;
+            do {
+                userIds = redis.opsForSet().pop(dirtyKey, batchSize);
+                if (userIds == null || userIds.isEmpty()) {
+                    break;
+                }
+                flush(dirtyKey, userIds);
+            } while (userIds.size() == batchSize);
+        }
+    }
+
+    private void flush(String dirtyKey, List<String> userIds) {
+        try {
+            redis.executePipelined((RedisCallback<Object>) c -> {
+                for (String uid : userIds) {
+                    long userId = Long.parseLong(uid);
+                    c.scriptingCommands().eval(bytes(FLUSH_LUA), ReturnType.INTEGER, 2,
+                            bytes(UserCounterKeys.sdsKey(userId)),
+                            bytes(UserCounterKeys.aggKey(userId)),
+                            bytes(String.valueOf(UserCounterKeys.SCHEMA_LEN)),
+                            bytes(String.valueOf(UserCounterKeys.FIELD_SIZE)));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // Flushing is idempotent per hash (apply + DEL is atomic), so retrying the whole batch is safe
+            log.warn("Failed to flush {} user counters, retrying next tick: {}", userIds.size(), e.getMessage());
+            redis.opsForSet().add(dirtyKey, userIds.toArray(new String[0]));
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Apply every idx->delta field (1-based idx) of the agg hash to the SDS blob, then delete the hash (atomic)
+    private static final String FLUSH_LUA = CounterSchema.INT32_LUA + """
+            local cntKey = KEYS[1]
+            local aggKey = KEYS[2]
+            local schemaLen = tonumber(ARGV[1])
+            local fieldSize = tonumber(ARGV[2])
+
+            local entries = redis.call('HGETALL', aggKey)
+            if #entries == 0 then return 0 end
+
+            local cnt = redis.call('GET', cntKey)
+            if not cnt then cnt = '' end
+            if #cnt < schemaLen * fieldSize then
+              cnt = cnt .. string.rep(string.char(0), schemaLen * fieldSize - #cnt)
+            end
+
+            local applied = 0
+            for i=1,#entries,2 do
+              local idx = tonumber(entries[i])
+              local delta = tonumber(entries[i+1])
+              if idx and delta and delta ~= 0 and idx >= 1 and idx <= schemaLen then
+                local off = (idx - 1) * fieldSize
+                local v = read32be(cnt, off) + delta
+                if v < 0 then v = 0 end
+                cnt = string.sub(cnt, 1, off) .. write32be(v) .. string.sub(cnt, off+fieldSize+1)
+                applied = applied + 1
+              end
+            end
+            redis.call('SET', cntKey, cnt)
+            redis.call('DEL', aggKey)
+            return applied
+            """;
+}
@@ -3,24 +3,40 @@ package com.star.share.counter.schema;
 /**
  * Redis key definitions for counters,
  * including patterns and prefixes.
+ *
+ * <p>All keys of one entity share the hash tag {@code {entityType:entityId}}, so on a Redis
+ * Cluster the SDS blob, its aggregation hash and its bitmaps live in the same slot and can be
+ * touched by one Lua script. Different entities still spread evenly over all slots.</p>
  */
 public final class CounterKeys {
     private CounterKeys() {
         // Prevent instantiation
     }
 
+    // Glob pattern matching every aggregation hash, used by the flusher's per-node scan
+    public static final String AGG_PATTERN = "agg:" + CounterSchema.SCHEMA_ID + ":*";
+
     public static String sdsKey(String entityType, String entityId) {
-        // Key SDS format: cnt:v1:entityType:entityId
-        return String.format("cnt:%s:%s:%s", CounterSchema.SCHEMA_ID, entityType, entityId);
+        // Key SDS format: cnt:v1:{entityType:entityId}
+        return String.format("cnt:%s:%s", CounterSchema.SCHEMA_ID, tag(entityType, entityId));
     }
 
-    // bitmap key format: bm:metric:entityType:entityId:chunk
+    // bitmap key format: bm:metric:{entityType:entityId}:chunk
     public static String bitmapKey(String metric, String entityType, String entityId, long chunk){
-        return String.format("bm:%s:%s:%s:%d", metric, entityType, entityId, chunk);
+        return String.format("bm:%s:%s:%d", metric, tag(entityType, entityId), chunk);
     }
 
-    // Aggregated counter key format(Hash): agg:v1:entityType:entityId
+    // Aggregated counter key format(Hash): agg:v1:{entityType:entityId}
     public static String aggKey(String entityType, String entityId){
-        return String.format("agg:%s:%s:%s",CounterSchema.SCHEMA_ID, entityType, entityId);
+        return String.format("agg:%s:%s",CounterSchema.SCHEMA_ID, tag(entityType, entityId));
+    }
+
+    // agg:v1:{entityType:entityId} -> cnt:v1:{entityType:entityId}, same slot by construction
+    public static String sdsKeyOfAgg(String aggKey) {
+        return "cnt:" + aggKey.substring("agg:".length());
+    }
+
+    private static String tag(String entityType, String entityId) {
+        return "{" + entityType + ":" + entityId + "}";
     }
 }
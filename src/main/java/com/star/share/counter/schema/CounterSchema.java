@@ -26,6 +26,21 @@ public class CounterSchema {
 
     public static final Set<String> SUPPORTED_COUNTERS = NAME_TO_IDX.keySet();
 
+    // Lua helpers shared by every script that edits an SDS blob: read/write one big-endian INT 32 field
+    public static final String INT32_LUA = """
+            local function read32be(s, off)
+              local b = {string.byte(s, off+1, off+4)}
+              local n = 0
+              for i=1,4 do n = n * 256 + b[i] end
+              return n
+            end
+            local function write32be(n)
+              local t = {}
+              for i=4,1,-1 do t[i] = n % 256; n = math.floor(n/256) end
+              return string.char(unpack(t))
+            end
+            """;
+
     private CounterSchema() {
         // Prevent instantiation
     }
@@ -1,15 +1,63 @@
 package com.star.share.counter.schema;
 
+import org.springframework.data.redis.connection.RedisConnection;
+
+import java.nio.charset.StandardCharsets;
+
 /**
  * Redis key definitions for user-specific counters,
  * such as total likes and favorites for a user.
+ * The user id is the hash tag, so all counter keys of one user share a cluster slot.
  */
 public final class UserCounterKeys {
+    // SDS field index (1-based): followings, followers, posts, likes received, favs received
+    public static final int IDX_FOLLOWINGS = 1;
+    public static final int IDX_FOLLOWERS = 2;
+    public static final int SCHEMA_LEN = 5;
+    public static final int FIELD_SIZE = 4;
+    // Dirty user ids are spread over a few sets so no single key (or slot) takes every write
+    public static final int DIRTY_SHARDS = 16;
+
     private UserCounterKeys() {
         // Prevent instantiation
     }
 
     public static String sdsKey(long userId){
-        return "ucnt:" + userId;
+        return "ucnt:{" + userId + "}";
+    }
+
+    // Pending follow deltas (hash idx -> delta), same slot as the SDS so one script applies them
+    public static String aggKey(long userId){
+        return "ucnt:agg:{" + userId + "}";
+    }
+
+    // Set of user ids with pending deltas
+    public static String dirtyKey(int shard){
+        return "ucnt:dirty:" + shard;
+    }
+
+    public static String dirtyKeyOf(long userId){
+        return dirtyKey((int) Math.floorMod(userId, (long) DIRTY_SHARDS));
+    }
+
+    // Short-lived marker limiting the DB consistency check of a user's counters
+    public static String checkKey(long userId){
+        return "ucnt:chk:{" + userId + "}";
+    }
+
+    /**
+     * Queue a buffered increment of field idx (1-based) on an open, typically pipelined, connection.
+     * Write-behind: the delta lands in the user's agg hash and the user is marked dirty,
+     * {@link com.star.share.counter.event.UserCounterFlusher} folds it into the SDS blob.
+     * A hot account gaining thousands of followers per second costs one HINCRBY per event
+     * and one script per flush instead of one read-modify-write script per event.
+     */
+    public static void queueIncrement(RedisConnection connection, long userId, int idx, long delta) {
+        connection.hashCommands().hIncrBy(bytes(aggKey(userId)), bytes(String.valueOf(idx)), delta);
+        connection.setCommands().sAdd(bytes(dirtyKeyOf(userId)), bytes(String.valueOf(userId)));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
     }
 }
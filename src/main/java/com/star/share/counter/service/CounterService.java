@@ -1,5 +1,7 @@
 package com.star.share.counter.service;
 
+import com.star.share.counter.entity.CounterSnapshot;
+
 import java.util.List;
 import java.util.Map;
 
@@ -20,4 +22,16 @@ public interface CounterService {
     boolean unfav(String entityType, String entityId, long uid);
 
     Map<String, Long> getCounts(String entityType, String entityId, List<String> metrics);
+
+    /**
+     * Read the counts and the user's like/fav state of an entity in one pipelined round trip.
+     * Counts may be served from the local near cache, in which case only the bitmaps are read.
+     */
+    CounterSnapshot snapshot(String entityType, String entityId, List<String> metrics, Long uidNullable);
+
+    /**
+     * {@link #snapshot} for several entities of one type in a single pipelined round trip, in request order.
+     */
+    List<CounterSnapshot> snapshots(String entityType, List<String> entityIds, List<String> metrics,
+                                    Long uidNullable);
 }
@@ -1,9 +1,9 @@
 package com.star.share.counter.service;
 
 public interface UserCounterService {
-    /** Increment the number of followings for a user by a specified delta. */
+    /** Increment the number of followings for a user by a specified delta (buffered, applied within a flush interval). */
     void incrementFollowings(long userId, int delta);
-    /** Increment the number of followers for a user by a specified delta. */
+    /** Increment the number of followers for a user by a specified delta (buffered, applied within a flush interval). */
     void incrementFollowers(long userId, int delta);
     /** Increment the number of favorites for a user by a specified delta. */
     void incrementPosts(long userId, int delta);
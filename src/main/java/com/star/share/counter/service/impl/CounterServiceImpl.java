@@ -1,5 +1,8 @@
 package com.star.share.counter.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.star.share.counter.entity.CounterSnapshot;
 import com.star.share.counter.event.CounterEvent;
 import com.star.share.counter.event.CounterEventProducer;
 import com.star.share.counter.schema.BitmapShard;
@@ -7,13 +10,17 @@ import com.star.share.counter.schema.CounterKeys;
 import com.star.share.counter.schema.CounterSchema;
 import com.star.share.counter.service.CounterService;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,17 +37,29 @@ public class CounterServiceImpl implements CounterService {
     private final CounterEventProducer eventProducer;
     private final ApplicationEventPublisher eventPublisher;
     private final RedissonClient redisson;
+    // Near cache of raw SDS blobs (sdsKey -> bytes), EMPTY marks a missing key
+    private final Cache<String, byte[]> nearCache;
+    private static final byte[] EMPTY = new byte[0];
 
 
     public CounterServiceImpl(StringRedisTemplate redis,
                               CounterEventProducer eventProducer,
                               ApplicationEventPublisher eventPublisher,
-                              RedissonClient redisson) {
+                              RedissonClient redisson,
+                              @Value("${counter.near-cache.ttl-ms:1000}") long nearCacheTtlMs,
+                              @Value("${counter.near-cache.max-size:10000}") long nearCacheMaxSize) {
         this.redis = redis;
         this.eventProducer = eventProducer;
         this.eventPublisher = eventPublisher;
         this.redisson = redisson;
 
+        // Counts are flushed from the agg hashes about once per second,
+        // so a TTL of the same order does not make reads noticeably staler.
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(nearCacheTtlMs))
+                .build();
+
         this.toggleScript = new DefaultRedisScript<>();
         this.toggleScript.setResultType(Long.class);
         // Switch to Lua script to ensure atomicity of the like/unlike operation
@@ -103,6 +122,7 @@ public class CounterServiceImpl implements CounterService {
 
     /**
      * Get the counts for the specified metrics of an entity by reading the raw byte array from Redis and parsing the values based on the defined schema.
+     * The raw array is served from the near cache when present.
      * @param entityType entity type (eg: post, comment)
      * @param entityId  entity id (eg: post123, comment456)
      * @param metrics list of metrics to retrieve (eg: like, favorite)
@@ -111,21 +131,94 @@ public class CounterServiceImpl implements CounterService {
     @Override
     public Map<String, Long> getCounts(String entityType, String entityId, List<String> metrics) {
         String sdsKey = CounterKeys.sdsKey(entityType, entityId);
-        byte[] raw = getRaw(sdsKey);
+        byte[] raw = nearCache.get(sdsKey, k -> {
+            byte[] v = getRaw(k);
+            return v == null ? EMPTY : v;
+        });
 
         // TODO: Adding the distributed lock to prevent the cache penetration when the key is not exist in Redis, and the backend database is down or has no record for the entity, which will cause a lot of cache miss and hit the database repeatedly.
-        Map<String, Long> result = new LinkedHashMap<>();
+        return decodeCounts(raw, metrics);
+    }
 
-        for(String m : metrics){
-            Integer idx = CounterSchema.NAME_TO_IDX.get(m);
-            if(idx == null){
-                continue;
+    /**
+     * Read counts and the user's like/fav bits in a single pipeline: GET on the SDS key
+     * (skipped on a near cache hit) plus two GETBITs when a user is given.
+     *
+     * @param entityType  entity type (eg: post, comment)
+     * @param entityId    entity id (eg: post123, comment456)
+     * @param metrics     list of metrics to retrieve (eg: like, fav)
+     * @param uidNullable current user id, null for anonymous readers
+     * @return counts plus liked/faved flags
+     */
+    @Override
+    public CounterSnapshot snapshot(String entityType, String entityId, List<String> metrics, Long uidNullable) {
+        return snapshots(entityType, List.of(entityId), metrics, uidNullable).getFirst();
+    }
+
+    /**
+     * Same reads as {@link #snapshot} for a whole page of entities, queued on one pipeline.
+     *
+     * @return one snapshot per entity id, in the given order
+     */
+    @Override
+    public List<CounterSnapshot> snapshots(String entityType, List<String> entityIds, List<String> metrics,
+                                           Long uidNullable) {
+        int n = entityIds.size();
+        List<CounterSnapshot> out = new ArrayList<>(n);
+        if (n == 0) {
+            return out;
+        }
+        String[] sdsKeys = new String[n];
+        byte[][] raws = new byte[n][];
+        // An empty metric list asks for the like/fav state only
+        boolean needBits = uidNullable != null;
+        boolean needAny = needBits;
+        for (int i = 0; i < n; i++) {
+            sdsKeys[i] = CounterKeys.sdsKey(entityType, entityIds.get(i));
+            raws[i] = nearCache.getIfPresent(sdsKeys[i]);
+            needAny |= raws[i] == null && !metrics.isEmpty();
+        }
+
+        if (!needAny) {
+            for (byte[] raw : raws) {
+                out.add(new CounterSnapshot(decodeCounts(raw, metrics), false, false));
             }
-            int off = idx * CounterSchema.FIELD_SIZE;
-            long val = readInt32BE(raw, off);
-            result.put(m, val);
+            return out;
         }
-        return result;
+
+        long chunk = needBits ? BitmapShard.chunkOf(uidNullable) : 0L;
+        long bit = needBits ? BitmapShard.bitOf(uidNullable) : 0L;
+
+        // Byte array serializer keeps the binary SDS value intact; GETBIT results pass through as Boolean
+        List<Object> results = redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < n; i++) {
+                if (raws[i] == null && !metrics.isEmpty()) {
+                    connection.stringCommands().get(sdsKeys[i].getBytes(StandardCharsets.UTF_8));
+                }
+                if (needBits) {
+                    String id = entityIds.get(i);
+                    byte[] likeKey = CounterKeys.bitmapKey("like", entityType, id, chunk).getBytes(StandardCharsets.UTF_8);
+                    byte[] favKey = CounterKeys.bitmapKey("fav", entityType, id, chunk).getBytes(StandardCharsets.UTF_8);
+                    connection.stringCommands().getBit(likeKey, bit);
+                    connection.stringCommands().getBit(favKey, bit);
+                }
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            byte[] raw = raws[i];
+            if (raw == null && !metrics.isEmpty()) {
+                Object v = results.get(r++);
+                raw = v instanceof byte[] bytes ? bytes : EMPTY;
+                nearCache.put(sdsKeys[i], raw);
+            }
+            boolean liked = needBits && Boolean.TRUE.equals(results.get(r++));
+            boolean faved = needBits && Boolean.TRUE.equals(results.get(r++));
+            out.add(new CounterSnapshot(decodeCounts(raw, metrics), liked, faved));
+        }
+        return out;
     }
 
     /**
@@ -183,6 +276,24 @@ public class CounterServiceImpl implements CounterService {
         return Boolean.TRUE.equals(bit);
     }
 
+    /**
+     * Decode the requested metrics from a raw SDS array, missing or short arrays read as zero.
+     */
+    private static Map<String, Long> decodeCounts(byte[] raw, List<String> metrics) {
+        Map<String, Long> result = new LinkedHashMap<>();
+
+        for(String m : metrics){
+            Integer idx = CounterSchema.NAME_TO_IDX.get(m);
+            if(idx == null){
+                continue;
+            }
+            int off = idx * CounterSchema.FIELD_SIZE;
+            long val = raw != null && raw.length >= off + CounterSchema.FIELD_SIZE ? readInt32BE(raw, off) : 0L;
+            result.put(m, val);
+        }
+        return result;
+    }
+
     /**
      * Read a 32-bit big-endian integer from the given byte array starting at the specified offset.
      */
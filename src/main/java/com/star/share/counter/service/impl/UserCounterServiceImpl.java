@@ -1,10 +1,12 @@
 package com.star.share.counter.service.impl;
 
+import com.star.share.counter.schema.CounterSchema;
 import com.star.share.counter.schema.UserCounterKeys;
 import com.star.share.counter.service.CounterService;
 import com.star.share.counter.service.UserCounterService;
 import com.star.share.posts.dao.PostMapper;
 import com.star.share.relation.mapper.RelationMapper;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
@@ -34,24 +36,12 @@ public class UserCounterServiceImpl implements UserCounterService {
                 this.incrScript.setScriptText(INCR_FIELD_LUA);
         }
 
-        private static final String INCR_FIELD_LUA = """
-
+        private static final String INCR_FIELD_LUA = CounterSchema.INT32_LUA + """
                         local cntKey = KEYS[1]
                         local schemaLen = tonumber(ARGV[1])
                         local fieldSize = tonumber(ARGV[2])
                         local idx = tonumber(ARGV[3])
                         local delta = tonumber(ARGV[4])
-                        local function read32be(s, off)
-                          local b = {string.byte(s, off+1, off+4)}
-                          local n = 0
-                          for i=1,4 do n = n * 256 + b[i] end
-                          return n
-                        end
-                        local function write32be(n)
-                          local t = {}
-                          for i=4,1,-1 do t[i] = n % 256; n = math.floor(n/256) end
-                          return string.char(unpack(t))
-                        end
                         local cnt = redis.call('GET', cntKey)
                         if not cnt then cnt = string.rep(string.char(0), schemaLen * fieldSize) end
                         local off = (idx - 1) * fieldSize
@@ -65,14 +55,18 @@ public class UserCounterServiceImpl implements UserCounterService {
 
         @Override
         public void incrementFollowings(long userId, int delta) {
-                String key = UserCounterKeys.sdsKey(userId);
-                redis.execute(incrScript, List.of(key), "5", "4", "1", String.valueOf(delta));
+                redis.executePipelined((RedisCallback<Object>) c -> {
+                        UserCounterKeys.queueIncrement(c, userId, UserCounterKeys.IDX_FOLLOWINGS, delta);
+                        return null;
+                });
         }
 
         @Override
         public void incrementFollowers(long userId, int delta) {
-                String key = UserCounterKeys.sdsKey(userId);
-                redis.execute(incrScript, List.of(key), "5", "4", "2", String.valueOf(delta));
+                redis.executePipelined((RedisCallback<Object>) c -> {
+                        UserCounterKeys.queueIncrement(c, userId, UserCounterKeys.IDX_FOLLOWERS, delta);
+                        return null;
+                });
         }
 
         @Override
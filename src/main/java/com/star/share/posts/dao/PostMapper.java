@@ -27,8 +27,8 @@ public interface PostMapper {
 
     // My posts list (only my published posts), with pinned posts first, then sorted by publish time desc.
     List<PostFeedRow> listMyPublished(@Param("creatorId") long creatorId,
-                                          @Param("limit") int limit,
-                                          @Param("offset") int offset);
+                                      @Param("limit") int limit,
+                                      @Param("offset") int offset);
 
     // Set top (pin/unpin)
     int updateTop(@Param("id") Long id, @Param("creatorId") Long creatorId, @Param("isTop") Boolean isTop);
@@ -15,9 +15,6 @@ public class PostDetailRow {
     private String contentUrl;
     private String contentEtag;
     private String contentSha256;
-    private String authorAvatar;
-    private String authorNickname;
-    private String authorTagJson;
     private Instant publishTime;
     private Boolean isTop;
     private String visible;
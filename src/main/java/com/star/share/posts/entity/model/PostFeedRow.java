@@ -11,9 +11,7 @@ public class PostFeedRow {
     private String description;
     private String tags; // Json string
     private String imgUrls; //  Json string
-    private String authorAvatar;
-    private String authorNickname;
-    private String authorTagJson; //  Author tags in domain-specific format, e.g. ["tag1","tag2"]
+    private Long creatorId;
     private Instant publishTime;
     private Boolean isTop;
 
@@ -6,6 +6,7 @@ import com.star.share.posts.entity.model.Post;
 import com.star.share.counter.event.CounterEvent;
 import com.star.share.posts.entity.vo.FeedItemResponse;
 import com.star.share.posts.entity.vo.FeedPageResponse;
+import com.star.share.posts.schema.FeedKeys;
 
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -76,12 +77,12 @@ public class FeedCacheInvalidationListener {
 
             long hourSlot = System.currentTimeMillis() / 3600000L;
             Set<String> keys = new LinkedHashSet<>();
-            Set<String> cur = redis.opsForSet().members("feed:public:index:" + eid + ":" + hourSlot);
+            Set<String> cur = redis.opsForSet().members(FeedKeys.publicIndex(eid, hourSlot));
             if (cur != null) {
                 keys.addAll(cur);
             }
 
-            Set<String> prev = redis.opsForSet().members("feed:public:index:" + eid + ":" + (hourSlot - 1));
+            Set<String> prev = redis.opsForSet().members(FeedKeys.publicIndex(eid, hourSlot - 1));
             if (prev != null) {
                 keys.addAll(prev);
             }
@@ -104,7 +105,7 @@ public class FeedCacheInvalidationListener {
                         writePageJsonKeepingTtl(key, updated);
                     } catch (Exception ignored) {}
                 } else {
-                    redis.opsForSet().remove("feed:public:index:" + eid + ":" + hourSlot, key);
+                    redis.opsForSet().remove(FeedKeys.publicIndex(eid, hourSlot), key);
                 }
             }
         }
@@ -0,0 +1,55 @@
+package com.star.share.posts.schema;
+
+/**
+ * Redis key definitions for the feed caches.
+ *
+ * <p>Keys that are written and read together carry the same hash tag, so they stay in one
+ * Redis Cluster slot:</p>
+ * - the id list of a public page and its hasMore flag share {@code {size:hourSlot:page}};
+ * - all personal pages of a user share {@code {userId}}, so they are dropped with one DEL.
+ */
+public final class FeedKeys {
+    private FeedKeys() {
+        // Prevent instantiation
+    }
+
+    public static final int LAYOUT_VERSION = 1;
+
+    // Set of all cached public page keys
+    public static final String PUBLIC_PAGES = "feed:public:pages";
+
+    // Glob pattern covering every public feed key (pages, id lists, reverse index)
+    public static final String PUBLIC_PATTERN = "feed:public:*";
+
+    // Public page format: feed:public:size:page:v1
+    public static String publicPage(int size, int page) {
+        return "feed:public:" + size + ":" + page + ":v" + LAYOUT_VERSION;
+    }
+
+    // Id list format (List): feed:public:ids:{size:hourSlot:page}
+    public static String publicIds(int size, long hourSlot, int page) {
+        return "feed:public:ids:{" + size + ":" + hourSlot + ":" + page + "}";
+    }
+
+    public static String publicHasMore(int size, long hourSlot, int page) {
+        return publicIds(size, hourSlot, page) + ":hasMore";
+    }
+
+    // Reverse index format (Set of page keys): feed:public:index:postId:hourSlot
+    public static String publicIndex(String postId, long hourSlot) {
+        return "feed:public:index:" + postId + ":" + hourSlot;
+    }
+
+    public static String item(String postId) {
+        return "feed:item:" + postId;
+    }
+
+    // Personal page format: feed:mine:{userId}:size:page:v1
+    public static String minePage(long userId, int size, int page) {
+        return "feed:mine:{" + userId + "}:" + size + ":" + page + ":v" + LAYOUT_VERSION;
+    }
+
+    public static String minePattern(long userId) {
+        return "feed:mine:{" + userId + "}:*";
+    }
+}
@@ -26,7 +26,7 @@ public interface FeedCacheService {
     /**
      * Delete personal feed caches for a specific user, used when their content
      * changes affect their feed visibility.
-     * - keys pattern: "feed:mine:{userId}:*" for personal feed pages of the user
+     * - keys pattern: "feed:mine:{<userId>}:*" for personal feed pages of the user
      */
     void deleteMyFeedCache(long userId);
 
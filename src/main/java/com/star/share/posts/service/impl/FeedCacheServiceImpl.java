@@ -1,10 +1,9 @@
 package com.star.share.posts.service.impl;
 
-import java.util.Set;
-
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import com.star.share.common.redis.RedisKeyScanner;
+import com.star.share.posts.schema.FeedKeys;
 import com.star.share.posts.service.FeedCacheService;
 
 import lombok.RequiredArgsConstructor;
@@ -12,20 +11,17 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class FeedCacheServiceImpl implements FeedCacheService {
-    private final StringRedisTemplate redis;
+    private final RedisKeyScanner keyScanner;
 
     /**
      * Delete all feed page caches (public and personal) to ensure consistency after
      * content changes that affect feed visibility or ordering.
      * 
-     * - keys pattern: "feed:public:*" for public feed pages
+     * - keys pattern: "feed:public:*" for public feed pages, scanned on every master node
      */
     @Override
     public void deleteAllCache() {
-        Set<String> keys = redis.keys("feed:public:*");
-        if (keys != null && !keys.isEmpty()) {
-            redis.delete(keys);
-        }
+        keyScanner.delete(FeedKeys.PUBLIC_PATTERN);
     }
 
     /**
@@ -52,14 +48,11 @@ public class FeedCacheServiceImpl implements FeedCacheService {
     /**
      * Delete personal feed caches for a specific user, used when their content
      * changes affect their feed visibility.
-     * - keys pattern: "feed:mine:{userId}:*" for personal feed pages of the user
+     * - keys pattern: "feed:mine:{<userId>}:*" for personal feed pages of the user
      */
     @Override
     public void deleteMyFeedCache(long userId) {
-        Set<String> keys = redis.keys("feed:mine:" + userId + ":*");
-        if (keys != null && !keys.isEmpty()) {
-            redis.delete(keys);
-        }
+        keyScanner.delete(FeedKeys.minePattern(userId));
     }
 
     /**
@@ -67,7 +60,7 @@ public class FeedCacheServiceImpl implements FeedCacheService {
      * Deletes the user's personal feed caches immediately, then again after a short
      * delay.
      *
-     * - keys pattern: "feed:mine:{userId}:*" for personal feed pages of the user
+     * - keys pattern: "feed:mine:{<userId>}:*" for personal feed pages of the user
      * 
      * @param userId      the ID of the user whose personal feed caches should be
      *                    deleted
@@ -5,10 +5,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
@@ -16,12 +19,16 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.star.share.cache.hotkey.HotKeyDetector;
+import com.star.share.counter.entity.CounterSnapshot;
 import com.star.share.counter.service.CounterService;
 import com.star.share.posts.dao.PostMapper;
 import com.star.share.posts.entity.model.PostFeedRow;
 import com.star.share.posts.entity.vo.FeedItemResponse;
 import com.star.share.posts.entity.vo.FeedPageResponse;
+import com.star.share.posts.schema.FeedKeys;
 import com.star.share.posts.service.PostFeedService;
+import com.star.share.profile.pojo.ProfileResponse;
+import com.star.share.profile.service.ProfileService;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,15 +40,16 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PostFeedServiceImpl implements PostFeedService {
 
-    private final int LAYOUT_VERSION = 1;
+    private static final List<String> FEED_METRICS = List.of("like", "fav");
     private final Cache<String, FeedPageResponse> feedPublicCache;
     private final Cache<String, FeedPageResponse> feedMineCache;
-    private final ConcurrentHashMap<String, Object> singleFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ReentrantLock> singleFlight = new ConcurrentHashMap<>();
     private final PostMapper postMapper;
     private final CounterService counterService;
     private final HotKeyDetector hotKey;
     private final StringRedisTemplate redis;
     private final ObjectMapper objectMapper;
+    private final ProfileService profileService;
 
     public PostFeedServiceImpl(
             PostMapper mapper,
@@ -50,7 +58,8 @@ public class PostFeedServiceImpl implements PostFeedService {
             CounterService counterService,
             @Qualifier("feedPublicCache") Cache<String, FeedPageResponse> feedPublicCache,
             @Qualifier("feedMineCache") Cache<String, FeedPageResponse> feedMineCache,
-            HotKeyDetector hotKey) {
+            HotKeyDetector hotKey,
+            ProfileService profileService) {
         this.postMapper = mapper;
         this.redis = redis;
         this.objectMapper = objectMapper;
@@ -58,6 +67,7 @@ public class PostFeedServiceImpl implements PostFeedService {
         this.feedPublicCache = feedPublicCache;
         this.feedMineCache = feedMineCache;
         this.hotKey = hotKey;
+        this.profileService = profileService;
     }
 
     /**
@@ -78,8 +88,8 @@ public class PostFeedServiceImpl implements PostFeedService {
         String localPageKey = cacheKey(safePage, safeSize);
         long hourSlot = System.currentTimeMillis() / 3600000L;
 
-        String idsKey = "feed:public:ids:" + safeSize + ":" + hourSlot + ":" + safePage;
-        String hasMoreKey = "feed:public:ids:" + safeSize + ":" + hourSlot + ":" + safePage + ":hasMore";
+        String idsKey = FeedKeys.publicIds(safeSize, hourSlot, safePage);
+        String hasMoreKey = FeedKeys.publicHasMore(safeSize, hourSlot, safePage);
 
         // L1 : Using local cache to prevent cache stampede, with a short TTL of 60
         // seconds;
@@ -109,53 +119,55 @@ public class PostFeedServiceImpl implements PostFeedService {
             return redisCache;
         }
 
-        Object lock = singleFlight.computeIfAbsent(idsKey, k -> new Object());
+        // ReentrantLock rather than synchronized, so virtual threads waiting on the
+        // flight (or doing I/O under it) do not pin their carrier threads
+        ReentrantLock lock = singleFlight.computeIfAbsent(idsKey, k -> new ReentrantLock());
 
+        lock.lock();
         try {
-            synchronized (lock) {
-                // Double check after acquiring lock
-                FeedPageResponse again = assembleFromCache(idsKey, hasMoreKey, safePage, safeSize,
-                        currentUserIdNullable);
-                if (again != null) {
-                    feedPublicCache.put(localPageKey, again);
-
-                    if (again.items() != null) {
-                        for (FeedItemResponse item : again.items()) {
-                            recordItemHotKey(item.id());
-                        }
+            // Double check after acquiring lock
+            FeedPageResponse again = assembleFromCache(idsKey, hasMoreKey, safePage, safeSize,
+                    currentUserIdNullable);
+            if (again != null) {
+                feedPublicCache.put(localPageKey, again);
+
+                if (again.items() != null) {
+                    for (FeedItemResponse item : again.items()) {
+                        recordItemHotKey(item.id());
                     }
-                    log.info(
-                            "feed.public source=3tier(after-flight) localPageKey={} idsKey={} hasMoreKey={} page={} size={}",
-                            localPageKey, idsKey, hasMoreKey, safePage, safeSize);
-                    return again;
                 }
+                log.info(
+                        "feed.public source=3tier(after-flight) localPageKey={} idsKey={} hasMoreKey={} page={} size={}",
+                        localPageKey, idsKey, hasMoreKey, safePage, safeSize);
+                return again;
+            }
 
-                // Database retrieval,
-                int offset = (safePage - 1) * safeSize;
-                List<PostFeedRow> rows = postMapper.listFeedPublic(safeSize + 1, offset);
-                boolean hasMore = rows.size() > safeSize;
-                if (hasMore) {
-                    rows = rows.subList(0, safeSize);
-                }
+            // Database retrieval,
+            int offset = (safePage - 1) * safeSize;
+            List<PostFeedRow> rows = postMapper.listFeedPublic(safeSize + 1, offset);
+            boolean hasMore = rows.size() > safeSize;
+            if (hasMore) {
+                rows = rows.subList(0, safeSize);
+            }
 
-                // Building cache and response
-                List<FeedItemResponse> items = mapRowsToItems(rows, null, false);
+            // Building cache and response
+            List<FeedItemResponse> items = mapRowsToItems(rows, null, false);
 
-                FeedPageResponse responseForCache = new FeedPageResponse(items, safePage, safeSize, hasMore);
+            FeedPageResponse responseForCache = new FeedPageResponse(items, safePage, safeSize, hasMore);
 
-                // Segments of cache keys;
-                int baseTtl = 60;
-                int jitter = ThreadLocalRandom.current().nextInt(30);
-                Duration frTtl = Duration.ofSeconds(baseTtl + jitter);
+            // Segments of cache keys;
+            int baseTtl = 60;
+            int jitter = ThreadLocalRandom.current().nextInt(30);
+            Duration frTtl = Duration.ofSeconds(baseTtl + jitter);
 
-                writeToCache(localPageKey, idsKey, hasMoreKey, safeSize, rows, items, hasMore, frTtl);
-                feedPublicCache.put(localPageKey, responseForCache);
+            writeToCache(localPageKey, idsKey, hasMoreKey, safeSize, rows, items, hasMore, frTtl);
+            feedPublicCache.put(localPageKey, responseForCache);
 
-                List<FeedItemResponse> enriched = enrich(items, currentUserIdNullable);
-                return new FeedPageResponse(enriched, safePage, safeSize, hasMore);
-            }       
+            List<FeedItemResponse> enriched = enrich(items, currentUserIdNullable);
+            return new FeedPageResponse(enriched, safePage, safeSize, hasMore);
         } finally {
-            singleFlight.remove(idsKey);
+            lock.unlock();
+            singleFlight.remove(idsKey, lock);
         }
 
     }
@@ -167,7 +179,8 @@ public class PostFeedServiceImpl implements PostFeedService {
     public FeedPageResponse getMyFeed(long userId, int page, int size) {
         int safeSize = Math.min(Math.max(size, 1), 50);
         int safePage = Math.max(page, 1);
-        String key = cacheKey(safePage, safeSize);
+        // Personal pages are keyed per user, never share the public page key
+        String key = FeedKeys.minePage(userId, safeSize, safePage);
 
         FeedPageResponse localCache = feedMineCache.getIfPresent(key);
         if (localCache != null) {
@@ -230,7 +243,7 @@ public class PostFeedServiceImpl implements PostFeedService {
         // Construct cache keys for batch retrieval
         List<String> itemKeys = new ArrayList<>(idList.size());
         for (String id : idList) {
-            itemKeys.add("feed:item:" + id);
+            itemKeys.add(FeedKeys.item(id));
         }
         // Batch get from Redis
         List<String> itemJsons = redis.opsForValue().multiGet(itemKeys);
@@ -251,21 +264,19 @@ public class PostFeedServiceImpl implements PostFeedService {
             }
         }
 
+        List<CounterSnapshot> counters = snapshots(items.stream().map(FeedItemResponse::id).toList(),
+                FEED_METRICS, uid);
+
         List<FeedItemResponse> enriched = new ArrayList<>(idList.size());
-        for (int i = 0; i < idList.size(); i++) {
+        for (int i = 0; i < items.size(); i++) {
             FeedItemResponse base = items.get(i);
-            if (base == null) {
-                continue;
-            }
-
-            Map<String, Long> counts = counterService.getCounts("post", String.valueOf(base.id()),
-                    List.of("like", "fav"));
-            Long likeCount = counts.getOrDefault("like", 0L);
-            Long favoriteCount = counts.getOrDefault("fav", 0L);
+            CounterSnapshot c = counters.get(i);
+            Long likeCount = c.count("like");
+            Long favoriteCount = c.count("fav");
 
             // Determine if the current user has liked or favorited this post
-            boolean liked = uid != null && counterService.isLiked("post", base.id(), uid);
-            boolean faved = uid != null && counterService.isFaved("post", base.id(), uid);
+            boolean liked = c.liked();
+            boolean faved = c.faved();
 
             enriched.add(new FeedItemResponse(
                     base.id(),
@@ -289,6 +300,20 @@ public class PostFeedServiceImpl implements PostFeedService {
         return new FeedPageResponse(enriched, safePage, safeSize, hasMore);
     }
 
+    /**
+     * Reads the counters of all items with one pipelined multi-item snapshot, so a page costs
+     * one round trip and no executor task. When Redis fails or times out the page is still
+     * served, with unknown (null) counts.
+     */
+    private List<CounterSnapshot> snapshots(List<String> postIds, List<String> metrics, Long uid) {
+        try {
+            return counterService.snapshots("post", postIds, metrics, uid);
+        } catch (DataAccessException e) {
+            log.warn("feed counters unavailable items={}: {}", postIds.size(), e.getMessage());
+            return Collections.nCopies(postIds.size(), CounterSnapshot.UNAVAILABLE);
+        }
+    }
+
     private void recordItemHotKey(String itemId) {
         String hotKeyId = "post:" + itemId;
         hotKey.record(hotKeyId);
@@ -298,7 +323,7 @@ public class PostFeedServiceImpl implements PostFeedService {
 
         // Extend TTL in Redis if this item is becoming hot, to prevent it from being
         // evicted from cache
-        String itemKey = "feed:item:" + itemId;
+        String itemKey = FeedKeys.item(itemId);
         Long itemTtl = redis.getExpire(itemKey);
         if (itemTtl < target) {
             redis.expire(itemKey, Duration.ofSeconds(target));
@@ -310,10 +335,14 @@ public class PostFeedServiceImpl implements PostFeedService {
      */
     private List<FeedItemResponse> enrich(List<FeedItemResponse> base, Long uid) {
         List<FeedItemResponse> out = new ArrayList<>(base.size());
-
-        for (FeedItemResponse it : base) {
-            boolean liked = uid != null && counterService.isLiked("post", it.id(), uid);
-            boolean faved = uid != null && counterService.isFaved("post", it.id(), uid);
+        // Counts come from the cached page, only the user's bitmaps are read (nothing for anonymous users)
+        List<CounterSnapshot> counters = uid == null ? null
+                : snapshots(base.stream().map(FeedItemResponse::id).toList(), List.of(), uid);
+
+        for (int i = 0; i < base.size(); i++) {
+            FeedItemResponse it = base.get(i);
+            boolean liked = counters != null && counters.get(i).liked();
+            boolean faved = counters != null && counters.get(i).faved();
             out.add(new FeedItemResponse(
                     it.id(),
                     it.title(),
@@ -333,7 +362,7 @@ public class PostFeedServiceImpl implements PostFeedService {
     }
 
     /**
-     * Converts DB rows to feed items and enriches with counter service data.
+     * Converts DB rows to feed items, hydrates the authors and enriches with counter service data.
      *
      * @param rows           DB result rows
      * @param userIdNullable current user ID (for liked/faved check)
@@ -342,22 +371,25 @@ public class PostFeedServiceImpl implements PostFeedService {
      */
     private List<FeedItemResponse> mapRowsToItems(List<PostFeedRow> rows, Long userIdNullable, boolean includeIsTop) {
         List<FeedItemResponse> items = new ArrayList<>(rows.size());
-
-        for (PostFeedRow r : rows) {
+        // All authors of the page in one profile cache lookup instead of a join on users
+        Map<Long, ProfileResponse> authors = profileService.getProfiles(
+                rows.stream().map(PostFeedRow::getCreatorId).filter(Objects::nonNull).distinct().toList());
+        List<CounterSnapshot> counters = snapshots(rows.stream().map(r -> String.valueOf(r.getId())).toList(),
+                FEED_METRICS, userIdNullable);
+
+        for (int i = 0; i < rows.size(); i++) {
+            PostFeedRow r = rows.get(i);
             List<String> tags = parseStringArray(r.getTags());
             List<String> imgs = parseStringArray(r.getImgUrls());
             String cover = imgs.isEmpty() ? null : imgs.getFirst();
 
-            Map<String, Long> counts = counterService.getCounts("post", String.valueOf(r.getId()),
-                    List.of("like", "fav"));
-            Long likeCount = counts.getOrDefault("like", 0L);
-            Long favoriteCount = counts.getOrDefault("fav", 0L);
-
-            Boolean liked = userIdNullable != null
-                    && counterService.isLiked("post", String.valueOf(r.getId()), userIdNullable);
-            Boolean faved = userIdNullable != null
-                    && counterService.isFaved("post", String.valueOf(r.getId()), userIdNullable);
+            CounterSnapshot c = counters.get(i);
+            Long likeCount = c.count("like");
+            Long favoriteCount = c.count("fav");
+            Boolean liked = c.liked();
+            Boolean faved = c.faved();
             Boolean isTop = includeIsTop ? r.getIsTop() : null;
+            ProfileResponse author = r.getCreatorId() == null ? null : authors.get(r.getCreatorId());
 
             items.add(new FeedItemResponse(
                     String.valueOf(r.getId()),
@@ -365,9 +397,9 @@ public class PostFeedServiceImpl implements PostFeedService {
                     r.getDescription(),
                     cover,
                     tags,
-                    r.getAuthorAvatar(),
-                    r.getAuthorNickname(),
-                    r.getAuthorTagJson(),
+                    author == null ? null : author.avatar(),
+                    author == null ? null : author.nickname(),
+                    author == null ? null : author.tagJson(),
                     likeCount,
                     favoriteCount,
                     liked,
@@ -413,18 +445,18 @@ public class PostFeedServiceImpl implements PostFeedService {
 
         // Add this page to the set of pages for public feed, which can be used for
         // invalidation when a post is updated
-        redis.opsForSet().add("feed:public:pages", pageKey);
+        redis.opsForSet().add(FeedKeys.PUBLIC_PAGES, pageKey);
 
         for (FeedItemResponse it : items) {
             // Reverse index: create a "page reference relationship" for each content by
             // hour.
             long hourSlot = System.currentTimeMillis() / 3600000L;
-            String idxKey = "feed:public:index:" + it.id() + ":" + hourSlot;
+            String idxKey = FeedKeys.publicIndex(it.id(), hourSlot);
             redis.opsForSet().add(idxKey, pageKey);
             redis.expire(idxKey, frTtl);
 
             try {
-                String itemKey = "feed:item:" + it.id();
+                String itemKey = FeedKeys.item(it.id());
                 String itemJson = objectMapper.writeValueAsString(it);
                 redis.opsForValue().set(itemKey, itemJson, frTtl);
             } catch (Exception ignored) {
@@ -440,7 +472,7 @@ public class PostFeedServiceImpl implements PostFeedService {
      * @return cache key.
      */
     private String cacheKey(int page, int size) {
-        return "feed:public:" + size + ":" + page + ":v" + LAYOUT_VERSION;
+        return FeedKeys.publicPage(size, page);
 
     }
 
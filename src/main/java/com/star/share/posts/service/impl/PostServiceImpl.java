@@ -4,9 +4,9 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
@@ -15,8 +15,10 @@ import org.springframework.transaction.annotation.Transactional;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.star.share.cache.hotkey.HotKeyDetector;
+import com.star.share.common.concurrent.FanOut;
 import com.star.share.common.exception.BusinessException;
 import com.star.share.common.exception.ErrorCode;
+import com.star.share.counter.entity.CounterSnapshot;
 import com.star.share.counter.service.CounterService;
 import com.star.share.counter.service.UserCounterService;
 import com.star.share.oss.config.OSSProperties;
@@ -27,6 +29,8 @@ import com.star.share.posts.id.SnowflakeIdGenerator;
 import com.star.share.posts.service.FeedCacheService;
 import com.star.share.posts.service.PostService;
 import com.star.share.posts.entity.model.PostDetailRow;
+import com.star.share.profile.pojo.ProfileResponse;
+import com.star.share.profile.service.ProfileService;
 import lombok.RequiredArgsConstructor;
 
 @Service
@@ -37,12 +41,15 @@ public class PostServiceImpl implements PostService {
     private final FeedCacheService feedCacheService;
     private final StringRedisTemplate redis;
     private final static int DETAIL_LAYOUT_VER = 1;
+    private static final List<String> DETAIL_METRICS = List.of("like", "fav");
     private final UserCounterService userCounterService;
     private final ObjectMapper objectMapper;
     private final OSSProperties ossProperties;
     private final CounterService counterService;
-    private final ConcurrentHashMap<String, Object> singleFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ReentrantLock> singleFlight = new ConcurrentHashMap<>();
     private final HotKeyDetector hotKey;
+    private final FanOut fanOut;
+    private final ProfileService profileService;
 
     /**
      * Create a new post draft for the specified creator. The draft will be
@@ -246,212 +253,151 @@ public class PostServiceImpl implements PostService {
     @Transactional(readOnly = true)
     public PostDetailResponse getDetail(long id, Long currentUserIdNullable) {
         String pageKey = "post:detail" + id + ":v" + DETAIL_LAYOUT_VER;
-        String cached = redis.opsForValue().get(pageKey);
+        // The cached page and the live counters are independent reads, run them side by side
+        DetailRead read = fanOut.both(
+                () -> redis.opsForValue().get(pageKey),
+                () -> counterService.snapshot("post", String.valueOf(id), DETAIL_METRICS, currentUserIdNullable),
+                DetailRead::new);
+        String cached = read.page();
         if (cached != null) {
             if ("NULL".equals(cached)) {
                 throw new BusinessException(ErrorCode.BAD_REQUEST, "The post is not existed");
             }
-
-            try {
-
-                PostDetailResponse base = objectMapper.readValue(cached, PostDetailResponse.class);
-
+            PostDetailResponse base = readDetail(cached);
+            if (base != null) {
                 hotKey.record(pageKey);
                 maybeExtendTtlDetail(pageKey);
-
-                String cntKey = "feed:count:" + id;
-                String cntJson = redis.opsForValue().get(cntKey);
-                Long likeCount = base.likeCount();
-                Long favoriteCount = base.favoriteCount();
-
-                if (cntJson != null) {
-                    try {
-                        Map<String, Long> cm = objectMapper.readValue(cntJson, new TypeReference<Map<String, Long>>() {
-                        });
-                        likeCount = cm.getOrDefault("like", likeCount == null ? 0L : likeCount);
-                        favoriteCount = cm.getOrDefault("favorite", favoriteCount == null ? 0L : favoriteCount);
-                    } catch (Exception e) {
-                        // If parsing fails, we can ignore the error and use the counts from the base
-                        // response
-                    }
-                }
-
-                boolean liked = currentUserIdNullable != null
-                        && counterService.isLiked("post", String.valueOf(id), currentUserIdNullable);
-                boolean favorited = currentUserIdNullable != null
-                        && counterService.isFaved("post", String.valueOf(id), currentUserIdNullable);
-
-                return new PostDetailResponse(
-                        String.valueOf(id),
-                        base.title(),
-                        base.description(),
-                        base.contentUrl(),
-                        base.images(),
-                        base.tags(),
-                        base.authorId(),
-                        base.authorAvatar(),
-                        base.authorNickname(),
-                        base.authorTagJson(),
-                        likeCount,
-                        favoriteCount,
-                        liked,
-                        favorited,
-                        base.isTop(),
-                        base.visible(),
-                        base.type(),
-                        base.publishTime());
-            } catch (Exception e) {
+                // Counters past the fan-out deadline degrade to unknown counts
+                return withCounters(base, id,
+                        read.counters() != null ? read.counters() : CounterSnapshot.UNAVAILABLE);
             }
         }
 
-        Object lock = singleFlight.computeIfAbsent(pageKey, k -> new Object());
+        ReentrantLock lock = singleFlight.computeIfAbsent(pageKey, k -> new ReentrantLock());
 
         // Using try-finally to ensure that the singleFlight entry is removed after
-        // processing, preventing memory leaks
+        // processing, preventing memory leaks. ReentrantLock rather than synchronized:
+        // a virtual thread blocked on it (or doing I/O under it) does not pin its carrier.
+        lock.lock();
         try {
-            synchronized (lock) {
-                String again = redis.opsForValue().get(pageKey);
-                if (again != null && !"NULL".equals(again)) {
-                    try {
-                        PostDetailResponse base = objectMapper.readValue(again, PostDetailResponse.class);
-                        hotKey.record(pageKey);
-                        maybeExtendTtlDetail(pageKey);
-
-                        String cntKey = "feed:count:" + id;
-                        String cntJson = redis.opsForValue().get(cntKey);
-                        Long likeCount = base.likeCount();
-                        Long favoriteCount = base.favoriteCount();
-
-                        if (cntKey != null) {
-                            try {
-                                Map<String, Long> cm = objectMapper.readValue(cntJson,
-                                        new TypeReference<Map<String, Long>>() {
-                                        });
-                                likeCount = cm.getOrDefault("like", likeCount == null ? 0L : likeCount);
-                                favoriteCount = cm.getOrDefault("favorite", favoriteCount == null ? 0L : favoriteCount);
-                            } catch (Exception e) {
-                            }
-                        }
-
-                        boolean liked = currentUserIdNullable != null
-                                && counterService.isLiked("post", String.valueOf(id), currentUserIdNullable);
-                        boolean favorited = currentUserIdNullable != null
-                                && counterService.isFaved("post", String.valueOf(id), currentUserIdNullable);
-
-                        return new PostDetailResponse(
-                                String.valueOf(id),
-                                base.title(),
-                                base.description(),
-                                base.contentUrl(),
-                                base.images(),
-                                base.tags(),
-                                base.authorId(),
-                                base.authorAvatar(),
-                                base.authorNickname(),
-                                base.authorTagJson(),
-                                likeCount,
-                                favoriteCount,
-                                liked,
-                                favorited,
-                                base.isTop(),
-                                base.visible(),
-                                base.type(),
-                                base.publishTime());
-                    } catch (Exception e) {
-                    } finally {
-                        singleFlight.remove(pageKey);
-                    }
-                }
-
-                PostDetailRow row = postMapper.findDetailById(id);
-                if (row == null || "deleted".equals(row.getStatus())) {
-                    redis.opsForValue().set(pageKey, "NULL",
-                            Duration.ofSeconds(30 + ThreadLocalRandom.current().nextInt(31)));
-                    singleFlight.remove(pageKey);
-                    throw new BusinessException(ErrorCode.BAD_REQUEST, "The post is not existed");
-                }
-                boolean isPublic = "published".equals(row.getStatus()) && "public".equals(row.getVisible());
-                boolean isOwner = currentUserIdNullable != null && row.getCreatorId() != null
-                        && currentUserIdNullable.equals(row.getCreatorId());
-
-                if (!isPublic && !isOwner) {
-                    singleFlight.remove(pageKey);
-                    throw new BusinessException(ErrorCode.BAD_REQUEST, "The post is not authorized to access");
-                }
-
-                List<String> images = parseStringArray(row.getImgUrls());
-                List<String> tags = parseStringArray(row.getTags());
-                Map<String, Long> counts = counterService.getCounts("knowpost", String.valueOf(row.getId()),
-                        List.of("like", "fav"));
-                Long favoriteCount = counts.getOrDefault("fav", 0L);
-                Long likeCount = counts.getOrDefault("like", 0L);
-
-                PostDetailResponse detail = new PostDetailResponse(
-                        String.valueOf(row.getId()),
-                        row.getTitle(),
-                        row.getDescription(),
-                        row.getContentUrl(),
-                        images,
-                        tags,
-                        String.valueOf(row.getCreatorId()),
-                        row.getAuthorAvatar(),
-                        row.getAuthorNickname(),
-                        row.getAuthorTagJson(),
-                        likeCount,
-                        favoriteCount,
-                        null,
-                        null,
-                        row.getIsTop(),
-                        row.getVisible(),
-                        row.getType(),
-                        row.getPublishTime());
-
-                try {
-                    String json = objectMapper.writeValueAsString(detail);
-                    int baseTtl = 60;
-                    int jitter = ThreadLocalRandom.current().nextInt(30);
-                    int target = hotKey.ttlForPublic(baseTtl, pageKey);
-                    redis.opsForValue().set(pageKey, json, Duration.ofSeconds(Math.max(target, baseTtl + jitter)));
-
-                } catch (Exception e) {
-                }
-
-                boolean liked = currentUserIdNullable != null
-                        && counterService.isLiked("post", String.valueOf(id), currentUserIdNullable);
-                boolean favorited = currentUserIdNullable != null
-                        && counterService.isFaved("post", String.valueOf(id), currentUserIdNullable);
-                singleFlight.remove(pageKey);
-
-                return new PostDetailResponse(
-                        String.valueOf(row.getId()),
-                        detail.title(),
-                        detail.description(),
-                        detail.contentUrl(),
-                        detail.images(),
-                        detail.tags(),
-                        detail.authorId(),
-                        detail.authorAvatar(),
-                        detail.authorNickname(),
-                        detail.authorTagJson(),
-                        detail.likeCount(),
-                        detail.favoriteCount(),
-                        liked,
-                        favorited,
-                        detail.isTop(),
-                        detail.visible(),
-                        detail.type(),
-                        detail.publishTime());
+            String again = redis.opsForValue().get(pageKey);
+            if ("NULL".equals(again)) {
+                throw new BusinessException(ErrorCode.BAD_REQUEST, "The post is not existed");
+            }
+            PostDetailResponse cachedBase = again != null ? readDetail(again) : null;
+            if (cachedBase != null) {
+                hotKey.record(pageKey);
+                maybeExtendTtlDetail(pageKey);
+                return withLiveCounters(cachedBase, id, currentUserIdNullable);
+            }
+
+            PostDetailRow row = postMapper.findDetailById(id);
+            if (row == null || "deleted".equals(row.getStatus())) {
+                redis.opsForValue().set(pageKey, "NULL",
+                        Duration.ofSeconds(30 + ThreadLocalRandom.current().nextInt(31)));
+                throw new BusinessException(ErrorCode.BAD_REQUEST, "The post is not existed");
+            }
+            boolean isPublic = "published".equals(row.getStatus()) && "public".equals(row.getVisible());
+            boolean isOwner = currentUserIdNullable != null && row.getCreatorId() != null
+                    && currentUserIdNullable.equals(row.getCreatorId());
+
+            if (!isPublic && !isOwner) {
+                throw new BusinessException(ErrorCode.BAD_REQUEST, "The post is not authorized to access");
+            }
+
+            List<String> images = parseStringArray(row.getImgUrls());
+            List<String> tags = parseStringArray(row.getTags());
+
+            // Counts are not part of the cached layout, they are always read live from the counter store
+            ProfileResponse author = row.getCreatorId() == null ? null
+                    : profileService.getProfile(row.getCreatorId()).orElse(null);
+            PostDetailResponse detail = new PostDetailResponse(
+                    String.valueOf(row.getId()),
+                    row.getTitle(),
+                    row.getDescription(),
+                    row.getContentUrl(),
+                    images,
+                    tags,
+                    String.valueOf(row.getCreatorId()),
+                    author == null ? null : author.avatar(),
+                    author == null ? null : author.nickname(),
+                    author == null ? null : author.tagJson(),
+                    null,
+                    null,
+                    null,
+                    null,
+                    row.getIsTop(),
+                    row.getVisible(),
+                    row.getType(),
+                    row.getPublishTime());
+
+            try {
+                String json = objectMapper.writeValueAsString(detail);
+                int baseTtl = 60;
+                int jitter = ThreadLocalRandom.current().nextInt(30);
+                int target = hotKey.ttlForPublic(baseTtl, pageKey);
+                redis.opsForValue().set(pageKey, json, Duration.ofSeconds(Math.max(target, baseTtl + jitter)));
+
+            } catch (Exception e) {
             }
 
+            return withLiveCounters(detail, id, currentUserIdNullable);
         } finally {
-            singleFlight.remove(pageKey);
+            lock.unlock();
+            singleFlight.remove(pageKey, lock);
         }
 
     }
 
+    /**
+     * Fill the cached detail layout with live like/fav counts and the current
+     * user's like/fav state, read from the counter store in one pipelined call.
+     */
+    private PostDetailResponse withLiveCounters(PostDetailResponse base, long id, Long currentUserIdNullable) {
+        return withCounters(base, id,
+                counterService.snapshot("post", String.valueOf(id), DETAIL_METRICS, currentUserIdNullable));
+    }
+
+    private PostDetailResponse withCounters(PostDetailResponse base, long id, CounterSnapshot counters) {
+        return new PostDetailResponse(
+                String.valueOf(id),
+                base.title(),
+                base.description(),
+                base.contentUrl(),
+                base.images(),
+                base.tags(),
+                base.authorId(),
+                base.authorAvatar(),
+                base.authorNickname(),
+                base.authorTagJson(),
+                counters.count("like"),
+                counters.count("fav"),
+                counters.liked(),
+                counters.faved(),
+                base.isTop(),
+                base.visible(),
+                base.type(),
+                base.publishTime());
+    }
+
+    private record DetailRead(String page, CounterSnapshot counters) {
+    }
+
+    private PostDetailResponse readDetail(String json) {
+        try {
+            return objectMapper.readValue(json, PostDetailResponse.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     // Helper method to generate a public URL for content based on the object key
 
     private void maybeExtendTtlDetail(String pageKey) {
+        // Cold keys keep the TTL set at write time, skip the extra TTL round trip
+        if (hotKey.level(pageKey) == HotKeyDetector.Level.NONE) {
+            return;
+        }
         int baseTtl = 60;
         int target = hotKey.ttlForPublic(baseTtl, pageKey);
         Long currentTtl = redis.getExpire(pageKey);
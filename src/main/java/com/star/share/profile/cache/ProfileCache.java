@@ -0,0 +1,272 @@
+package com.star.share.profile.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.star.share.profile.pojo.ProfileResponse;
+import com.star.share.user.entity.User;
+import com.star.share.user.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Two-level user profile cache: Caffeine (L1) in front of Redis (L2) in front of {@code users}.
+ *
+ * <p>Reads are multi-gets:</p>
+ * - L1 hits are served from memory;
+ * - L1 misses are read from Redis with one pipelined GET pass (no MGET, keys span cluster slots);
+ * - what is still missing is loaded with a single {@code listByIds} IN query and written back;
+ * - unknown ids are cached as a one-byte tombstone so they do not hit MySQL again.
+ *
+ * <p>Redis values use a compact binary layout (version byte, id, length-prefixed UTF-8 fields)
+ * instead of JSON. {@link #invalidate(long)} drops both levels on this instance; other instances
+ * keep their L1 copy for at most {@code profile.cache.local-ttl-seconds}.</p>
+ */
+@Slf4j
+@Component
+public class ProfileCache {
+
+    private static final byte LAYOUT_V1 = 1;
+    private static final byte[] TOMBSTONE = {0};
+
+    private final StringRedisTemplate redis;
+    private final UserMapper userMapper;
+    private final Cache<Long, ProfileResponse> local;
+    private final long redisTtlSeconds;
+
+    public ProfileCache(StringRedisTemplate redis,
+                        UserMapper userMapper,
+                        @Value("${profile.cache.local-max-size:100000}") long localMaxSize,
+                        @Value("${profile.cache.local-ttl-seconds:30}") long localTtlSeconds,
+                        @Value("${profile.cache.redis-ttl-minutes:30}") long redisTtlMinutes) {
+        this.redis = redis;
+        this.userMapper = userMapper;
+        this.redisTtlSeconds = Duration.ofMinutes(redisTtlMinutes).toSeconds();
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+    }
+
+    public static String key(long userId) {
+        return "user:profile:v1:" + userId;
+    }
+
+    /**
+     * Profiles of the given users, keyed by id in request order; unknown ids are left out.
+     */
+    public Map<Long, ProfileResponse> getAll(Collection<Long> userIds) {
+        Map<Long, ProfileResponse> found = new LinkedHashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return found;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+
+        found.putAll(local.getAllPresent(ids));
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                misses.add(id);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            List<Long> dbMisses = readRedis(misses, found);
+            if (!dbMisses.isEmpty()) {
+                loadDb(dbMisses, found);
+            }
+        }
+
+        // Back to request order
+        Map<Long, ProfileResponse> out = new LinkedHashMap<>();
+        for (Long id : ids) {
+            ProfileResponse p = found.get(id);
+            if (p != null) {
+                out.put(id, p);
+            }
+        }
+        return out;
+    }
+
+    public ProfileResponse get(long userId) {
+        return getAll(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Drop a profile from both levels, call after the row was updated.
+     */
+    public void invalidate(long userId) {
+        local.invalidate(userId);
+        redis.delete(key(userId));
+    }
+
+    // Returns the ids Redis did not have, hits go into found and L1
+    private List<Long> readRedis(List<Long> ids, Map<Long, ProfileResponse> found) {
+        List<Object> raw;
+        try {
+            raw = redis.execute((RedisCallback<List<Object>>) c -> {
+                c.openPipeline();
+                for (Long id : ids) {
+                    c.stringCommands().get(bytes(key(id)));
+                }
+                return c.closePipeline();
+            });
+        } catch (Exception e) {
+            log.warn("profile cache read failed for {} ids: {}", ids.size(), e.getMessage());
+            return ids;
+        }
+
+        List<Long> misses = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object v = raw == null || i >= raw.size() ? null : raw.get(i);
+            if (!(v instanceof byte[] data)) {
+                misses.add(ids.get(i));
+                continue;
+            }
+            if (data.length <= 1) {
+                continue; // tombstone: user does not exist
+            }
+            ProfileResponse p = decode(data);
+            if (p == null) {
+                misses.add(ids.get(i));
+            } else {
+                found.put(ids.get(i), p);
+                local.put(ids.get(i), p);
+            }
+        }
+        return misses;
+    }
+
+    private void loadDb(List<Long> ids, Map<Long, ProfileResponse> found) {
+        Map<Long, ProfileResponse> loaded = new LinkedHashMap<>();
+        for (User u : userMapper.listByIds(ids)) {
+            loaded.put(u.getId(), toProfile(u));
+        }
+        found.putAll(loaded);
+        local.putAll(loaded);
+
+        try {
+            redis.execute((RedisCallback<Object>) c -> {
+                c.openPipeline();
+                for (Long id : ids) {
+                    ProfileResponse p = loaded.get(id);
+                    // Jittered TTL so profiles loaded together do not expire together
+                    long ttl = p == null ? 60 : redisTtlSeconds + ThreadLocalRandom.current().nextLong(60);
+                    c.stringCommands().set(bytes(key(id)), p == null ? TOMBSTONE : encode(p),
+                            Expiration.seconds(ttl), RedisStringCommands.SetOption.UPSERT);
+                }
+                c.closePipeline();
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("profile cache fill failed for {} ids: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    public static ProfileResponse toProfile(User u) {
+        return new ProfileResponse(
+                u.getId(),
+                u.getNickname(),
+                u.getAvatar(),
+                u.getBio(),
+                u.getZgId(),
+                u.getGender(),
+                u.getBirthday(),
+                u.getSchool(),
+                u.getPhone(),
+                u.getEmail(),
+                u.getTagsJson());
+    }
+
+    static byte[] encode(ProfileResponse p) {
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(buf);
+            out.writeByte(LAYOUT_V1);
+            out.writeLong(p.id());
+            writeString(out, p.nickname());
+            writeString(out, p.avatar());
+            writeString(out, p.bio());
+            writeString(out, p.zgId());
+            writeString(out, p.gender());
+            out.writeInt(p.birthday() == null ? Integer.MIN_VALUE : (int) p.birthday().toEpochDay());
+            writeString(out, p.school());
+            writeString(out, p.phone());
+            writeString(out, p.email());
+            writeString(out, p.tagJson());
+            return buf.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static ProfileResponse decode(byte[] data) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readByte() != LAYOUT_V1) {
+                return null;
+            }
+            long id = in.readLong();
+            String nickname = readString(in);
+            String avatar = readString(in);
+            String bio = readString(in);
+            String zgId = readString(in);
+            String gender = readString(in);
+            int epochDay = in.readInt();
+            LocalDate birthday = epochDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+            String school = readString(in);
+            String phone = readString(in);
+            String email = readString(in);
+            String tagJson = readString(in);
+            return new ProfileResponse(id, nickname, avatar, bio, zgId, gender, birthday, school, phone, email,
+                    tagJson);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // -1 length marks null
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
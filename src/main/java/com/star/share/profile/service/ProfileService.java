@@ -4,11 +4,20 @@ import com.star.share.profile.pojo.ProfilePatchRequest;
 import com.star.share.profile.pojo.ProfileResponse;
 import com.star.share.user.entity.User;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ProfileService {
 
     Optional<User> getById(long userId);
+
+    /** Cached profile of one user, empty if the user does not exist. */
+    Optional<ProfileResponse> getProfile(long userId);
+
+    /** Cached profiles of several users in one lookup, keyed by id in request order; unknown ids are left out. */
+    Map<Long, ProfileResponse> getProfiles(List<Long> userIds);
+
     ProfileResponse updateProfile(long userId, ProfilePatchRequest request);
 
     ProfileResponse updateAvatar(long userId, String url);
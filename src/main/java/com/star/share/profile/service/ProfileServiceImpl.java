@@ -2,6 +2,7 @@ package com.star.share.profile.service;
 
 import com.star.share.common.exception.BusinessException;
 import com.star.share.common.exception.ErrorCode;
+import com.star.share.profile.cache.ProfileCache;
 import com.star.share.profile.pojo.ProfilePatchRequest;
 import com.star.share.profile.pojo.ProfileResponse;
 import com.star.share.user.entity.User;
@@ -10,6 +11,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -21,6 +24,7 @@ import java.util.Optional;
 public class ProfileServiceImpl implements ProfileService {
 
     private final UserMapper userMapper;
+    private final ProfileCache profileCache;
 
     /**
      * Get User info by user ID
@@ -34,6 +38,29 @@ public class ProfileServiceImpl implements ProfileService {
         return Optional.ofNullable(userMapper.findById(userId));
     }
 
+    /**
+     * Get the cached profile of a user.
+     *
+     * @param userId User ID
+     * @return Optional of ProfileResponse, empty if not found
+     */
+    @Override
+    public Optional<ProfileResponse> getProfile(long userId) {
+        return Optional.ofNullable(profileCache.get(userId));
+    }
+
+    /**
+     * Get the cached profiles of several users with one batched lookup
+     * (local cache, then Redis, then a single IN query for the rest).
+     *
+     * @param userIds User IDs
+     * @return profiles keyed by user ID in request order
+     */
+    @Override
+    public Map<Long, ProfileResponse> getProfiles(List<Long> userIds) {
+        return profileCache.getAll(userIds);
+    }
+
     /**
      * Update user profile information. This method performs a partial update, meaning that only the fields provided in the request will be updated,
      * and the rest will remain unchanged.
@@ -77,6 +104,7 @@ public class ProfileServiceImpl implements ProfileService {
 
         User patch = updateUser(request, current);
         userMapper.updateProfile(patch);
+        profileCache.invalidate(userId);
 
         User user = userMapper.findById(userId);
 
@@ -102,6 +130,7 @@ public class ProfileServiceImpl implements ProfileService {
         patch.setId(current.getId());
         patch.setAvatar(url);
         userMapper.updateProfile(patch);
+        profileCache.invalidate(userId);
 
         return convertToProfileResponse(
                 userMapper.findById(userId)
@@ -153,18 +182,6 @@ public class ProfileServiceImpl implements ProfileService {
      * @return A ProfileResponse DTO containing the user's profile information to be sent back to the client
      */
     private static ProfileResponse convertToProfileResponse(User user) {
-        return new ProfileResponse(
-                user.getId(),
-                user.getNickname(),
-                user.getAvatar(),
-                user.getBio(),
-                user.getZgId(),
-                user.getGender(),
-                user.getBirthday(),
-                user.getSchool(),
-                user.getPhone(),
-                user.getEmail(),
-                user.getTagsJson()
-        );
+        return ProfileCache.toProfile(user);
     }
 }
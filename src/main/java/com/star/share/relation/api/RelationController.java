@@ -2,11 +2,13 @@ package com.star.share.relation.api;
 
 import org.springframework.web.bind.annotation.RestController;
 
-import com.star.share.auth.config.AuthProperties.Jwt;
 import com.star.share.auth.token.JwtService;
+import com.star.share.counter.schema.UserCounterKeys;
 import com.star.share.counter.service.UserCounterService;
 import com.star.share.profile.pojo.ProfileResponse;
 import com.star.share.relation.mapper.RelationMapper;
+import com.star.share.relation.pojo.FollowSuggestion;
+import com.star.share.relation.service.RelationGraphService;
 import com.star.share.relation.service.RelationService;
 
 import java.nio.charset.StandardCharsets;
@@ -18,6 +20,7 @@ import java.util.function.IntFunction;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -37,6 +40,7 @@ import lombok.RequiredArgsConstructor;
 public class RelationController {
 
     private final RelationService relationService;
+    private final RelationGraphService relationGraphService;
     private final JwtService jwtService;
     private final StringRedisTemplate redis;
     private final UserCounterService userCounterService;
@@ -54,7 +58,7 @@ public class RelationController {
     @PostMapping("/follow")
     public boolean follow(@RequestParam("toUserId") Long toUserId,
             @AuthenticationPrincipal Jwt jwt) {
-        long uid = jwtService.extractUserId(null);
+        long uid = jwtService.extractUserId(jwt);
         return relationService.follow(uid, toUserId);
     }
 
@@ -70,7 +74,7 @@ public class RelationController {
     @PostMapping("/unfollow")
     public boolean unfollow(@RequestParam("toUserId") Long toUserId,
             @AuthenticationPrincipal Jwt jwt) {
-        long uid = jwtService.extractUserId(null);
+        long uid = jwtService.extractUserId(jwt);
         return relationService.unfollow(uid, toUserId);
     }
 
@@ -85,10 +89,26 @@ public class RelationController {
     @GetMapping("/status")
     public Map<String, Boolean> status(@RequestParam("toUserId") long toUserId,
             @AuthenticationPrincipal Jwt jwt) {
-        long uid = jwtService.extractUserId(null);
+        long uid = jwtService.extractUserId(jwt);
         return relationService.relationsStatus(uid, toUserId);
     }
 
+    /**
+     * Endpoint to check in one call whether the authenticated user follows each of
+     * the given users, e.g. to render follow-back buttons on a follower list.
+     *
+     * @param toUserIds the IDs of the users to check (at most 200)
+     * @param jwt       the JWT token containing the authenticated user's information
+     * @return following flag per requested user ID
+     */
+    @GetMapping("/status/batch")
+    public Map<Long, Boolean> statusBatch(@RequestParam("toUserIds") List<Long> toUserIds,
+            @AuthenticationPrincipal Jwt jwt) {
+        long uid = jwtService.extractUserId(jwt);
+        List<Long> ids = toUserIds.size() > 200 ? toUserIds.subList(0, 200) : toUserIds;
+        return relationService.isFollowingBatch(uid, ids);
+    }
+
     @GetMapping("/following")
     public List<ProfileResponse> following(
             @RequestParam("userId") long userId,
@@ -110,6 +130,65 @@ public class RelationController {
         return relationService.followersProfiles(userId, l, Math.max(offset, 0), cursor);
     }
 
+    /**
+     * Endpoint to list the users that follow the authenticated user back.
+     *
+     * @param limit  page size (at most 100)
+     * @param offset number of results to skip
+     * @param jwt    the JWT token containing the authenticated user's information
+     * @return IDs of mutual follows, ordered by user ID
+     */
+    @GetMapping("/mutual")
+    public List<Long> mutual(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @AuthenticationPrincipal Jwt jwt) {
+        long uid = jwtService.extractUserId(jwt);
+        int l = Math.min(Math.max(limit, 1), 100);
+        return relationGraphService.mutualFollows(uid, l, Math.max(offset, 0));
+    }
+
+    /**
+     * Endpoint to list the users followed by both the authenticated user and another user.
+     *
+     * @param userId the ID of the other user
+     * @param limit  page size (at most 100)
+     * @param offset number of results to skip
+     * @param jwt    the JWT token containing the authenticated user's information
+     * @return total count (all common followings, not capped by the listable max-results) and one page of them
+     */
+    @GetMapping("/common")
+    public Map<String, Object> common(
+            @RequestParam("userId") long userId,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @AuthenticationPrincipal Jwt jwt) {
+        long uid = jwtService.extractUserId(jwt);
+        int l = Math.min(Math.max(limit, 1), 100);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("total", relationGraphService.commonFollowingCount(uid, userId));
+        map.put("userIds", relationGraphService.commonFollowings(uid, userId, l, Math.max(offset, 0)));
+        return map;
+    }
+
+    /**
+     * Endpoint to suggest users followed by the people the authenticated user follows.
+     *
+     * @param limit  page size (at most 100)
+     * @param offset number of results to skip
+     * @param jwt    the JWT token containing the authenticated user's information
+     * @return suggestions, most shared first
+     */
+    @GetMapping("/suggestions")
+    public List<FollowSuggestion> suggestions(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @AuthenticationPrincipal Jwt jwt) {
+        long uid = jwtService.extractUserId(jwt);
+        int l = Math.min(Math.max(limit, 1), 100);
+        return relationGraphService.suggestions(uid, l, Math.max(offset, 0));
+    }
+
     /**
      * Endpoint to retrieve various counters related to a user, such as the number of
      * followings, followers, posts, liked posts, and favorite posts. The method
@@ -123,7 +202,7 @@ public class RelationController {
     @GetMapping("/counters")
     public Map<String, Long> counters(@RequestParam("userId") long userId) {
         byte[] raw = redis.execute((RedisCallback<byte[]>) conn -> conn.stringCommands()
-                .get(("ucnt:" + userId).getBytes(StandardCharsets.UTF_8)));
+                .get(UserCounterKeys.sdsKey(userId).getBytes(StandardCharsets.UTF_8)));
 
         if (raw == null) {
             // TODO: Rebulid the cache if not exist, currently just return 0
@@ -150,7 +229,7 @@ public class RelationController {
         long sdsFollowings = read.apply(1);
         long sdsFollowers = read.apply(2);
 
-        String chkKey = "ucnt:chk:" + userId;
+        String chkKey = UserCounterKeys.checkKey(userId);
 
         // Using Sampled Redis-based locking to ensure that only one request will
         // trigger the consistency check and potential rebuild of the counters for a
@@ -182,7 +261,7 @@ public class RelationController {
                 }
 
                 byte[] raw2 = redis.execute((RedisCallback<byte[]>) c -> c.stringCommands()
-                        .get(("ucnt:" + userId).getBytes(StandardCharsets.UTF_8)));
+                        .get(UserCounterKeys.sdsKey(userId).getBytes(StandardCharsets.UTF_8)));
                 if (raw2 != null && raw2.length >= 20) {
                     final byte[] buf2 = raw2;
                     IntFunction<Long> r2 = idx -> {
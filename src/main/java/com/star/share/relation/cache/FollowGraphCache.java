@@ -0,0 +1,272 @@
+package com.star.share.relation.cache;
+
+import com.star.share.relation.mapper.RelationMapper;
+import com.star.share.relation.schema.RelationKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Follow-edge membership cache: one Redis Set per user holding all followee ids.
+ *
+ * <p>Behavior:</p>
+ * - a set is either complete or absent, so a missing member really means "not following";
+ * - a miss loads the whole following list once, membership checks afterwards are a single
+ *   script call no matter how many ids are asked;
+ * - users following more than {@code relation.edge-cache.max-load} ids are marked as
+ *   overflow and answered from MySQL with one IN query;
+ * - follow/unfollow only patch sets that already exist, a cold set is never half-filled;
+ * - every patch bumps a per-user version, and a load only fills the set (DEL + SADD + EXPIRE in one
+ *   script) when the version is still the one read before the MySQL query, so an edge changed
+ *   while loading can never be overwritten by the older list.
+ */
+@Slf4j
+@Component
+public class FollowGraphCache {
+
+    // Keeps an empty following list cacheable, and never parses as a user id
+    private static final String EMPTY_MARKER = "-";
+    private static final String OVERFLOW_MARKER = "!";
+    // Outlives any load by far; a version that expired and restarted could only collide after that
+    private static final Duration VERSION_TTL = Duration.ofDays(1);
+
+    private final StringRedisTemplate redis;
+    private final RelationMapper relationMapper;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> membersScript;
+    private final DefaultRedisScript<Long> patchScript;
+    private final DefaultRedisScript<Long> loadScript;
+    private final Duration ttl;
+    private final int maxLoad;
+
+    public FollowGraphCache(StringRedisTemplate redis,
+                            RelationMapper relationMapper,
+                            @Value("${relation.edge-cache.ttl-minutes:30}") long ttlMinutes,
+                            @Value("${relation.edge-cache.max-load:5000}") int maxLoad) {
+        this.redis = redis;
+        this.relationMapper = relationMapper;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.maxLoad = maxLoad;
+
+        this.membersScript = new DefaultRedisScript<>();
+        this.membersScript.setResultType(List.class);
+        this.membersScript.setScriptText(MEMBERS_LUA);
+
+        this.patchScript = new DefaultRedisScript<>();
+        this.patchScript.setResultType(Long.class);
+        this.patchScript.setScriptText(PATCH_LUA);
+
+        this.loadScript = new DefaultRedisScript<>();
+        this.loadScript.setResultType(Long.class);
+        this.loadScript.setScriptText(LOAD_LUA);
+    }
+
+    /**
+     * Check for every id in {@code toUserIds} whether {@code fromUserId} follows it.
+     *
+     * @return map keyed by the asked ids, in request order
+     */
+    public Map<Long, Boolean> isFollowing(long fromUserId, List<Long> toUserIds) {
+        Map<Long, Boolean> out = new LinkedHashMap<>();
+        if (toUserIds == null || toUserIds.isEmpty()) {
+            return out;
+        }
+
+        String key = RelationKeys.followingEdges(fromUserId);
+        List<?> bits = members(key, toUserIds);
+        if (bits == null) {
+            // Cold set: load it once, then ask again
+            load(fromUserId, key);
+            bits = members(key, toUserIds);
+        }
+
+        if (bits == null || bits.size() != toUserIds.size()) {
+            // Overflow (or the set expired again): one IN query instead of N lookups
+            Set<Long> hits = new HashSet<>(relationMapper.listFollowingIn(fromUserId, toUserIds));
+            for (Long id : toUserIds) {
+                out.put(id, hits.contains(id));
+            }
+            return out;
+        }
+
+        for (int i = 0; i < toUserIds.size(); i++) {
+            out.put(toUserIds.get(i), Long.valueOf(1L).equals(bits.get(i)));
+        }
+        return out;
+    }
+
+    /**
+     * Sorted followee ids of a user, loading the cached set when cold.
+     *
+     * @return null when the user follows more than max-load ids (overflow)
+     */
+    public long[] followees(long userId) {
+        return followees(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Sorted followee ids of several users, read with one pipelined SMEMBERS pass.
+     * Cold sets are loaded one by one; overflowing users map to null.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, long[]> followees(List<Long> userIds) {
+        Map<Long, long[]> out = new LinkedHashMap<>();
+        if (userIds.isEmpty()) {
+            return out;
+        }
+        List<Object> sets = redis.executePipelined((RedisCallback<Object>) c -> {
+            for (Long uid : userIds) {
+                c.setCommands().sMembers(RelationKeys.followingEdges(uid).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        for (int i = 0; i < userIds.size(); i++) {
+            long uid = userIds.get(i);
+            Set<String> members = (Set<String>) sets.get(i);
+            if (members == null || members.isEmpty()) {
+                // Serve the loaded list itself, it is correct even when the fill was skipped
+                members = new HashSet<>(load(uid, RelationKeys.followingEdges(uid)));
+            }
+            out.put(uid, toSortedIds(members));
+        }
+        return out;
+    }
+
+    /**
+     * Add an edge to an already cached set, no-op when the set is cold.
+     */
+    public void onFollow(long fromUserId, long toUserId) {
+        patch(fromUserId, toUserId, "add");
+    }
+
+    /**
+     * Remove an edge from an already cached set, no-op when the set is cold.
+     */
+    public void onUnfollow(long fromUserId, long toUserId) {
+        patch(fromUserId, toUserId, "remove");
+    }
+
+    /**
+     * Queue the same conditional patch on an open, typically pipelined, connection.
+     */
+    public void queuePatch(RedisConnection connection, long fromUserId, long toUserId, boolean follow) {
+        connection.scriptingCommands().eval(PATCH_LUA.getBytes(StandardCharsets.UTF_8), ReturnType.INTEGER, 2,
+                RelationKeys.followingEdges(fromUserId).getBytes(StandardCharsets.UTF_8),
+                RelationKeys.followingEdgesVersion(fromUserId).getBytes(StandardCharsets.UTF_8),
+                String.valueOf(toUserId).getBytes(StandardCharsets.UTF_8),
+                (follow ? "add" : "remove").getBytes(StandardCharsets.UTF_8),
+                String.valueOf(VERSION_TTL.toMillis()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<?> members(String key, List<Long> toUserIds) {
+        Object[] args = toUserIds.stream().map(String::valueOf).toArray();
+        return redis.execute(membersScript, List.of(key), args);
+    }
+
+    private void patch(long fromUserId, long toUserId, String op) {
+        try {
+            redis.execute(patchScript,
+                    List.of(RelationKeys.followingEdges(fromUserId), RelationKeys.followingEdgesVersion(fromUserId)),
+                    String.valueOf(toUserId), op, String.valueOf(VERSION_TTL.toMillis()));
+        } catch (Exception e) {
+            // Fall back to expiring the set, the next read reloads it from MySQL
+            log.warn("follow edge patch failed from={} to={} op={}: {}", fromUserId, toUserId, op, e.getMessage());
+            redis.delete(RelationKeys.followingEdges(fromUserId));
+        }
+    }
+
+    private static long[] toSortedIds(Set<String> members) {
+        if (members == null || members.contains(OVERFLOW_MARKER)) {
+            return null;
+        }
+        long[] ids = new long[members.size()];
+        int n = 0;
+        for (String m : members) {
+            if (!EMPTY_MARKER.equals(m)) {
+                ids[n++] = Long.parseLong(m);
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Load the following list from MySQL and cache it, unless a patch ran meanwhile.
+     *
+     * @return the loaded members, markers included
+     */
+    private List<String> load(long fromUserId, String key) {
+        String versionKey = RelationKeys.followingEdgesVersion(fromUserId);
+        String version = redis.opsForValue().get(versionKey);
+        List<Long> ids = relationMapper.listFollowing(fromUserId, maxLoad + 1, 0);
+        List<String> members = new ArrayList<>(ids.size() + 1);
+        if (ids.size() > maxLoad) {
+            members.add(OVERFLOW_MARKER);
+        } else {
+            members.add(EMPTY_MARKER);
+            for (Long id : ids) {
+                members.add(String.valueOf(id));
+            }
+        }
+        List<String> args = new ArrayList<>(members.size() + 2);
+        args.add(version == null ? "" : version);
+        args.add(String.valueOf(ttl.toMillis()));
+        args.addAll(members);
+        Long filled = redis.execute(loadScript, List.of(key, versionKey), args.toArray());
+        if (filled == null || filled == 0L) {
+            log.debug("follow edge load skipped, set changed while loading user={}", fromUserId);
+        }
+        return members;
+    }
+
+    // nil: set not cached; {}: overflow marker; otherwise one 0/1 per asked id
+    private static final String MEMBERS_LUA = """
+            local key = KEYS[1]
+            if redis.call('EXISTS', key) == 0 then return nil end
+            if redis.call('SISMEMBER', key, '!') == 1 then return {} end
+            local out = {}
+            for i = 1, #ARGV do out[i] = redis.call('SISMEMBER', key, ARGV[i]) end
+            return out
+            """;
+
+    // KEYS: edge set, version; ARGV: member, add|remove, version ttl ms. Bumps the version even when cold.
+    private static final String PATCH_LUA = """
+            local key = KEYS[1]
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[3])
+            if redis.call('EXISTS', key) == 0 then return 0 end
+            if redis.call('SISMEMBER', key, '!') == 1 then return 0 end
+            if ARGV[2] == 'add' then
+              return redis.call('SADD', key, ARGV[1])
+            end
+            return redis.call('SREM', key, ARGV[1])
+            """;
+
+    // KEYS: edge set, version; ARGV: version read before the query ('' if none), ttl ms, members...
+    // Replaces the set in one step, or does nothing (0) when a patch bumped the version meanwhile.
+    private static final String LOAD_LUA = """
+            if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then return 0 end
+            redis.call('DEL', KEYS[1])
+            for i = 3, #ARGV, 5000 do
+              redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 4999, #ARGV)))
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """;
+}
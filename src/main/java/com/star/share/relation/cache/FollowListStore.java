@@ -0,0 +1,296 @@
+package com.star.share.relation.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.star.share.common.exception.BusinessException;
+import com.star.share.common.exception.ErrorCode;
+import com.star.share.counter.schema.UserCounterKeys;
+import com.star.share.relation.entity.FollowListRow;
+import com.star.share.relation.mapper.RelationMapper;
+import com.star.share.relation.schema.RelationKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tiered store for following/follower lists, built for accounts with millions of followers.
+ *
+ * <p>A list is cut into fixed windows of {@code relation.list.window-size} entries, window k
+ * holding positions [k * size, (k + 1) * size) newest first. Tiers, fastest first:</p>
+ * - local: {@code long[]} segments, only for accounts above {@code relation.list.big-account-threshold};
+ * - Redis: one ZSET per window (score = follow time), filled on demand, window 0 is patched by
+ *   the relation event processor, deeper windows simply expire;
+ * - MySQL: keyset queries on (created_at, user id), never OFFSET over the rows themselves.
+ *
+ * <p>A cold window is loaded with a keyset query from the tail of the previous window, loading
+ * (and caching) that one first when needed, so no query ever skips rows with OFFSET. Offset
+ * pages are therefore limited to {@code relation.list.max-offset}; deeper reads use the cursor.</p>
+ */
+@Slf4j
+@Component
+public class FollowListStore {
+
+    public enum Side { FOLLOWING, FOLLOWERS }
+
+    // Scores are follow times, so the marker always sorts last; present only in the last window
+    private static final String END_MARKER = "end";
+    private static final double END_SCORE = -1D;
+    private static final Duration HEAD_TTL = Duration.ofHours(2);
+
+    private final StringRedisTemplate redis;
+    private final RelationMapper relationMapper;
+    private final Cache<String, Segment> segments;
+    private final int windowSize;
+    private final Duration windowTtl;
+    private final long bigAccountThreshold;
+    private final int maxOffset;
+
+    public FollowListStore(StringRedisTemplate redis,
+                           RelationMapper relationMapper,
+                           @Value("${relation.list.window-size:500}") int windowSize,
+                           @Value("${relation.list.window-ttl-minutes:10}") long windowTtlMinutes,
+                           @Value("${relation.list.big-account-threshold:100000}") long bigAccountThreshold,
+                           @Value("${relation.list.local-max-ids:2000000}") long localMaxIds,
+                           @Value("${relation.list.local-ttl-seconds:60}") long localTtlSeconds,
+                           @Value("${relation.list.max-offset:10000}") int maxOffset) {
+        this.redis = redis;
+        this.relationMapper = relationMapper;
+        this.windowSize = Math.max(windowSize, 1);
+        this.windowTtl = Duration.ofMinutes(windowTtlMinutes);
+        this.bigAccountThreshold = bigAccountThreshold;
+        this.maxOffset = Math.max(maxOffset, 0);
+        this.segments = Caffeine.newBuilder()
+                .maximumWeight(localMaxIds)
+                .weigher((String k, Segment s) -> Math.max(s.size(), 1))
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Offset page of a list, served window by window.
+     * @throws BusinessException BAD_REQUEST beyond {@code relation.list.max-offset}
+     */
+    public List<Long> page(long userId, Side side, int offset, int limit) {
+        int pos = Math.max(offset, 0);
+        if (pos > maxOffset) {
+            throw new BusinessException(ErrorCode.BAD_REQUEST,
+                    "offset above " + maxOffset + ", page on with the cursor instead");
+        }
+        List<Long> out = new ArrayList<>(limit);
+        boolean local = isBigAccount(userId, side);
+        while (out.size() < limit) {
+            int w = pos / windowSize;
+            Segment seg = window(userId, side, w, local);
+            int from = pos - w * windowSize;
+            int to = Math.min(seg.size(), from + limit - out.size());
+            for (int i = from; i < to; i++) {
+                out.add(seg.ids()[i]);
+            }
+            // Done when the page is full or the list ends; a window shrunk by unfollows just moves on
+            if (to < seg.size() || seg.last()) {
+                break;
+            }
+            pos = (w + 1) * windowSize;
+        }
+        return out;
+    }
+
+    /**
+     * Keyset page of a list: the entries right after {@code cursor}, read straight from MySQL.
+     *
+     * <p>The cursor is the last user id of the previous page. Older clients still send the follow
+     * time (epoch ms) of that entry; a value that never was a relation of the user is read that way,
+     * returning the entries followed at or before it.</p>
+     */
+    public List<Long> pageAfter(long userId, Side side, long cursor, int limit) {
+        Instant afterTs = side == Side.FOLLOWERS
+                ? relationMapper.followerCreatedAt(userId, cursor)
+                : relationMapper.followingCreatedAt(userId, cursor);
+        long afterId = cursor;
+        if (afterTs == null) {
+            if (cursor <= 0) {
+                return List.of();
+            }
+            afterTs = Instant.ofEpochMilli(cursor).plusMillis(1);
+            afterId = Long.MIN_VALUE;
+        }
+        List<FollowListRow> rows = keyset(userId, side, afterTs, afterId, limit);
+        List<Long> out = new ArrayList<>(rows.size());
+        for (FollowListRow r : rows) {
+            out.add(r.getUserId());
+        }
+        return out;
+    }
+
+    /**
+     * Queue the window-0 patches of one follow/unfollow on an open, typically pipelined, connection.
+     * Only lists that are already cached change; an add trims the window back to its size.
+     */
+    public void queuePatch(RedisConnection connection, long fromUserId, long toUserId, boolean follow, long now) {
+        patch(connection, RelationKeys.followingZSet(fromUserId), toUserId, follow, now);
+        patch(connection, RelationKeys.followersZSet(toUserId), fromUserId, follow, now);
+    }
+
+    private void patch(RedisConnection connection, String key, long member, boolean follow, long now) {
+        connection.scriptingCommands().eval(PATCH_LUA.getBytes(StandardCharsets.UTF_8), ReturnType.INTEGER, 1,
+                bytes(key),
+                bytes(String.valueOf(member)),
+                bytes(String.valueOf(now)),
+                bytes(follow ? "add" : "remove"),
+                bytes(String.valueOf(windowSize)));
+    }
+
+    private Segment window(long userId, Side side, int w, boolean local) {
+        String localKey = side.ordinal() + ":" + userId + ":" + w;
+        if (local) {
+            Segment cached = segments.getIfPresent(localKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String key = windowKey(userId, side, w);
+        Segment seg = read(key);
+        if (seg == null) {
+            seg = load(userId, side, w, local);
+            write(key, seg, w == 0 ? HEAD_TTL : windowTtl);
+        }
+        if (local) {
+            segments.put(localKey, seg);
+        }
+        return seg;
+    }
+
+    private Segment load(long userId, Side side, int w, boolean local) {
+        Instant afterTs = null;
+        Long afterId = null;
+        if (w > 0) {
+            // Chain from the previous window, loading it first when it is cold; depth is bounded by max-offset
+            Segment prev = window(userId, side, w - 1, local);
+            if (prev.last() || prev.size() == 0) {
+                return Segment.END;
+            }
+            afterTs = Instant.ofEpochMilli(prev.scores()[prev.size() - 1]);
+            afterId = prev.ids()[prev.size() - 1];
+        }
+
+        List<FollowListRow> rows = keyset(userId, side, afterTs, afterId, windowSize);
+        long[] ids = new long[rows.size()];
+        long[] scores = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            ids[i] = rows.get(i).getUserId();
+            scores[i] = rows.get(i).getCreatedAt().toEpochMilli();
+        }
+        return new Segment(ids, scores, rows.size() < windowSize);
+    }
+
+    private List<FollowListRow> keyset(long userId, Side side, Instant afterTs, Long afterId, int limit) {
+        return side == Side.FOLLOWERS
+                ? relationMapper.listFollowerKeyset(userId, afterTs, afterId, limit)
+                : relationMapper.listFollowingKeyset(userId, afterTs, afterId, limit);
+    }
+
+    private Segment read(String key) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = redis.opsForZSet().reverseRangeWithScores(key, 0, -1);
+        if (tuples == null || tuples.isEmpty()) {
+            return null;
+        }
+        long[] ids = new long[tuples.size()];
+        long[] scores = new long[tuples.size()];
+        int n = 0;
+        boolean last = false;
+        for (ZSetOperations.TypedTuple<String> t : tuples) {
+            if (END_MARKER.equals(t.getValue())) {
+                last = true;
+                continue;
+            }
+            ids[n] = Long.parseLong(t.getValue());
+            scores[n] = t.getScore() == null ? 0L : t.getScore().longValue();
+            n++;
+        }
+        return n == ids.length ? new Segment(ids, scores, last)
+                : new Segment(Arrays.copyOf(ids, n), Arrays.copyOf(scores, n), last);
+    }
+
+    private void write(String key, Segment seg, Duration ttl) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(seg.size() + 1);
+        for (int i = 0; i < seg.size(); i++) {
+            tuples.add(new DefaultTypedTuple<>(String.valueOf(seg.ids()[i]), (double) seg.scores()[i]));
+        }
+        if (seg.last()) {
+            tuples.add(new DefaultTypedTuple<>(END_MARKER, END_SCORE));
+        }
+        try {
+            redis.opsForZSet().add(key, tuples);
+            redis.expire(key, ttl);
+        } catch (Exception e) {
+            // The page is still served from MySQL, the next read retries the fill
+            log.warn("follow list window fill failed key={}: {}", key, e.getMessage());
+        }
+    }
+
+    private static String windowKey(long userId, Side side, int w) {
+        return side == Side.FOLLOWERS
+                ? RelationKeys.followersWindow(userId, w)
+                : RelationKeys.followingWindow(userId, w);
+    }
+
+    // Big accounts are read from the packed user counters, no extra query
+    private boolean isBigAccount(long userId, Side side) {
+        byte[] raw = redis.execute((RedisCallback<byte[]>) c -> c.stringCommands()
+                .get(bytes(UserCounterKeys.sdsKey(userId))));
+        if (raw == null || raw.length < 20) {
+            return false;
+        }
+        int idx = side == Side.FOLLOWERS ? UserCounterKeys.IDX_FOLLOWERS : UserCounterKeys.IDX_FOLLOWINGS;
+        long n = 0;
+        int off = (idx - 1) * 4;
+        for (int i = 0; i < 4; i++) {
+            n = (n << 8) | (raw[off + i] & 0xFFL);
+        }
+        return n >= bigAccountThreshold;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One window of a list: parallel primitive arrays, no boxing.
+     */
+    private record Segment(long[] ids, long[] scores, boolean last) {
+        static final Segment END = new Segment(new long[0], new long[0], true);
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    // ARGV: member, score, add|remove, window size
+    private static final String PATCH_LUA = """
+            local key = KEYS[1]
+            if redis.call('EXISTS', key) == 0 then return 0 end
+            if ARGV[3] == 'add' then
+              redis.call('ZADD', key, ARGV[2], ARGV[1])
+              local extra = redis.call('ZCARD', key) - tonumber(ARGV[4])
+              if extra > 0 then redis.call('ZREMRANGEBYRANK', key, 0, extra - 1) end
+              return 1
+            end
+            return redis.call('ZREM', key, ARGV[1])
+            """;
+}
@@ -0,0 +1,17 @@
+package com.star.share.relation.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One follow relationship, used for multi-row follower writes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FollowEdge {
+    private Long id;
+    private Long fromUserId;
+    private Long toUserId;
+}
@@ -0,0 +1,15 @@
+package com.star.share.relation.entity;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * One entry of a following/follower list: the other user and the follow time,
+ * which together form the keyset (created_at, user id) used for pagination.
+ */
+@Data
+public class FollowListRow {
+    private Long userId;
+    private Instant createdAt;
+}
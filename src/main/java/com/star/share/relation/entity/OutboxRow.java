@@ -0,0 +1,15 @@
+package com.star.share.relation.entity;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * One unsent row of the outbox table, as read by the polling relay.
+ */
+@Data
+public class OutboxRow {
+    private Long id;
+    private String payload;
+    private Instant createdAt;
+}
@@ -1,7 +1,10 @@
 package com.star.share.relation.mapper;
 
+import com.star.share.relation.entity.OutboxRow;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 @Mapper
 public interface OutboxMapper {
 
@@ -12,11 +15,32 @@ public interface OutboxMapper {
      * @param aggregateId the unique identifier of the aggregate root associated with the event
      * @param type the type of the event
      * @param payload the serialized payload of the event
+     * @param shardBucket polling relay shard of the event, see {@code OutboxMessageUtil.shardBucket}
      * @return the number of rows affected by the insert operation
      */
     int insert(@Param("id") Long id,
                @Param("aggregateType") String aggregateType,
                @Param("aggregateId") Long aggregateId,
                @Param("type") String type,
-               @Param("payload") String payload);
+               @Param("payload") String payload,
+               @Param("shardBucket") int shardBucket);
+
+    /**
+     * LIST a batch of unsent outbox rows in the shard buckets [fromBucket, toBucket), oldest first.
+     * No row locks: only the one active relay of a shard reads it.
+     * @param fromBucket inclusive lower bound of the shard
+     * @param toBucket exclusive upper bound of the shard
+     * @param limit the maximum number of rows to return
+     * @return the unsent rows
+     */
+    List<OutboxRow> listUnsent(@Param("fromBucket") int fromBucket,
+                               @Param("toBucket") int toBucket,
+                               @Param("limit") int limit);
+
+    /**
+     * MARK outbox rows as published.
+     * @param ids the outbox row ids
+     * @return the number of rows affected by the update operation
+     */
+    int markSent(@Param("ids") List<Long> ids);
 }
@@ -1,9 +1,12 @@
 package com.star.share.relation.mapper;
 
+import com.star.share.relation.entity.FollowEdge;
+import com.star.share.relation.entity.FollowListRow;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -54,6 +57,22 @@ public interface RelationMapper {
     int cancelFollower(@Param("toUserId") Long toUserId,
                        @Param("fromUserId") Long fromUserId);
 
+    /**
+     * INSERT (or reactivate) many FOLLOWER relationships with one multi-row statement.
+     * @param rows the relationships to write, row id = follow event id
+     * @param relStatus the status of the relationships
+     * @return the number of rows affected by the insert operation
+     */
+    int insertFollowers(@Param("rows") List<FollowEdge> rows,
+                        @Param("relStatus") Integer relStatus);
+
+    /**
+     * DELETE many FOLLOWER relationships with one statement.
+     * @param rows the relationships to cancel
+     * @return the number of rows affected by the update operation
+     */
+    int cancelFollowers(@Param("rows") List<FollowEdge> rows);
+
     /**
      * CHECK if a FOLLOWING relationship exists between two users.
      * @param fromUserId the user ID of the follower
@@ -63,6 +82,15 @@ public interface RelationMapper {
     int existsFollowing(@Param("fromUserId") Long fromUserId,
                         @Param("toUserId") Long toUserId);
 
+    /**
+     * FILTER the given user IDs down to the ones the follower actively follows.
+     * @param fromUserId the user ID of the follower
+     * @param toUserIds the candidate followee IDs
+     * @return the subset of toUserIds that fromUserId is following
+     */
+    List<Long> listFollowingIn(@Param("fromUserId") Long fromUserId,
+                               @Param("toUserIds") List<Long> toUserIds);
+
     /**
      * CHECK if a FOLLOWER relationship exists between two users.
      * @param fromUserId the user ID of the follower
@@ -97,6 +125,88 @@ public interface RelationMapper {
                                                     @Param("limit") int limit,
                                                     @Param("offset") int offset);
 
+    /**
+     * FILTER the given user IDs down to the ones that actively follow the user.
+     * @param toUserId the user ID of the followee
+     * @param fromUserIds the candidate follower IDs
+     * @return the subset of fromUserIds following toUserId
+     */
+    List<Long> listFollowerIn(@Param("toUserId") Long toUserId,
+                              @Param("fromUserIds") List<Long> fromUserIds);
+
+    /**
+     * LIST users that follow each other with the user, used when the following list is too large to cache.
+     * @param userId the user ID
+     * @param limit the maximum number of results to return
+     * @return IDs of mutual follows
+     */
+    List<Long> listMutualFollows(@Param("userId") Long userId,
+                                 @Param("limit") int limit);
+
+    /**
+     * LIST users followed by both users, used when both following lists are too large to cache.
+     * @param userId the first user ID
+     * @param otherUserId the second user ID
+     * @param limit the maximum number of results to return
+     * @return IDs followed by both users
+     */
+    List<Long> listCommonFollowings(@Param("userId") Long userId,
+                                    @Param("otherUserId") Long otherUserId,
+                                    @Param("limit") int limit);
+
+    /**
+     * COUNT users followed by both users, uncapped, used when both following lists are too large to cache.
+     * @param userId the first user ID
+     * @param otherUserId the second user ID
+     * @return number of users followed by both
+     */
+    int countCommonFollowings(@Param("userId") Long userId,
+                              @Param("otherUserId") Long otherUserId);
+
+    /**
+     * LIST the followings of a user newest first, starting strictly after the keyset (afterTs, afterId).
+     * @param fromUserId the user ID of the follower
+     * @param afterTs follow time of the last entry already returned, null for the first page
+     * @param afterId user ID of the last entry already returned, null for the first page
+     * @param limit the maximum number of results to return
+     * @return followee IDs with their follow time
+     */
+    List<FollowListRow> listFollowingKeyset(@Param("fromUserId") Long fromUserId,
+                                            @Param("afterTs") Instant afterTs,
+                                            @Param("afterId") Long afterId,
+                                            @Param("limit") int limit);
+
+    /**
+     * LIST the followers of a user newest first, starting strictly after the keyset (afterTs, afterId).
+     * @param toUserId the user ID of the followee
+     * @param afterTs follow time of the last entry already returned, null for the first page
+     * @param afterId user ID of the last entry already returned, null for the first page
+     * @param limit the maximum number of results to return
+     * @return follower IDs with their follow time
+     */
+    List<FollowListRow> listFollowerKeyset(@Param("toUserId") Long toUserId,
+                                           @Param("afterTs") Instant afterTs,
+                                           @Param("afterId") Long afterId,
+                                           @Param("limit") int limit);
+
+    /**
+     * FIND the follow time of a FOLLOWING relationship, cancelled ones included so a cursor stays valid.
+     * @param fromUserId the user ID of the follower
+     * @param toUserId the user ID of the followee
+     * @return the follow time, or null if the users never had a relationship
+     */
+    Instant followingCreatedAt(@Param("fromUserId") Long fromUserId,
+                               @Param("toUserId") Long toUserId);
+
+    /**
+     * FIND the follow time of a FOLLOWER relationship, cancelled ones included so a cursor stays valid.
+     * @param toUserId the user ID of the followee
+     * @param fromUserId the user ID of the follower
+     * @return the follow time, or null if the users never had a relationship
+     */
+    Instant followerCreatedAt(@Param("toUserId") Long toUserId,
+                              @Param("fromUserId") Long fromUserId);
+
     /**
      * COUNT the number of active FOLLOWING relationships for a given user.
      * @param fromUserId the user ID of the follower
@@ -6,8 +6,10 @@ import com.alibaba.otter.canal.client.CanalConnectors;
 import com.alibaba.otter.canal.protocol.CanalEntry;
 import com.alibaba.otter.canal.protocol.Message;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.star.share.common.util.OutboxMessageUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,7 +20,26 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Pipelined relay from the Canal binlog stream of the outbox table to Kafka.
+ *
+ * <p>Delivery is at-least-once:</p>
+ * - every row of a Canal batch is sent asynchronously, the producer batches and compresses them;
+ * - a Canal batch is acked only after all of its sends completed, acks follow batch order;
+ * - any failed send rolls back every unacked batch, Canal redelivers them after a short backoff;
+ * - at most {@code canal.maxInFlightBatches} batches are in flight, then the loop waits for the
+ *   oldest one, so a slow Kafka throttles reading from Canal instead of growing memory.
+ *
+ * <p>Metrics: {@code relation.outbox.bridge.rows} (rows relayed, rate = rows/sec) and
+ * {@code relation.outbox.bridge.lag} (binlog commit to Kafka ack, end-to-end latency).</p>
+ */
 @Service
 public class CanalKafkaBridge implements SmartLifecycle {
     private final KafkaTemplate<String, String> kafka;
@@ -32,27 +53,34 @@ public class CanalKafkaBridge implements SmartLifecycle {
     private final String filter;
     private final int batchSize;
     private final long intervalMs;
+    private final int maxInFlightBatches;
+    private final long sendTimeoutMs;
     private volatile boolean running;
     private final TaskExecutor taskExecutor;
+    private final Counter rowsCounter;
+    private final Timer lagTimer;
     private CanalConnector connector;
     private static final Logger log = LoggerFactory.getLogger(CanalKafkaBridge.class);
 
     /**
      * Canal to Kafka bridge constructor.
      *
-     * @param kafka        Kafka template for sending messages
-     * @param objectMapper JSON object mapper for serializing messages
-     * @param enabled      Whether the Canal bridge is enabled
-     * @param host         Canal host
-     * @param port         Canal port
-     * @param destination  Canal destination (instance name)
-     * @param username     Canal username
-     * @param password     Canal password
-     * @param filter       Canal filter for selecting which database/table changes to capture
-     * @param batchSize    Number of messages to fetch in each batch from Canal
-     * @param intervalMs   Interval in milliseconds to wait before fetching the next batch of messages from Canal
+     * @param kafka              Kafka template (throughput-tuned outbox producer) for sending messages
+     * @param objectMapper       JSON object mapper for serializing messages
+     * @param enabled            Whether the Canal bridge is enabled
+     * @param host               Canal host
+     * @param port               Canal port
+     * @param destination        Canal destination (instance name)
+     * @param username           Canal username
+     * @param password           Canal password
+     * @param filter             Canal filter for selecting which database/table changes to capture
+     * @param batchSize          Number of messages to fetch in each batch from Canal
+     * @param intervalMs         Longest time a fetch waits on the Canal server for new messages
+     * @param maxInFlightBatches Number of Canal batches whose sends may be pending at the same time
+     * @param sendTimeoutMs      Longest time to wait for the sends of one batch before rolling back
+     * @param meterRegistry      Registry for the relay metrics
      */
-    public CanalKafkaBridge(KafkaTemplate<String, String> kafka,
+    public CanalKafkaBridge(@Qualifier("outboxKafkaTemplate") KafkaTemplate<String, String> kafka,
                             ObjectMapper objectMapper,
                             @Qualifier("taskExecutor") TaskExecutor taskExecutor,
                             @Value("${canal.enabled}") boolean enabled,
@@ -63,7 +91,10 @@ public class CanalKafkaBridge implements SmartLifecycle {
                             @Value("${canal.password}") String password,
                             @Value("${canal.filter}") String filter,
                             @Value("${canal.batchSize}") int batchSize,
-                            @Value("${canal.intervalMs}") long intervalMs) {
+                            @Value("${canal.intervalMs}") long intervalMs,
+                            @Value("${canal.maxInFlightBatches:4}") int maxInFlightBatches,
+                            @Value("${canal.sendTimeoutMs:30000}") long sendTimeoutMs,
+                            MeterRegistry meterRegistry) {
         this.kafka = kafka;
         this.objectMapper = objectMapper;
         this.taskExecutor = taskExecutor;
@@ -76,6 +107,14 @@ public class CanalKafkaBridge implements SmartLifecycle {
         this.filter = filter;
         this.batchSize = batchSize;
         this.intervalMs = intervalMs;
+        this.maxInFlightBatches = Math.max(1, maxInFlightBatches);
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.rowsCounter = Counter.builder("relation.outbox.bridge.rows")
+                .description("Outbox rows relayed from Canal to Kafka")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("relation.outbox.bridge.lag")
+                .description("Binlog commit to Kafka ack latency of relayed outbox rows")
+                .register(meterRegistry);
     }
 
     /**
@@ -87,6 +126,10 @@ public class CanalKafkaBridge implements SmartLifecycle {
             log.info("Canal bridge start skipped because it's already running");
             return;
         }
+        if (!enabled) {
+            log.info("Canal bridge start skipped because it's disabled");
+            return;
+        }
         running = true;
 
         taskExecutor.execute(() -> {
@@ -104,62 +147,7 @@ public class CanalKafkaBridge implements SmartLifecycle {
                 connector.rollback();
                 log.info("Canal connector connected and subscribed: dest = {} filter = {}", destination, filter);
 
-                // Main loop to fetch messages from Canal and send them to Kafka
-                while (running) {
-                    // Fetch a batch of messages from Canal without acknowledging them yet
-                    Message message = connector.getWithoutAck(batchSize); // Fetch a batch of messages from Canal
-                    long batchId = message.getId();
-
-                    if (batchId == -1 || message.getEntries() == null || message.getEntries().isEmpty()) {
-                        try {
-                            Thread.sleep(intervalMs); // Sleep for the configured interval before fetching the next batch
-                        } catch (InterruptedException e) {
-                            continue;
-                        }
-                    }
-                    for (CanalEntry.Entry entry : message.getEntries()) {
-
-                        CanalEntry.RowChange rowChange;
-                        try {
-                            rowChange = CanalEntry.RowChange.parseFrom(entry.getStoreValue());
-                        } catch (Exception e) {
-                            log.error("Error parsing Canal entry: {}", e.getMessage());
-                            continue; // Skip this entry and continue with the next one
-                        }
-
-                        CanalEntry.EventType eventType = rowChange.getEventType();
-                        if (eventType != CanalEntry.EventType.INSERT && eventType != CanalEntry.EventType.UPDATE) {
-                            continue;
-                        }
-
-                        // For each row change, create a JSON object to represent the change and send it to Kafka
-                        ArrayNode dataArray = objectMapper.createArrayNode();
-                        for (CanalEntry.RowData rowData : rowChange.getRowDatasList()) {
-                            ObjectNode rowNode = objectMapper.createObjectNode();
-                            for (CanalEntry.Column col : rowData.getAfterColumnsList()) {
-
-                                if ("payload".equalsIgnoreCase(col.getName())) {
-                                    rowNode.put("payload", col.getValue());
-                                }
-                            }
-                            dataArray.add(rowNode);
-                        }
-
-                        ObjectNode msgNode = objectMapper.createObjectNode();
-                        msgNode.put("table", entry.getHeader().getTableName());
-                        msgNode.put("type", eventType == CanalEntry.EventType.INSERT ? "INSERT" : "UPDATE");
-                        msgNode.set("data", dataArray);
-
-
-                        try {
-                            String json = objectMapper.writeValueAsString(msgNode);
-                            kafka.send(OutboxTopics.CANAL_OUTBOX, json);
-                        } catch (Exception e) {
-                            log.error("Error sending message to Kafka: {}", e.getMessage());
-                        }
-                    }
-                    connector.ack(batchId); // Acknowledge the batch of messages after processing
-                }
+                relay();
 
             } catch (Exception e) {
                 log.error("Error in Canal bridge thread", e);
@@ -176,6 +164,99 @@ public class CanalKafkaBridge implements SmartLifecycle {
         });
     }
 
+    /**
+     * Main loop: fetch, send asynchronously, ack completed batches in order.
+     */
+    private void relay() {
+        Deque<InFlightBatch> inFlight = new ArrayDeque<>();
+        while (running) {
+            try {
+                // Blocks on the Canal server up to intervalMs when there is nothing new, no client-side sleep
+                Message message = connector.getWithoutAck(batchSize, intervalMs, TimeUnit.MILLISECONDS);
+                long batchId = message.getId();
+
+                if (batchId != -1 && message.getEntries() != null && !message.getEntries().isEmpty()) {
+                    inFlight.addLast(new InFlightBatch(batchId, send(message.getEntries())));
+                } else if (batchId != -1) {
+                    // Nothing to relay, but the batch still has to be acked in order
+                    inFlight.addLast(new InFlightBatch(batchId, CompletableFuture.completedFuture(null)));
+                }
+
+                // Ack finished batches; once the window is full wait for the oldest one (backpressure)
+                while (!inFlight.isEmpty()
+                        && (inFlight.peekFirst().sends().isDone() || inFlight.size() >= maxInFlightBatches
+                        || batchId == -1)) {
+                    InFlightBatch head = inFlight.pollFirst();
+                    head.sends().get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                    connector.ack(head.batchId());
+                }
+            } catch (Exception e) {
+                // A failed or timed out send: redeliver every unacked batch, the consumer dedups
+                log.error("Canal bridge relay failed, rolling back {} batches: {}", inFlight.size(), e.getMessage());
+                inFlight.clear();
+                try {
+                    connector.rollback();
+                    Thread.sleep(Math.max(intervalMs, 200));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception re) {
+                    log.error("Canal rollback failed: {}", re.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Send every outbox row of the entries, one Kafka message per row keyed by follow edge.
+     *
+     * @return future completing when all sends of the batch are acknowledged by Kafka
+     */
+    private CompletableFuture<Void> send(List<CanalEntry.Entry> entries) throws Exception {
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        for (CanalEntry.Entry entry : entries) {
+            if (entry.getEntryType() != CanalEntry.EntryType.ROWDATA) {
+                continue;
+            }
+
+            CanalEntry.RowChange rowChange;
+            try {
+                rowChange = CanalEntry.RowChange.parseFrom(entry.getStoreValue());
+            } catch (Exception e) {
+                log.error("Error parsing Canal entry: {}", e.getMessage());
+                continue; // Skip this entry and continue with the next one
+            }
+
+            CanalEntry.EventType eventType = rowChange.getEventType();
+            if (eventType != CanalEntry.EventType.INSERT && eventType != CanalEntry.EventType.UPDATE) {
+                continue;
+            }
+
+            String table = entry.getHeader().getTableName();
+            String type = eventType == CanalEntry.EventType.INSERT ? "INSERT" : "UPDATE";
+            long committedAt = entry.getHeader().getExecuteTime();
+            for (CanalEntry.RowData rowData : rowChange.getRowDatasList()) {
+                String payload = null;
+                for (CanalEntry.Column col : rowData.getAfterColumnsList()) {
+                    if ("payload".equalsIgnoreCase(col.getName())) {
+                        payload = col.getValue();
+                    }
+                }
+
+                // Same message layout as before, serialized from records instead of a node tree
+                String json = OutboxMessageUtil.toMessage(objectMapper, table, type, payload);
+                String key = payload == null ? null : OutboxMessageUtil.relationKey(objectMapper, payload);
+                sends.add(kafka.send(OutboxTopics.CANAL_OUTBOX, key, json)
+                        .thenRun(() -> {
+                            rowsCounter.increment();
+                            lagTimer.record(Math.max(0L, System.currentTimeMillis() - committedAt),
+                                    TimeUnit.MILLISECONDS);
+                        }));
+            }
+        }
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]));
+    }
+
     /**
      * Stop the Canal to Kafka bridge. This method will set the running flag to false, which will cause the main loop in the start method to exit and clean up resources.
      */
@@ -193,4 +274,7 @@ public class CanalKafkaBridge implements SmartLifecycle {
         return running;
     }
 
+    private record InFlightBatch(long batchId, CompletableFuture<Void> sends) {
+    }
+
 }
@@ -7,11 +7,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.star.share.common.util.OutboxMessageUtil;
 import com.star.share.relation.processer.RelationEventProcessor;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CanalOutboxConsumer {
@@ -19,34 +22,40 @@ public class CanalOutboxConsumer {
     private final RelationEventProcessor processor;
 
     /**
-     * Consume message from Canal outbox topic,
+     * Consume messages from Canal outbox topic in batches (up to max.poll.records per poll),
+     * with one container thread per assigned partition group; messages are keyed by follow edge,
+     * so per-edge order holds while partitions are processed in parallel.
      * Listen Canal -> Kafka -> Relation Service
-     * Using manual acknowledgment to ensure at-least-once processing semantics.
-     * @param message 
+     * Using manual acknowledgment of the whole batch to ensure at-least-once processing semantics;
+     * a failed batch is rethrown so the container's error handler redelivers it.
+     * @param messages
      * @param ack
      */
-    @KafkaListener(topics = OutboxTopics.CANAL_OUTBOX, groupId = "relation-outbox-consumer")
-    public void onMessage(String message, Acknowledgment ack){
-        try{
-            List<JsonNode> rows = OutboxMessageUtil.extractRows(objectMapper, message);
-            if(rows.isEmpty()){
-                ack.acknowledge();
-                return;
-            }
-
-            for(JsonNode row: rows){
+    @KafkaListener(topics = OutboxTopics.CANAL_OUTBOX, groupId = OutboxTopics.RELATION_CONSUMER_GROUP, batch = "true",
+            concurrency = "${relation.outbox.consumer.concurrency:4}")
+    public void onMessages(List<String> messages, Acknowledgment ack){
+        List<RelationEvent> events = new ArrayList<>();
+        for (String message : messages) {
+            for (JsonNode row : OutboxMessageUtil.extractRows(objectMapper, message)) {
                 JsonNode payloadNode = row.get("payload");
-                if(payloadNode == null){
+                if (payloadNode == null) {
                     continue;
                 }
-
-                RelationEvent event = objectMapper.readValue(payloadNode.asText(), RelationEvent.class);
-                processor.process(event);
+                try {
+                    events.add(objectMapper.readValue(payloadNode.asText(), RelationEvent.class));
+                } catch (Exception e) {
+                    // A malformed payload will never parse, do not block the batch on it
+                    log.warn("Skip malformed relation event: {}", e.getMessage());
+                }
             }
+        }
 
+        try {
+            processor.processBatch(events);
             ack.acknowledge();
-        }catch (Exception e){
-            // Ignored exception
+        } catch (RuntimeException e) {
+            log.warn("Relation event batch failed size={}: {}", events.size(), e.getMessage());
+            throw e;
         }
     }
 
@@ -0,0 +1,59 @@
+package com.star.share.relation.outbox;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+/**
+ * Topic layout of the relation outbox. Partitions bound the consumer parallelism
+ * ({@code relation.outbox.consumer.concurrency} threads per instance, summed over instances),
+ * KafkaAdmin creates the topic or adds partitions at startup.
+ *
+ * <p>Relays publish through their own producer, tuned for throughput instead of latency:
+ * records linger a few milliseconds to fill compressed batches, idempotence keeps the
+ * per-partition order with several requests in flight, and {@code max.block.ms} bounds how
+ * long a relay blocks when the producer buffer is full (backpressure).</p>
+ */
+@Configuration
+public class OutboxKafkaConfig {
+
+    @Bean
+    public NewTopic canalOutboxTopic(@Value("${relation.outbox.partitions:12}") int partitions,
+                                     @Value("${relation.outbox.replicas:1}") int replicas) {
+        return TopicBuilder.name(OutboxTopics.CANAL_OUTBOX)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    @Bean
+    public ProducerFactory<String, String> outboxProducerFactory(KafkaProperties properties, SslBundles sslBundles,
+                                                                 @Value("${relation.outbox.producer.linger-ms:10}") int lingerMs,
+                                                                 @Value("${relation.outbox.producer.batch-size:65536}") int batchSize,
+                                                                 @Value("${relation.outbox.producer.max-block-ms:10000}") long maxBlockMs) {
+        var props = properties.buildProducerProperties(sslBundles);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> outboxKafkaTemplate(
+            @Qualifier("outboxProducerFactory") ProducerFactory<String, String> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+}
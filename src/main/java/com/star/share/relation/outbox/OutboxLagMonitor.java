@@ -0,0 +1,87 @@
+package com.star.share.relation.outbox;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the consumer lag of the relation outbox group per partition:
+ * - {@code relation.outbox.lag{partition}}: log end offset minus committed offset;
+ * - {@code relation.outbox.lag.total}: sum over all partitions.
+ *
+ * <p>The lag is read from the broker, so every instance reports the lag of the whole group,
+ * not only of the partitions it currently owns.</p>
+ */
+@Slf4j
+@Component
+public class OutboxLagMonitor {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final AdminClient admin;
+    private final MultiGauge lagGauge;
+    private volatile long totalLag;
+
+    public OutboxLagMonitor(KafkaAdmin kafkaAdmin, MeterRegistry registry) {
+        // Connects lazily, on the first refresh
+        this.admin = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        this.lagGauge = MultiGauge.builder("relation.outbox.lag")
+                .description("Relation outbox consumer lag per partition")
+                .register(registry);
+        registry.gauge("relation.outbox.lag.total", this, m -> m.totalLag);
+    }
+
+    @Scheduled(fixedDelayString = "${relation.outbox.lag-interval-ms:10000}")
+    public void refresh() {
+        try {
+            TopicDescription topic = admin.describeTopics(List.of(OutboxTopics.CANAL_OUTBOX))
+                    .allTopicNames().get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .get(OutboxTopics.CANAL_OUTBOX);
+
+            Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+            topic.partitions().forEach(p ->
+                    request.put(new TopicPartition(OutboxTopics.CANAL_OUTBOX, p.partition()), OffsetSpec.latest()));
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(request)
+                    .all().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Map<TopicPartition, OffsetAndMetadata> committed = admin
+                    .listConsumerGroupOffsets(OutboxTopics.RELATION_CONSUMER_GROUP)
+                    .partitionsToOffsetAndMetadata().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            List<MultiGauge.Row<?>> rows = new ArrayList<>(ends.size());
+            long total = 0;
+            for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> e : ends.entrySet()) {
+                OffsetAndMetadata c = committed.get(e.getKey());
+                // A partition the group never committed on lags by its whole content
+                long lag = Math.max(0L, e.getValue().offset() - (c == null ? 0L : c.offset()));
+                total += lag;
+                rows.add(MultiGauge.Row.of(Tags.of("partition", String.valueOf(e.getKey().partition())), lag));
+            }
+            lagGauge.register(rows, true);
+            totalLag = total;
+        } catch (Exception e) {
+            log.warn("relation.outbox lag refresh failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        admin.close();
+    }
+}
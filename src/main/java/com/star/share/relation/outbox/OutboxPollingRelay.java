@@ -0,0 +1,233 @@
+package com.star.share.relation.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.star.share.common.util.OutboxMessageUtil;
+import com.star.share.relation.entity.OutboxRow;
+import com.star.share.relation.mapper.OutboxMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox relay that polls the outbox table directly, an alternative to the Canal binlog bridge
+ * for environments without a Canal server. Enable exactly one of {@code canal.enabled} and
+ * {@code relation.outbox.polling.enabled}.
+ *
+ * <p>Sharding keeps the per-edge order the {@code from:to} message key relies on:</p>
+ * - every outbox row carries the shard bucket of its follow edge
+ *   ({@link OutboxMessageUtil#shardBucket}), so a follow and its later unfollow always fall in the
+ *   same shard; instance {@code shard-index} of {@code shard-count} relays the buckets
+ *   [index * B / count, (index + 1) * B / count) with B = {@link OutboxMessageUtil#SHARD_BUCKETS};
+ * - only one relay per shard is active: it holds the Redisson lock of the shard, the others wait on
+ *   it and take over when the owner stops or dies. Start several instances with the same
+ *   {@code shard-index} for failover, change {@code shard-count} only with all relays stopped.
+ *
+ * <p>Each round of the active relay:</p>
+ * - read up to {@code batch-size} unsent rows of the shard, oldest first, without a transaction or
+ *   row locks;
+ * - send them asynchronously in that order to the same topic, with the same message layout and key
+ *   as the bridge, and wait up to {@code send-timeout-ms} for every ack;
+ * - mark the batch as sent with one UPDATE; on any failure nothing is marked and the rows are read
+ *   again next round (at-least-once, a partially sent batch is sent again).
+ *
+ * <p>Full batches are followed immediately by the next round, the relay only sleeps
+ * {@code interval-ms} after a partial batch.</p>
+ */
+@Slf4j
+@Service
+public class OutboxPollingRelay implements SmartLifecycle {
+
+    private static final String TABLE = "outbox";
+
+    private final OutboxMapper outboxMapper;
+    private final KafkaTemplate<String, String> kafka;
+    private final ObjectMapper objectMapper;
+    private final RedissonClient redisson;
+    private final TaskExecutor taskExecutor;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long intervalMs;
+    private final long sendTimeoutMs;
+    private final int fromBucket;
+    private final int toBucket;
+    private final String lockKey;
+    private final Counter rowsCounter;
+    private final Timer lagTimer;
+    private volatile boolean running;
+
+    public OutboxPollingRelay(OutboxMapper outboxMapper,
+                              @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, String> kafka,
+                              ObjectMapper objectMapper,
+                              RedissonClient redisson,
+                              @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                              @Value("${relation.outbox.polling.enabled:false}") boolean enabled,
+                              @Value("${relation.outbox.polling.batch-size:500}") int batchSize,
+                              @Value("${relation.outbox.polling.interval-ms:200}") long intervalMs,
+                              @Value("${relation.outbox.polling.send-timeout-ms:30000}") long sendTimeoutMs,
+                              @Value("${relation.outbox.polling.shard-index:0}") int shardIndex,
+                              @Value("${relation.outbox.polling.shard-count:1}") int shardCount,
+                              MeterRegistry meterRegistry) {
+        this.outboxMapper = outboxMapper;
+        this.kafka = kafka;
+        this.objectMapper = objectMapper;
+        this.redisson = redisson;
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+
+        int count = Math.min(Math.max(1, shardCount), OutboxMessageUtil.SHARD_BUCKETS);
+        int index = Math.floorMod(shardIndex, count);
+        this.fromBucket = index * OutboxMessageUtil.SHARD_BUCKETS / count;
+        this.toBucket = (index + 1) * OutboxMessageUtil.SHARD_BUCKETS / count;
+        this.lockKey = "relation:outbox:relay:%d:%d".formatted(count, index);
+
+        this.rowsCounter = Counter.builder("relation.outbox.relay.rows")
+                .description("Outbox rows relayed by polling")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("relation.outbox.relay.lag")
+                .description("Outbox insert to Kafka ack latency of polled rows")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        log.info("Outbox polling relay started buckets=[{}, {}) batchSize={}", fromBucket, toBucket, batchSize);
+        taskExecutor.execute(this::run);
+    }
+
+    // Wait for the shard lock, relay while holding it, wait again when it is lost
+    private void run() {
+        RLock lock = redisson.getLock(lockKey);
+        while (running) {
+            try {
+                if (!lock.tryLock(intervalMs, TimeUnit.MILLISECONDS)) {
+                    continue; // another relay owns the shard
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Outbox relay lock {} unavailable: {}", lockKey, e.getMessage());
+                if (!pause()) {
+                    return;
+                }
+                continue;
+            }
+            log.info("Outbox polling relay owns shard {}", lockKey);
+            try {
+                relayWhileOwner(lock);
+            } finally {
+                try {
+                    lock.unlock();
+                } catch (Exception e) {
+                    log.debug("Outbox relay lock {} already released: {}", lockKey, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void relayWhileOwner(RLock lock) {
+        while (running && isOwner(lock)) {
+            int relayed;
+            try {
+                relayed = relayOnce();
+            } catch (Exception e) {
+                log.warn("Outbox polling round failed, retrying: {}", e.getMessage());
+                relayed = 0;
+            }
+            if (relayed < batchSize && !pause()) {
+                return;
+            }
+        }
+    }
+
+    // A lock lost to an expired lease (e.g. Redis failover) stops relaying before a second owner starts
+    private boolean isOwner(RLock lock) {
+        try {
+            return lock.isHeldByCurrentThread();
+        } catch (Exception e) {
+            log.warn("Outbox relay lock {} check failed: {}", lockKey, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(intervalMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Relay one batch; no transaction is held while waiting for Kafka.
+     *
+     * @return number of rows relayed
+     */
+    private int relayOnce() {
+        List<OutboxRow> rows = outboxMapper.listUnsent(fromBucket, toBucket, batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(rows.size());
+        List<Long> ids = new ArrayList<>(rows.size());
+        try {
+            for (OutboxRow row : rows) {
+                String json = OutboxMessageUtil.toMessage(objectMapper, TABLE, "INSERT", row.getPayload());
+                String key = row.getPayload() == null ? null
+                        : OutboxMessageUtil.relationKey(objectMapper, row.getPayload());
+                long createdAt = row.getCreatedAt() == null ? System.currentTimeMillis()
+                        : row.getCreatedAt().toEpochMilli();
+                sends.add(kafka.send(OutboxTopics.CANAL_OUTBOX, key, json).thenRun(() -> {
+                    rowsCounter.increment();
+                    lagTimer.record(Math.max(0L, System.currentTimeMillis() - createdAt), TimeUnit.MILLISECONDS);
+                }));
+                ids.add(row.getId());
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Outbox relay interrupted", e);
+        } catch (Exception e) {
+            // Nothing is marked, the rows are read again next round
+            throw new IllegalStateException("Outbox publish failed", e);
+        }
+
+        outboxMapper.markSent(ids);
+        return rows.size();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
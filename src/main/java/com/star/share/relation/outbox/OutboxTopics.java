@@ -8,4 +8,5 @@ public class OutboxTopics {
         // private constructor to prevent instantiation
     }
     public static final String CANAL_OUTBOX = "canal-outbox";
+    public static final String RELATION_CONSUMER_GROUP = "relation-outbox-consumer";
 }
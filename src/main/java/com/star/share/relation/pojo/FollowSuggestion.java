@@ -0,0 +1,10 @@
+package com.star.share.relation.pojo;
+
+/**
+ * A second-degree follow suggestion.
+ *
+ * @param userId          the suggested user
+ * @param followedByCount how many of the viewer's followings follow this user
+ */
+public record FollowSuggestion(Long userId, int followedByCount) {
+}
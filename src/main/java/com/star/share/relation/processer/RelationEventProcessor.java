@@ -1,25 +1,50 @@
 package com.star.share.relation.processer;
 
-import com.star.share.counter.service.UserCounterService;
+import com.star.share.counter.schema.UserCounterKeys;
+import com.star.share.relation.cache.FollowGraphCache;
+import com.star.share.relation.cache.FollowListStore;
+import com.star.share.relation.entity.FollowEdge;
 import com.star.share.relation.entity.RelationEvent;
 import com.star.share.relation.mapper.RelationMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Processor for handling relation events such as follow creation and cancellation.
  * This class ensures that each event is processed only once by using Redis for deduplication.
  * It updates the follower/following relationships in the database
- * and maintains the corresponding counts in Redis. */
+ * and maintains the corresponding counts in Redis.
+ *
+ * <p>Events are handled per batch, so a follow storm costs a few round trips per batch
+ * instead of ~8 per event:</p>
+ * - one pipelined SET NX pass claims the whole batch;
+ * - follower rows are written with one multi-row INSERT and one multi-row cancel;
+ * - list windows, follow-edge sets and user counters are updated in one pipeline.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class RelationEventProcessor {
+    private static final Duration DEDUP_TTL = Duration.ofMinutes(10);
+    private static final byte[] ONE = "1".getBytes(StandardCharsets.UTF_8);
+
     private final RelationMapper mapper;
     private final StringRedisTemplate redis;
-    private final UserCounterService userCounterService;
+    private final FollowGraphCache followGraph;
+    private final FollowListStore followLists;
 
 
     /**
@@ -28,39 +53,113 @@ public class RelationEventProcessor {
      * preventing duplicate processing.
      */
     public void process(RelationEvent event) {
-        String defaultkey = "dedup:rel:"
-                + event.type() + ":" + event.fromUserId() + ":" + event.toUserId()
-                + ":" + event.id() == null ? "0" : String.valueOf(event.id());
-        Boolean first = redis.opsForValue().setIfAbsent(defaultkey, "1", Duration.ofMinutes(10));
+        processBatch(List.of(event));
+    }
 
-        if (first == null || !first) {
-            // Already processed this event, skip it
+    /**
+     * Processes a batch of relation events in order.
+     * When the same pair changes several times within a batch the last event decides the
+     * stored relationship, while the counters still receive every delta.
+     * If the database write fails the dedup claims are released so a redelivered batch is processed
+     * again. Once the rows are committed the claims are kept even if the Redis pipeline fails, since
+     * part of it may have run and a redelivery would count the deltas twice; list windows, edge sets
+     * and counters then heal when their keys expire.
+     */
+    public void processBatch(List<RelationEvent> events) {
+        if (events == null || events.isEmpty()) {
             return;
         }
 
-        if ("FollowCreated".equals(event.type())) {
-            mapper.insertFollower(event.id(), event.toUserId(), event.fromUserId(), 1);
+        List<String> dedupKeys = new ArrayList<>(events.size());
+        for (RelationEvent event : events) {
+            dedupKeys.add(dedupKey(event));
+        }
+        List<Object> claims = redis.executePipelined((RedisCallback<Object>) c -> {
+            for (String key : dedupKeys) {
+                c.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), ONE,
+                        Expiration.from(DEDUP_TTL), RedisStringCommands.SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
 
-            long now = System.currentTimeMillis();
-            // Use sorted sets to store followers and followings with timestamps for potential future use (e.g., sorting by follow time)
-            redis.opsForZSet().add("uf:flws:" + event.fromUserId(), String.valueOf(event.toUserId()), now);
-            redis.opsForZSet().add("uf:fans" + event.toUserId(), String.valueOf(event.fromUserId()), now);
-            redis.expire("uf:flws:" + event.fromUserId(), Duration.ofHours(2));
-            redis.expire("uf:fans:" + event.toUserId(), Duration.ofHours(2));
+        List<String> claimed = new ArrayList<>();
+        Map<String, RelationEvent> lastByPair = new LinkedHashMap<>();
+        Map<Long, Integer> followingDeltas = new HashMap<>();
+        Map<Long, Integer> followerDeltas = new HashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (!Boolean.TRUE.equals(claims.get(i))) {
+                // Already processed this event, skip it
+                continue;
+            }
+            RelationEvent event = events.get(i);
+            int delta = isCreated(event) ? 1 : isCancelled(event) ? -1 : 0;
+            if (delta == 0) {
+                continue;
+            }
+            claimed.add(dedupKeys.get(i));
+            lastByPair.put(event.fromUserId() + ":" + event.toUserId(), event);
+            followingDeltas.merge(event.fromUserId(), delta, Integer::sum);
+            followerDeltas.merge(event.toUserId(), delta, Integer::sum);
+        }
+        if (lastByPair.isEmpty()) {
+            return;
+        }
 
-            userCounterService.incrementFollowings(event.fromUserId(), 1);
-            userCounterService.incrementFollowers(event.toUserId(), 1);
+        List<FollowEdge> created = new ArrayList<>();
+        List<FollowEdge> cancelled = new ArrayList<>();
+        for (RelationEvent event : lastByPair.values()) {
+            FollowEdge edge = new FollowEdge(event.id(), event.fromUserId(), event.toUserId());
+            (isCreated(event) ? created : cancelled).add(edge);
+        }
+        try {
+            if (!created.isEmpty()) {
+                mapper.insertFollowers(created, 1);
+            }
+            if (!cancelled.isEmpty()) {
+                mapper.cancelFollowers(cancelled);
+            }
+        } catch (RuntimeException e) {
+            redis.delete(claimed);
+            throw e;
+        }
 
-        } else if ("FollowCanceled".equals(event.type())) {
-            mapper.cancelFollower(event.toUserId(), event.fromUserId());
-            // Remove the follower/following relationship from Redis sorted sets
-            redis.opsForZSet().remove("uf:flws:" + event.fromUserId(), String.valueOf(event.toUserId()));
-            redis.opsForZSet().remove("uf:fans" + event.toUserId(), String.valueOf(event.fromUserId()));
-            // No need to set expiration here since the entries are removed immediately
-            userCounterService.incrementFollowings(event.fromUserId(), -1);
-            userCounterService.incrementFollowers(event.toUserId(), -1);
+        try {
+            long now = System.currentTimeMillis();
+            redis.executePipelined((RedisCallback<Object>) c -> {
+                for (RelationEvent event : lastByPair.values()) {
+                    boolean follow = isCreated(event);
+                    // Only the newest list windows are patched, deeper windows expire on their own
+                    followLists.queuePatch(c, event.fromUserId(), event.toUserId(), follow, now);
+                    followGraph.queuePatch(c, event.fromUserId(), event.toUserId(), follow);
+                }
+                followingDeltas.forEach((uid, d) -> {
+                    if (d != 0) {
+                        UserCounterKeys.queueIncrement(c, uid, UserCounterKeys.IDX_FOLLOWINGS, d);
+                    }
+                });
+                followerDeltas.forEach((uid, d) -> {
+                    if (d != 0) {
+                        UserCounterKeys.queueIncrement(c, uid, UserCounterKeys.IDX_FOLLOWERS, d);
+                    }
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("Relation cache patch failed after commit, {} events kept as processed", claimed.size(), e);
         }
     }
 
+    private static String dedupKey(RelationEvent event) {
+        return "dedup:rel:"
+                + event.type() + ":" + event.fromUserId() + ":" + event.toUserId()
+                + ":" + (event.id() == null ? "0" : String.valueOf(event.id()));
+    }
+
+    private static boolean isCreated(RelationEvent event) {
+        return "FollowCreated".equals(event.type());
+    }
 
+    private static boolean isCancelled(RelationEvent event) {
+        return "FollowCancelled".equals(event.type());
+    }
 }
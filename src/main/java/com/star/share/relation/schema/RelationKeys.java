@@ -0,0 +1,40 @@
+package com.star.share.relation.schema;
+
+/**
+ * Redis key definitions for the follow graph.
+ * The user id is the hash tag, so all relation keys of one user share a cluster slot.
+ */
+public final class RelationKeys {
+    private RelationKeys() {
+        // Prevent instantiation
+    }
+
+    // Following list cache (ZSet, member = followee id, score = follow time)
+    public static String followingZSet(long userId) {
+        return "uf:flws:{" + userId + "}";
+    }
+
+    // Follower list cache (ZSet, member = follower id, score = follow time)
+    public static String followersZSet(long userId) {
+        return "uf:fans:{" + userId + "}";
+    }
+
+    // Window k of a list: k = 0 is the list key itself (newest entries), deeper windows get a suffix
+    public static String followingWindow(long userId, int window) {
+        return window == 0 ? followingZSet(userId) : followingZSet(userId) + ":w" + window;
+    }
+
+    public static String followersWindow(long userId, int window) {
+        return window == 0 ? followersZSet(userId) : followersZSet(userId) + ":w" + window;
+    }
+
+    // Complete set of followee ids of a user, used for membership checks
+    public static String followingEdges(long userId) {
+        return "uf:edge:{" + userId + "}";
+    }
+
+    // Change counter of the edge set, bumped by every patch so a concurrent load can tell it is stale
+    public static String followingEdgesVersion(long userId) {
+        return "uf:edge:ver:{" + userId + "}";
+    }
+}
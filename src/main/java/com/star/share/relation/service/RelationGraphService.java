@@ -0,0 +1,48 @@
+package com.star.share.relation.service;
+
+import java.util.List;
+
+import com.star.share.relation.pojo.FollowSuggestion;
+
+/**
+ * Queries over the follow graph: mutual follows, common followings and
+ * second-degree follow suggestions.
+ */
+public interface RelationGraphService {
+
+    /**
+     * List users that follow the user back, ordered by user ID.
+     *
+     * @param userId the ID of the user
+     * @param limit  the maximum number of results
+     * @param offset the number of results to skip
+     * @return IDs of mutual follows
+     */
+    List<Long> mutualFollows(long userId, int limit, int offset);
+
+    /**
+     * List users followed by both users, ordered by user ID.
+     *
+     * @param userId      the ID of the first user
+     * @param otherUserId the ID of the second user
+     * @param limit       the maximum number of results
+     * @param offset      the number of results to skip
+     * @return IDs followed by both users
+     */
+    List<Long> commonFollowings(long userId, long otherUserId, int limit, int offset);
+
+    /**
+     * Count users followed by both users, all of them even when the list itself stops at max-results.
+     */
+    int commonFollowingCount(long userId, long otherUserId);
+
+    /**
+     * Suggest users followed by the people the user follows, most shared first.
+     *
+     * @param userId the ID of the user
+     * @param limit  the maximum number of results
+     * @param offset the number of results to skip
+     * @return suggestions with the number of followings that follow each one
+     */
+    List<FollowSuggestion> suggestions(long userId, int limit, int offset);
+}
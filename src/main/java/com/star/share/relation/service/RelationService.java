@@ -30,6 +30,16 @@ public interface RelationService {
 
     boolean isFollowing(long fromUserId, long toUserId);
 
+    /**
+     * Check in one call whether a user follows each of the given users,
+     * e.g. for follow-back buttons on a follower list.
+     *
+     * @param fromUserId the ID of the user who may be following
+     * @param toUserIds  the IDs of the users who may be followed
+     * @return following flag per requested ID, in request order
+     */
+    Map<Long, Boolean> isFollowingBatch(long fromUserId, List<Long> toUserIds);
+
     List<Long> following(long userId, int limit, int offset);
 
     List<Long> followers(long userId, int limit, int offset);
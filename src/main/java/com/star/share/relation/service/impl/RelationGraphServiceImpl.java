@@ -0,0 +1,280 @@
+package com.star.share.relation.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.star.share.relation.cache.FollowGraphCache;
+import com.star.share.relation.mapper.RelationMapper;
+import com.star.share.relation.pojo.FollowSuggestion;
+import com.star.share.relation.service.RelationGraphService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follow-graph queries answered by intersecting sorted {@code long[]} followee sets.
+ *
+ * <p>The sets come from {@link FollowGraphCache} (one pipelined read for many users). They are
+ * intersected in memory because each user's keys live in their own cluster slot, so
+ * SINTER/ZINTER across users is not available on Redis Cluster:</p>
+ * - mutual follows: the user's followees filtered by one IN query per 1000 ids on the follower table;
+ * - common followings: merge of two sorted arrays, counting every match while keeping at most
+ *   {@code relation.graph.max-results} ids, so the reported total is never capped;
+ * - suggestions: the followee sets of the {@code relation.graph.suggest-sample} most recent followings
+ *   are concatenated, sorted and counted run by run, no boxed maps;
+ * - users above the edge-cache limit fall back to one join query, never to per-pair SQL.
+ *
+ * <p>Lists are sorted by id before they are cut to max-results, so the kept ids do not depend on
+ * the order MySQL returned them in. Results are cached whole and paged from memory: lists for {@code relation.graph.cache-seconds},
+ * suggestions for {@code relation.graph.suggest-cache-seconds}.</p>
+ */
+@Service
+public class RelationGraphServiceImpl implements RelationGraphService {
+
+    private static final int IN_CHUNK = 1000;
+
+    private final FollowGraphCache followGraph;
+    private final RelationMapper relationMapper;
+    private final Cache<String, long[]> lists;
+    private final Cache<String, Common> commons;
+    private final Cache<Long, Ranked> suggestions;
+    private final int sampleSize;
+    private final int maxResults;
+
+    public RelationGraphServiceImpl(FollowGraphCache followGraph,
+                                    RelationMapper relationMapper,
+                                    @Value("${relation.graph.cache-seconds:60}") long cacheSeconds,
+                                    @Value("${relation.graph.suggest-cache-seconds:600}") long suggestCacheSeconds,
+                                    @Value("${relation.graph.suggest-sample:50}") int sampleSize,
+                                    @Value("${relation.graph.max-results:1000}") int maxResults) {
+        this.followGraph = followGraph;
+        this.relationMapper = relationMapper;
+        this.sampleSize = sampleSize;
+        this.maxResults = maxResults;
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(cacheSeconds))
+                .build();
+        this.commons = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(cacheSeconds))
+                .build();
+        this.suggestions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(suggestCacheSeconds))
+                .build();
+    }
+
+    @Override
+    public List<Long> mutualFollows(long userId, int limit, int offset) {
+        return slice(lists.get("m:" + userId, k -> computeMutual(userId)), offset, limit);
+    }
+
+    @Override
+    public List<Long> commonFollowings(long userId, long otherUserId, int limit, int offset) {
+        return slice(common(userId, otherUserId).ids(), offset, limit);
+    }
+
+    @Override
+    public int commonFollowingCount(long userId, long otherUserId) {
+        return common(userId, otherUserId).total();
+    }
+
+    @Override
+    public List<FollowSuggestion> suggestions(long userId, int limit, int offset) {
+        Ranked ranked = suggestions.get(userId, k -> computeSuggestions(userId));
+        List<FollowSuggestion> out = new ArrayList<>();
+        int end = Math.min(ranked.ids().length, offset + limit);
+        for (int i = Math.max(offset, 0); i < end; i++) {
+            out.add(new FollowSuggestion(ranked.ids()[i], ranked.counts()[i]));
+        }
+        return out;
+    }
+
+    private Common common(long userId, long otherUserId) {
+        // Symmetric, one cache entry per pair
+        long a = Math.min(userId, otherUserId);
+        long b = Math.max(userId, otherUserId);
+        return commons.get(a + ":" + b, k -> computeCommon(a, b));
+    }
+
+    private long[] computeMutual(long userId) {
+        long[] followees = followGraph.followees(userId);
+        if (followees == null) {
+            return toArray(relationMapper.listMutualFollows(userId, maxResults));
+        }
+        // listFollowerIn rows come back in no particular order: collect every chunk (the set is at most
+        // the edge-cache max-load), sort, then cut
+        long[] out = new long[followees.length];
+        int n = 0;
+        for (int from = 0; from < followees.length; from += IN_CHUNK) {
+            List<Long> chunk = toList(followees, from, Math.min(followees.length, from + IN_CHUNK));
+            for (Long id : relationMapper.listFollowerIn(userId, chunk)) {
+                out[n++] = id;
+            }
+        }
+        out = Arrays.copyOf(out, n);
+        Arrays.sort(out);
+        return n > maxResults ? Arrays.copyOf(out, maxResults) : out;
+    }
+
+    private Common computeCommon(long a, long b) {
+        Map<Long, long[]> sets = followGraph.followees(List.of(a, b));
+        long[] fa = sets.get(a);
+        long[] fb = sets.get(b);
+        if (fa == null && fb == null) {
+            return new Common(toArray(relationMapper.listCommonFollowings(a, b, maxResults)),
+                    relationMapper.countCommonFollowings(a, b));
+        }
+        if (fa == null || fb == null) {
+            // One side overflows: filter the cached side against it in chunks, all of them for the total
+            long[] known = fa != null ? fa : fb;
+            long big = fa != null ? b : a;
+            long[] out = new long[known.length];
+            int n = 0;
+            for (int from = 0; from < known.length; from += IN_CHUNK) {
+                List<Long> chunk = toList(known, from, Math.min(known.length, from + IN_CHUNK));
+                for (Long id : relationMapper.listFollowingIn(big, chunk)) {
+                    out[n++] = id;
+                }
+            }
+            out = Arrays.copyOf(out, n);
+            Arrays.sort(out);
+            return new Common(n > maxResults ? Arrays.copyOf(out, maxResults) : out, n);
+        }
+        return intersect(fa, fb, maxResults);
+    }
+
+    private Ranked computeSuggestions(long userId) {
+        long[] mine = followGraph.followees(userId);
+        // Most recent followings are the best signal and bound the work
+        List<Long> sample = relationMapper.listFollowing(userId, sampleSize, 0);
+        if (sample.isEmpty()) {
+            return Ranked.EMPTY;
+        }
+
+        int total = 0;
+        List<long[]> sets = new ArrayList<>(sample.size());
+        for (long[] set : followGraph.followees(sample).values()) {
+            if (set != null) {
+                sets.add(set);
+                total += set.length;
+            }
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (long[] set : sets) {
+            System.arraycopy(set, 0, all, pos, set.length);
+            pos += set.length;
+        }
+        Arrays.sort(all);
+
+        // Each run of equal ids is one candidate; code = count in the high bits, run index in the low bits
+        long[] candidates = new long[all.length];
+        long[] codes = new long[all.length];
+        int runs = 0;
+        for (int i = 0; i < all.length; ) {
+            int j = i;
+            while (j < all.length && all[j] == all[i]) {
+                j++;
+            }
+            long id = all[i];
+            boolean known = mine != null && Arrays.binarySearch(mine, id) >= 0;
+            if (id != userId && !known) {
+                candidates[runs] = id;
+                codes[runs] = ((long) (j - i) << 32) | (0xFFFFFFFFL - runs);
+                runs++;
+            }
+            i = j;
+        }
+        codes = Arrays.copyOf(codes, runs);
+        Arrays.sort(codes);
+
+        int keep = Math.min(runs, maxResults);
+        long[] ids = new long[keep];
+        int[] counts = new int[keep];
+        for (int k = 0; k < keep; k++) {
+            long code = codes[runs - 1 - k];
+            ids[k] = candidates[(int) (0xFFFFFFFFL - (code & 0xFFFFFFFFL))];
+            counts[k] = (int) (code >>> 32);
+        }
+
+        if (mine == null && keep > 0) {
+            // Following list too large to cache: drop already followed candidates with one batched check
+            Map<Long, Boolean> following = followGraph.isFollowing(userId, toList(ids, 0, keep));
+            int n = 0;
+            for (int k = 0; k < keep; k++) {
+                if (!Boolean.TRUE.equals(following.get(ids[k]))) {
+                    ids[n] = ids[k];
+                    counts[n] = counts[k];
+                    n++;
+                }
+            }
+            ids = Arrays.copyOf(ids, n);
+            counts = Arrays.copyOf(counts, n);
+        }
+        return new Ranked(ids, counts);
+    }
+
+    // Keeps the first max matches, counts all of them
+    private static Common intersect(long[] a, long[] b, int max) {
+        long[] out = new long[Math.min(Math.min(a.length, b.length), max)];
+        int i = 0;
+        int j = 0;
+        int total = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                if (total < out.length) {
+                    out[total] = a[i];
+                }
+                total++;
+                i++;
+                j++;
+            }
+        }
+        int kept = Math.min(total, out.length);
+        return new Common(kept == out.length ? out : Arrays.copyOf(out, kept), total);
+    }
+
+    private static List<Long> slice(long[] ids, int offset, int limit) {
+        int from = Math.max(offset, 0);
+        return from >= ids.length ? List.of() : toList(ids, from, Math.min(ids.length, from + limit));
+    }
+
+    private static List<Long> toList(long[] ids, int from, int to) {
+        List<Long> out = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            out.add(ids[i]);
+        }
+        return out;
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        long[] out = new long[ids.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = ids.get(i);
+        }
+        return out;
+    }
+
+    /**
+     * Common followings of a pair: at most max-results sorted ids, plus the uncapped total.
+     */
+    private record Common(long[] ids, int total) {
+    }
+
+    /**
+     * Ranked suggestions as parallel primitive arrays.
+     */
+    private record Ranked(long[] ids, int[] counts) {
+        static final Ranked EMPTY = new Ranked(new long[0], new int[0]);
+    }
+}
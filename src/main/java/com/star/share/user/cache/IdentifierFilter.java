@@ -0,0 +1,349 @@
+package com.star.share.user.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.star.share.common.util.AfterCommit;
+import com.star.share.user.entity.User;
+import com.star.share.user.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBloomFilter;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Existence filter for phone numbers and emails, so lookups of unknown identifiers (e.g. send-code
+ * spam) never reach MySQL.
+ *
+ * <p>Two parts:</p>
+ * - a Bloom filter in Redis (shared by all instances) holding every identifier in {@code users};
+ *   "absent" is certain, "present" may be a false positive ({@code user.identifier-filter.fpp});
+ * - a small local cache of identifiers confirmed by MySQL, so hot existing identifiers skip the query too.
+ *
+ * <p>Filters are versioned, {@code user:ident:bloom:v<n>}, and the live one is named by the pointer
+ * {@code {user:ident}:bloom:current}:</p>
+ * - a build fills a fresh version while {@code {user:ident}:bloom:building} points at it, so users
+ *   created meanwhile land in it too, then moves the pointer in one script; the live filter is never
+ *   cleared in place, a replaced version just expires after a grace period;
+ * - every instance re-reads the pointer each {@code user.identifier-filter.check-ms} and follows it;
+ *   without a pointer it answers nothing from the filter and falls through to MySQL;
+ * - new users are added after their insert committed ({@link #add(User)}); when that fails the
+ *   filter would answer "absent" for them, so it is withdrawn (pointer deleted) for the whole
+ *   cluster and rebuilt by whichever instance takes {@code user:ident:bloom:lock}; when the pointers
+ *   cannot even be read the add goes to the filter this instance reads and is retried on the next
+ *   check, and if the retry queue overflows every filter is withdrawn.
+ *
+ * <p>Entries are never removed, so a deleted or changed identifier only costs a query.</p>
+ */
+@Slf4j
+@Component
+public class IdentifierFilter {
+
+    private static final String FILTER_PREFIX = "user:ident:bloom:v";
+    private static final String VERSION_KEY = "user:ident:bloom:version";
+    private static final String LOCK_KEY = "user:ident:bloom:lock";
+    // Same hash tag, so the switch script can touch both pointers on a cluster
+    private static final String CURRENT_KEY = "{user:ident}:bloom:current";
+    private static final String BUILDING_KEY = "{user:ident}:bloom:building";
+    private static final Duration BUILD_TTL = Duration.ofHours(1);
+    private static final int PENDING_ADDS_MAX = 10_000;
+
+    private final RedissonClient redisson;
+    private final UserMapper userMapper;
+    private final TaskExecutor taskExecutor;
+    private final Cache<String, Boolean> known;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final int loadBatchSize;
+    private final Duration retireGrace;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    /** Adds whose target filters were unknown (pointers unreadable), retried by {@link #ensureLoaded()} */
+    private final BlockingQueue<List<String>> pendingAdds = new LinkedBlockingQueue<>(PENDING_ADDS_MAX);
+    /** Set when a pending add had to be dropped, no filter can be trusted until rebuilt */
+    private final AtomicBoolean lostAdds = new AtomicBoolean();
+    /** Filter this instance answers from, null while there is no trusted one */
+    private volatile RBloomFilter<String> live;
+
+    public IdentifierFilter(RedissonClient redisson,
+                            UserMapper userMapper,
+                            @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                            @Value("${user.identifier-filter.expected-insertions:10000000}") long expectedInsertions,
+                            @Value("${user.identifier-filter.fpp:0.001}") double fpp,
+                            @Value("${user.identifier-filter.load-batch-size:5000}") int loadBatchSize,
+                            @Value("${user.identifier-filter.known-max-size:100000}") long knownMaxSize,
+                            @Value("${user.identifier-filter.known-ttl-minutes:10}") long knownTtlMinutes,
+                            @Value("${user.identifier-filter.check-ms:5000}") long checkMs) {
+        this.redisson = redisson;
+        this.userMapper = userMapper;
+        this.taskExecutor = taskExecutor;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.loadBatchSize = loadBatchSize;
+        // Instances still reading a replaced filter follow the pointer within one check
+        this.retireGrace = Duration.ofMillis(Math.max(60_000L, checkMs * 10));
+        this.known = Caffeine.newBuilder()
+                .maximumSize(knownMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(knownTtlMinutes))
+                .build();
+    }
+
+    public static String phoneKey(String phone) {
+        return "p:" + phone;
+    }
+
+    public static String emailKey(String email) {
+        return "e:" + email;
+    }
+
+    /**
+     * @return false when no user has this identifier for sure; true when MySQL has to be asked
+     *         (or already confirmed it recently, see {@link #isKnown(String)})
+     */
+    public boolean mightExist(String key) {
+        RBloomFilter<String> filter = live;
+        if (filter == null || known.getIfPresent(key) != null) {
+            return true;
+        }
+        try {
+            return filter.contains(key);
+        } catch (Exception e) {
+            log.warn("Identifier filter lookup failed: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * True when MySQL confirmed the identifier within the local cache TTL.
+     */
+    public boolean isKnown(String key) {
+        return known.getIfPresent(key) != null;
+    }
+
+    /**
+     * Record an identifier MySQL just confirmed.
+     */
+    public void remember(String key) {
+        known.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Add the identifiers of a new user, once the surrounding transaction committed.
+     * Goes to the live filter, to one being built and to the one this instance still reads.
+     */
+    public void add(User user) {
+        List<String> keys = keys(user);
+        if (keys.isEmpty()) {
+            return;
+        }
+        // After commit: a build that starts later scans the row, one already running is in BUILDING_KEY
+        AfterCommit.run(() -> {
+            keys.forEach(this::remember);
+            if (!addToFilters(keys) && !pendingAdds.offer(keys)) {
+                lostAdds.set(true);
+            }
+        });
+    }
+
+    /**
+     * Add keys to the live filter, to one being built and to the one this instance still reads; a
+     * filter the add failed on is withdrawn.
+     * @return false when the pointers were unreadable, so the filters other instances read may lack the keys
+     */
+    private boolean addToFilters(List<String> keys) {
+        Set<String> targets = new LinkedHashSet<>();
+        boolean pointersRead = true;
+        try {
+            Map<String, String> pointers = redisson.getBuckets(StringCodec.INSTANCE).get(CURRENT_KEY, BUILDING_KEY);
+            targets.addAll(pointers.values());
+        } catch (Exception e) {
+            log.error("Identifier filter pointers unreadable, add retried on the next check", e);
+            pointersRead = false;
+        }
+        RBloomFilter<String> local = live;
+        if (local != null) {
+            targets.add(local.getName());
+        }
+        for (String name : targets) {
+            try {
+                filter(name).add(keys);
+            } catch (Exception e) {
+                log.error("Identifier filter add to {} failed, filter withdrawn until rebuilt", name, e);
+                withdraw(name);
+            }
+        }
+        return pointersRead;
+    }
+
+    /**
+     * Follow the live filter pointer; build a filter when there is none, on one instance, off the
+     * scheduler thread.
+     */
+    @Scheduled(fixedDelayString = "${user.identifier-filter.check-ms:5000}")
+    public void ensureLoaded() {
+        String current;
+        try {
+            if (lostAdds.get()) {
+                withdrawAll();
+            }
+            current = redisson.<String>getBucket(CURRENT_KEY, StringCodec.INSTANCE).get();
+        } catch (Exception e) {
+            log.warn("Identifier filter state check failed: {}", e.getMessage());
+            return;
+        }
+        retryPendingAdds();
+        if (current != null) {
+            RBloomFilter<String> local = live;
+            if (local == null || !local.getName().equals(current)) {
+                live = filter(current);
+                log.info("Identifier filter now answering from {}", current);
+            }
+            return;
+        }
+        live = null;
+        if (loading.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    loading.set(false);
+                }
+            });
+        }
+    }
+
+    private void rebuild() {
+        RLock lock = redisson.getLock(LOCK_KEY);
+        if (!lock.tryLock()) {
+            return; // another instance is building
+        }
+        try {
+            if (redisson.getBucket(CURRENT_KEY, StringCodec.INSTANCE).isExists()) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long version = redisson.getAtomicLong(VERSION_KEY).incrementAndGet();
+            String name = FILTER_PREFIX + version;
+            RBloomFilter<String> next = filter(name);
+            next.tryInit(expectedInsertions, fpp);
+            redisson.getBucket(BUILDING_KEY, StringCodec.INSTANCE).set(name, BUILD_TTL);
+
+            long afterId = 0;
+            long total = 0;
+            while (true) {
+                List<User> page = userMapper.listIdentifiers(afterId, loadBatchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<String> keys = new ArrayList<>(page.size() * 2);
+                for (User u : page) {
+                    keys.addAll(keys(u));
+                }
+                if (!keys.isEmpty()) {
+                    next.add(keys);
+                }
+                total += page.size();
+                afterId = page.get(page.size() - 1).getId();
+            }
+
+            // Publish only when no add to the new filter failed meanwhile (that clears BUILDING_KEY)
+            Boolean switched = redisson.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE,
+                    SWITCH_LUA, RScript.ReturnType.BOOLEAN, List.of(BUILDING_KEY, CURRENT_KEY), name);
+            if (!Boolean.TRUE.equals(switched)) {
+                log.warn("Identifier filter {} lost an add while building, discarded", name);
+                next.delete();
+                return;
+            }
+            // A filter replaced by hand (pointer deleted) expires once every instance moved on
+            if (version > 1) {
+                filter(FILTER_PREFIX + (version - 1)).expire(retireGrace);
+            }
+            live = next;
+            log.info("Identifier filter {} built from {} users in {} ms", name, total,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Identifier filter build failed", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop trusting a filter everywhere: clear whichever pointer names it, other instances drop it on
+     * their next check and it expires after the grace period.
+     */
+    private void withdraw(String name) {
+        RBloomFilter<String> local = live;
+        if (local != null && local.getName().equals(name)) {
+            live = null;
+        }
+        try {
+            redisson.getBucket(CURRENT_KEY, StringCodec.INSTANCE).compareAndSet(name, null);
+            redisson.getBucket(BUILDING_KEY, StringCodec.INSTANCE).compareAndSet(name, null);
+            filter(name).expire(retireGrace);
+        } catch (Exception e) {
+            log.error("Identifier filter withdraw of {} failed", name, e);
+        }
+    }
+
+    private void retryPendingAdds() {
+        List<String> keys;
+        while ((keys = pendingAdds.peek()) != null) {
+            if (!addToFilters(keys)) {
+                return;
+            }
+            pendingAdds.poll();
+        }
+    }
+
+    /**
+     * Adds were dropped while Redis was unreachable: withdraw the live and building filters so the
+     * next build scans the missing users from MySQL.
+     */
+    private void withdrawAll() {
+        Map<String, String> pointers = redisson.getBuckets(StringCodec.INSTANCE).get(CURRENT_KEY, BUILDING_KEY);
+        lostAdds.set(false);
+        pendingAdds.clear();
+        log.warn("Identifier filter adds were lost, withdrawing {} for a rebuild", pointers.values());
+        live = null;
+        new LinkedHashSet<>(pointers.values()).forEach(this::withdraw);
+    }
+
+    private RBloomFilter<String> filter(String name) {
+        return redisson.getBloomFilter(name, StringCodec.INSTANCE);
+    }
+
+    private static List<String> keys(User user) {
+        List<String> keys = new ArrayList<>(2);
+        if (user.getPhone() != null) {
+            keys.add(phoneKey(user.getPhone()));
+        }
+        if (user.getEmail() != null) {
+            keys.add(emailKey(user.getEmail()));
+        }
+        return keys;
+    }
+
+    // KEYS[1] building pointer, KEYS[2] live pointer; ARGV[1] name of the finished filter.
+    private static final String SWITCH_LUA = """
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end
+            redis.call('SET', KEYS[2], ARGV[1])
+            redis.call('DEL', KEYS[1])
+            return 1
+            """;
+}
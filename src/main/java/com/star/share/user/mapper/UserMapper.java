@@ -16,7 +16,9 @@ public interface UserMapper {
     boolean existByEmail(@Param("email") String email);
     void insert(User user);
     void updatePassword(@Param("id") Long id, @Param("passwordHash") String passwordHash);
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("passwordHash") String passwordHash);
     void updateProfile(User user);
     boolean existByZgIdExpectId(@Param("zgId") String zgId, @Param("excludeId") Long excludeId);
     List<User> listByIds(@Param("ids") List<Long> ids);
+    List<User> listIdentifiers(@Param("afterId") long afterId, @Param("limit") int limit);
 }
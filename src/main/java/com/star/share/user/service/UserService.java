@@ -12,4 +12,5 @@ public interface UserService {
     boolean existsByEmail(String email);
     User createUser(User user);
     void updatePassword(User user);
+    boolean replacePasswordHash(long userId, String oldHash, String newHash);
 }
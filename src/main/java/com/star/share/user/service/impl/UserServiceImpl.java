@@ -4,6 +4,7 @@ package com.star.share.user.service.impl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import com.star.share.user.cache.IdentifierFilter;
 import com.star.share.user.entity.User;
 import com.star.share.user.service.UserService;
 import com.star.share.user.mapper.UserMapper;
@@ -11,20 +12,25 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
     private final UserMapper userMapper;
+    private final IdentifierFilter identifierFilter;
 
     /**
      * Find User by phone
      * @param phone phone number
      * @return User (Optional)
      */
-    @Transactional(readOnly = true)
     public Optional<User> findByPhone(String phone){
+        // No transaction here: a filtered miss must not even borrow a connection
+        if (!identifierFilter.mightExist(IdentifierFilter.phoneKey(phone))) {
+            return Optional.empty();
+        }
         return Optional.ofNullable(userMapper.findByPhone(phone));
     }
 
@@ -33,8 +39,10 @@ public class UserServiceImpl implements UserService {
      * @param email
      * @return User(Optional)
      */
-    @Transactional(readOnly = true)
     public Optional<User> findByEmail(String email){
+        if (!identifierFilter.mightExist(IdentifierFilter.emailKey(email))) {
+            return Optional.empty();
+        }
         return Optional.ofNullable(userMapper.findByEmail(email));
     }
 
@@ -53,9 +61,8 @@ public class UserServiceImpl implements UserService {
      * @param phone phone number
      * @return boolean
      */
-    @Transactional(readOnly = true)
     public boolean existsByPhone(String phone){
-        return userMapper.existByPhone(phone);
+        return exists(IdentifierFilter.phoneKey(phone), () -> userMapper.existByPhone(phone));
     }
 
 
@@ -65,9 +72,8 @@ public class UserServiceImpl implements UserService {
      * @param email email address
      * @return boolean
      */
-    @Transactional(readOnly = true)
     public boolean existsByEmail(String email) {
-        return userMapper.existByEmail(email);
+        return exists(IdentifierFilter.emailKey(email), () -> userMapper.existByEmail(email));
     }
 
     /**
@@ -81,6 +87,7 @@ public class UserServiceImpl implements UserService {
         user.setCreatedAt(now);
         user.setUpdatedAt(now);
         userMapper.insert(user);
+        identifierFilter.add(user);
         return user;
     }
 
@@ -93,4 +100,36 @@ public class UserServiceImpl implements UserService {
         user.setUpdatedAt(Instant.now());
         userMapper.updatePassword(user.getId(), user.getPasswordHash());
     }
+
+    /**
+     * Swap a password hash for a re-hash of the same password, only while the stored hash is still the old one
+     * @param userId user id
+     * @param oldHash hash the re-hash was verified against
+     * @param newHash new hash of the same password
+     * @return false when the password changed in between and the re-hash was dropped
+     */
+    @Override
+    public boolean replacePasswordHash(long userId, String oldHash, String newHash) {
+        return userMapper.replacePasswordHash(userId, oldHash, newHash) > 0;
+    }
+
+    /**
+     * Filter first, then the local confirmation cache, then MySQL
+     * @param key filter key of the identifier
+     * @param query existence query
+     * @return boolean
+     */
+    private boolean exists(String key, BooleanSupplier query) {
+        if (!identifierFilter.mightExist(key)) {
+            return false;
+        }
+        if (identifierFilter.isKnown(key)) {
+            return true;
+        }
+        boolean exists = query.getAsBoolean();
+        if (exists) {
+            identifierFilter.remember(key);
+        }
+        return exists;
+    }
 }
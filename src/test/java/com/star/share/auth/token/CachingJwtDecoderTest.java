@@ -0,0 +1,159 @@
+package com.star.share.auth.token;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Cache rules of {@link CachingJwtDecoder} with a fake delegate and a hand-driven clock: hits skip the
+ * delegate, entries end at the token's exp, a generation bump drops them and failures are never kept.
+ */
+class CachingJwtDecoderTest {
+
+    private static final Duration MAX_TTL = Duration.ofMinutes(15);
+
+    private MutableClock clock;
+    private FakeDecoder delegate;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        delegate = new FakeDecoder(clock);
+        decoder = new CachingJwtDecoder(delegate, 1_000, MAX_TTL, clock);
+    }
+
+    @Test
+    void repeatedTokenIsVerifiedOnce() {
+        delegate.valid("a", Duration.ofMinutes(5));
+
+        Jwt first = decoder.decode("a");
+        Jwt second = decoder.decode("a");
+
+        assertSame(first, second);
+        assertEquals(1, delegate.calls("a"));
+    }
+
+    @Test
+    void entryEndsAtTheTokenExpiry() {
+        delegate.valid("a", Duration.ofMinutes(5));
+        decoder.decode("a");
+
+        clock.advance(Duration.ofMinutes(4));
+        decoder.decode("a");
+        assertEquals(1, delegate.calls("a"));
+
+        // Past exp the delegate decides again, and rejects it
+        clock.advance(Duration.ofMinutes(2));
+        assertThrows(BadJwtException.class, () -> decoder.decode("a"));
+        assertEquals(2, delegate.calls("a"));
+    }
+
+    @Test
+    void newerGenerationInvalidatesEntries() {
+        delegate.valid("a", Duration.ofMinutes(5));
+        decoder.decode("a");
+
+        decoder.advanceTo(1);
+        decoder.decode("a");
+        assertEquals(2, delegate.calls("a"));
+        assertEquals(1, decoder.generation());
+
+        // An older or equal generation changes nothing
+        decoder.advanceTo(1);
+        decoder.advanceTo(0);
+        decoder.decode("a");
+        assertEquals(2, delegate.calls("a"));
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        assertEquals(2, delegate.calls("bad"));
+
+        // Once the delegate accepts it, the token is cached as usual
+        delegate.valid("bad", Duration.ofMinutes(5));
+        decoder.decode("bad");
+        decoder.decode("bad");
+        assertEquals(3, delegate.calls("bad"));
+    }
+
+    /**
+     * Accepts the tokens it was told about until their exp, rejects everything else.
+     */
+    private static final class FakeDecoder implements JwtDecoder {
+        private final Clock clock;
+        private final Map<String, Instant> expiries = new HashMap<>();
+        private final Map<String, Integer> calls = new HashMap<>();
+
+        FakeDecoder(Clock clock) {
+            this.clock = clock;
+        }
+
+        void valid(String token, Duration lifetime) {
+            expiries.put(token, clock.instant().plus(lifetime));
+        }
+
+        int calls(String token) {
+            return calls.getOrDefault(token, 0);
+        }
+
+        @Override
+        public Jwt decode(String token) {
+            calls.merge(token, 1, Integer::sum);
+            Instant exp = expiries.get(token);
+            Instant now = clock.instant();
+            if (exp == null || !now.isBefore(exp)) {
+                throw new BadJwtException("Invalid token " + token);
+            }
+            return Jwt.withTokenValue(token)
+                    .header("alg", "HS256")
+                    .subject("1")
+                    .issuedAt(now)
+                    .expiresAt(exp)
+                    .build();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.star.share.auth.token;
+
+import com.star.share.auth.token.RefreshTokenRepository.Rotation;
+import com.star.share.common.redis.RedisKeyScanner;
+import com.star.share.common.redis.TestRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rotation and reuse detection against a real (embedded) Redis: a superseded token of a live family,
+ * however many rotations old, must revoke the family's current token.
+ */
+class RefreshTokenRepoImplTest {
+
+    private static final long USER = 42L;
+    private static final Duration TTL = Duration.ofDays(7);
+
+    private static TestRedis redis;
+    private static StringRedisTemplate template;
+    private static RefreshTokenRepoImpl repository;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = TestRedis.start();
+        template = redis.template();
+        repository = new RefreshTokenRepoImpl(template, new RedisKeyScanner(template), true);
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @BeforeEach
+    void clear() {
+        redis.flush();
+    }
+
+    @Test
+    void rotateReplacesTheOldToken() {
+        repository.saveToken(USER, "t1", TTL);
+
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "t1", "t1", "t2", TTL));
+        assertFalse(repository.isTokenValid(USER, "t1"));
+        assertTrue(repository.isTokenValid(USER, "t2"));
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "t2", "t1", "t3", TTL));
+        assertTrue(repository.isTokenValid(USER, "t3"));
+    }
+
+    @Test
+    void tokenSupersededTwiceIsStillReuse() {
+        repository.saveToken(USER, "t1", TTL);
+        // Attacker rotates the stolen t1 twice before the real client comes back with it
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "t1", "t1", "t2", TTL));
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "t2", "t1", "t3", TTL));
+
+        assertEquals(Rotation.REUSED, repository.rotateToken(USER, "t1", "t1", "t4", TTL));
+        assertFalse(repository.isTokenValid(USER, "t3"));
+        assertFalse(repository.isTokenValid(USER, "t4"));
+        assertEquals(Rotation.INVALID, repository.rotateToken(USER, "t3", "t1", "t5", TTL));
+    }
+
+    @Test
+    void staleTokenReuseRevokesTheFamily() {
+        repository.saveToken(USER, "t1", TTL);
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "t1", "t1", "t2", TTL));
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "t2", "t1", "t3", TTL));
+
+        assertEquals(Rotation.REUSED, repository.rotateToken(USER, "t2", "t1", "t4", TTL));
+        assertFalse(repository.isTokenValid(USER, "t3"));
+    }
+
+    @Test
+    void reuseOnlyRevokesItsOwnFamily() {
+        repository.saveToken(USER, "a1", TTL);
+        repository.saveToken(USER, "b1", TTL);
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "a1", "a1", "a2", TTL));
+
+        assertEquals(Rotation.REUSED, repository.rotateToken(USER, "a1", "a1", "a3", TTL));
+        assertFalse(repository.isTokenValid(USER, "a2"));
+        assertTrue(repository.isTokenValid(USER, "b1"));
+    }
+
+    @Test
+    void revokedTokenIsInvalidNotReuse() {
+        repository.saveToken(USER, "t1", TTL);
+        repository.revokeToken(USER, "t1");
+
+        assertFalse(repository.isTokenValid(USER, "t1"));
+        assertEquals(Rotation.INVALID, repository.rotateToken(USER, "t1", "t1", "t2", TTL));
+    }
+
+    @Test
+    void legacyKeyIsHonouredAndRotatedIntoTheHash() {
+        String legacy = "auth:rt:{%d}:old".formatted(USER);
+        template.opsForValue().set(legacy, "1", TTL);
+
+        assertTrue(repository.isTokenValid(USER, "old"));
+        assertEquals(Rotation.ROTATED, repository.rotateToken(USER, "old", "old", "new", TTL));
+        assertFalse(template.hasKey(legacy));
+        assertTrue(repository.isTokenValid(USER, "new"));
+        assertEquals(Rotation.REUSED, repository.rotateToken(USER, "old", "old", "again", TTL));
+    }
+
+    @Test
+    void legacyKeyIsIgnoredWhenLegacyReadIsOff() {
+        RefreshTokenRepoImpl strict = new RefreshTokenRepoImpl(template, new RedisKeyScanner(template), false);
+        template.opsForValue().set("auth:rt:{%d}:old".formatted(USER), "1", TTL);
+
+        assertFalse(strict.isTokenValid(USER, "old"));
+        assertEquals(Rotation.INVALID, strict.rotateToken(USER, "old", "old", "new", TTL));
+    }
+
+    @Test
+    void revokeAllDropsHashAndLegacyKeys() {
+        repository.saveToken(USER, "t1", TTL);
+        template.opsForValue().set("auth:rt:{%d}:old".formatted(USER), "1", TTL);
+
+        repository.revokeAllTokens(USER);
+        assertFalse(repository.isTokenValid(USER, "t1"));
+        assertFalse(repository.isTokenValid(USER, "old"));
+    }
+}
@@ -0,0 +1,256 @@
+package com.star.share.auth.verification;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.star.share.common.redis.TestRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Delivery pipeline of {@link CodeDispatcher} with a fake channel: batching, retries with backoff and
+ * every way a code ends up in the dead-letter list (kept in an embedded Redis).
+ */
+class CodeDispatcherTest {
+
+    private static final String SCENE = "LOGIN";
+    private static final long WAIT_MS = 5_000;
+
+    private static TestRedis redis;
+    private static StringRedisTemplate template;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SimpleMeterRegistry registry;
+    private CodeDispatcher dispatcher;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = TestRedis.start();
+        template = redis.template();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @BeforeEach
+    void clear() {
+        redis.flush();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopDispatcher() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void queuedMessagesAreSentInBatches() throws Exception {
+        FakeChannel channel = new FakeChannel(batch -> List.of());
+        dispatcher = dispatcher(channel, 100, 3, 4, 1_000);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.sendCode(SCENE, "u" + i + "@example.com", "12345" + i, 5);
+        }
+
+        dispatcher.start();
+        await(() -> channel.delivered() == 5);
+        assertEquals(List.of(3, 2), channel.batchSizes());
+        assertTrue(deadLetters().isEmpty());
+    }
+
+    @Test
+    void failedBatchIsRetriedWithBackoff() throws Exception {
+        FakeChannel channel = new FakeChannel(batch -> {
+            if (batch.get(0).attempt() < 3) {
+                throw new IllegalStateException("smtp down");
+            }
+            return List.of();
+        });
+        long backoffMs = 100;
+        dispatcher = dispatcher(channel, 100, 1, 4, backoffMs);
+        dispatcher.start();
+        dispatcher.sendCode(SCENE, "retry@example.com", "123456", 5);
+
+        await(() -> channel.delivered() == 1);
+        List<Call> calls = channel.calls();
+        assertEquals(List.of(1, 2, 3), calls.stream().map(c -> c.batch().get(0).attempt()).toList());
+        // Base backoff, then doubled (jitter only adds)
+        assertTrue(calls.get(1).at() - calls.get(0).at() >= backoffMs);
+        assertTrue(calls.get(2).at() - calls.get(1).at() >= backoffMs * 2);
+        assertTrue(deadLetters().isEmpty());
+    }
+
+    @Test
+    void onlyRejectedMessagesOfABatchAreRetried() throws Exception {
+        FakeChannel channel = new FakeChannel(batch -> batch.stream()
+                .filter(m -> m.identifier().startsWith("bad") && m.attempt() == 1)
+                .toList());
+        dispatcher = dispatcher(channel, 100, 10, 4, 10);
+        dispatcher.sendCode(SCENE, "ok@example.com", "111111", 5);
+        dispatcher.sendCode(SCENE, "bad@example.com", "222222", 5);
+        dispatcher.start();
+
+        await(() -> channel.calls().size() == 2 && channel.delivered() == 2);
+        List<CodeMessage> retried = channel.calls().get(1).batch();
+        assertEquals(1, retried.size());
+        assertEquals("bad@example.com", retried.get(0).identifier());
+        assertEquals(2, retried.get(0).attempt());
+    }
+
+    @Test
+    void attemptsUsedUpGoToDeadLetters() throws Exception {
+        FakeChannel channel = new FakeChannel(batch -> {
+            throw new IllegalStateException("smtp down");
+        });
+        dispatcher = dispatcher(channel, 100, 1, 2, 10);
+        dispatcher.start();
+        dispatcher.sendCode(SCENE, "dead@example.com", "654321", 5);
+
+        await(() -> template.opsForList().size(CodeDispatcher.DEAD_LETTER_KEY) == 1);
+        Map<String, Object> entry = deadLetters().get(0);
+        assertEquals("fake", entry.get("channel"));
+        assertEquals(SCENE, entry.get("scene"));
+        assertEquals("dead@example.com", entry.get("identifier"));
+        assertEquals(2, entry.get("attempts"));
+        assertEquals("smtp down", entry.get("error"));
+        assertFalse(entry.containsValue("654321"), "the code itself is never stored");
+        assertEquals(2, channel.calls().size());
+    }
+
+    @Test
+    void expiredCodeIsNotRetried() throws Exception {
+        FakeChannel channel = new FakeChannel(batch -> batch);
+        dispatcher = dispatcher(channel, 100, 1, 4, 10);
+        dispatcher.start();
+        // Expires at once, so the first rejection is final
+        dispatcher.sendCode(SCENE, "late@example.com", "123456", 0);
+
+        await(() -> template.opsForList().size(CodeDispatcher.DEAD_LETTER_KEY) == 1);
+        Map<String, Object> entry = deadLetters().get(0);
+        assertEquals(1, entry.get("attempts"));
+        assertEquals("rejected by channel", entry.get("error"));
+        assertEquals(1, channel.calls().size());
+    }
+
+    @Test
+    void fullQueueGoesToDeadLetters() throws Exception {
+        FakeChannel channel = new FakeChannel(batch -> List.of());
+        dispatcher = dispatcher(channel, 1, 1, 4, 10);
+        // Not started, so nothing drains the queue
+        dispatcher.sendCode(SCENE, "first@example.com", "111111", 5);
+        dispatcher.sendCode(SCENE, "second@example.com", "222222", 5);
+
+        List<Map<String, Object>> dead = deadLetters();
+        assertEquals(1, dead.size());
+        assertEquals("second@example.com", dead.get(0).get("identifier"));
+        assertEquals("queue full", dead.get(0).get("error"));
+
+        dispatcher.start();
+        await(() -> channel.delivered() == 1);
+    }
+
+    @Test
+    void pendingRetriesAreDeadLetteredOnShutdown() throws Exception {
+        FakeChannel channel = new FakeChannel(batch -> {
+            throw new IllegalStateException("smtp down");
+        });
+        dispatcher = dispatcher(channel, 100, 1, 4, 60_000);
+        dispatcher.start();
+        dispatcher.sendCode(SCENE, "bye@example.com", "123456", 5);
+        await(() -> registry.counter("auth.code.retried", "channel", "fake").count() == 1);
+
+        dispatcher.stop();
+        List<Map<String, Object>> dead = deadLetters();
+        assertEquals(1, dead.size());
+        assertEquals("shutdown before retry", dead.get(0).get("error"));
+        assertEquals(2, dead.get(0).get("attempts"));
+        assertEquals(1, channel.calls().size());
+    }
+
+    private CodeDispatcher dispatcher(CodeChannel channel, int queueCapacity, int batchSize, int maxAttempts,
+                                      long backoffMs) {
+        return new CodeDispatcher(List.of(channel), template, objectMapper, registry,
+                queueCapacity, 1, batchSize, 50, maxAttempts, backoffMs, 100);
+    }
+
+    private static List<Map<String, Object>> deadLetters() throws Exception {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (String json : template.opsForList().range(CodeDispatcher.DEAD_LETTER_KEY, 0, -1)) {
+            entries.add(objectMapper.readValue(json, new TypeReference<>() {
+            }));
+        }
+        return entries;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within " + WAIT_MS + " ms");
+            Thread.sleep(10);
+        }
+    }
+
+    private record Call(List<CodeMessage> batch, long at) {
+    }
+
+    /**
+     * Records every batch and answers with the given behaviour (the messages to retry, or a throw).
+     */
+    private static final class FakeChannel implements CodeChannel {
+        private final Function<List<CodeMessage>, List<CodeMessage>> behaviour;
+        private final List<Call> calls = new CopyOnWriteArrayList<>();
+        private final List<CodeMessage> delivered = new CopyOnWriteArrayList<>();
+
+        FakeChannel(Function<List<CodeMessage>, List<CodeMessage>> behaviour) {
+            this.behaviour = behaviour;
+        }
+
+        @Override
+        public String name() {
+            return "fake";
+        }
+
+        @Override
+        public boolean supports(String identifier) {
+            return true;
+        }
+
+        @Override
+        public List<CodeMessage> send(List<CodeMessage> batch) {
+            calls.add(new Call(batch, System.currentTimeMillis()));
+            List<CodeMessage> failed = behaviour.apply(batch);
+            batch.stream().filter(m -> !failed.contains(m)).forEach(delivered::add);
+            return failed;
+        }
+
+        List<Call> calls() {
+            return calls;
+        }
+
+        List<Integer> batchSizes() {
+            return calls.stream().map(c -> c.batch().size()).toList();
+        }
+
+        int delivered() {
+            return delivered.size();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.star.share.auth.verification;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batch sending of {@link MailCodeChannel}, and how a {@link MailSendException} maps back to the
+ * messages to retry.
+ */
+class MailCodeChannelTest {
+
+    private static final String FROM = "no-reply@example.com";
+    private static final String SUBJECT = "Your code";
+
+    @Test
+    void sendsTheWholeBatchInOneCall() {
+        FakeMailSender sender = new FakeMailSender(Set.of(), false);
+        MailCodeChannel channel = new MailCodeChannel(sender, FROM, SUBJECT);
+
+        List<CodeMessage> failed = channel.send(List.of(message("a@example.com"), message("b@example.com")));
+
+        assertTrue(failed.isEmpty());
+        assertEquals(1, sender.calls.size());
+        SimpleMailMessage[] mails = sender.calls.get(0);
+        assertEquals(2, mails.length);
+        assertEquals(FROM, mails[0].getFrom());
+        assertEquals(SUBJECT, mails[0].getSubject());
+        assertEquals("b@example.com", mails[1].getTo()[0]);
+        assertTrue(mails[0].getText().contains("123456"));
+        assertTrue(mails[0].getText().contains("5 minutes"));
+    }
+
+    @Test
+    void partialFailureReturnsOnlyTheFailedMessages() {
+        FakeMailSender sender = new FakeMailSender(Set.of("b@example.com"), false);
+        MailCodeChannel channel = new MailCodeChannel(sender, FROM, SUBJECT);
+        CodeMessage a = message("a@example.com");
+        CodeMessage b = message("b@example.com");
+        CodeMessage c = message("c@example.com");
+
+        assertEquals(List.of(b), channel.send(List.of(a, b, c)));
+    }
+
+    @Test
+    void connectionFailureFailsTheWholeBatch() {
+        FakeMailSender sender = new FakeMailSender(Set.of(), true);
+        MailCodeChannel channel = new MailCodeChannel(sender, FROM, SUBJECT);
+
+        assertThrows(MailSendException.class, () -> channel.send(List.of(message("a@example.com"))));
+    }
+
+    @Test
+    void supportsEmailsOnly() {
+        MailCodeChannel channel = new MailCodeChannel(new FakeMailSender(Set.of(), false), FROM, SUBJECT);
+
+        assertTrue(channel.supports("a@example.com"));
+        assertFalse(channel.supports("13800000000"));
+        assertFalse(channel.supports("@example.com"));
+        assertFalse(channel.supports(null));
+    }
+
+    private static CodeMessage message(String identifier) {
+        return new CodeMessage("LOGIN", identifier, "123456", 5, Instant.now(), 1);
+    }
+
+    /**
+     * Records each send; recipients listed in {@code rejected} fail the way JavaMailSenderImpl reports
+     * them, keyed by the SimpleMailMessage passed in.
+     */
+    private static final class FakeMailSender extends JavaMailSenderImpl {
+        private final Set<String> rejected;
+        private final boolean connectionDown;
+        private final List<SimpleMailMessage[]> calls = new ArrayList<>();
+
+        FakeMailSender(Set<String> rejected, boolean connectionDown) {
+            this.rejected = rejected;
+            this.connectionDown = connectionDown;
+        }
+
+        @Override
+        public void send(SimpleMailMessage... simpleMessages) {
+            calls.add(simpleMessages);
+            if (connectionDown) {
+                throw new MailSendException("Mail server connection failed");
+            }
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            for (SimpleMailMessage mail : simpleMessages) {
+                if (rejected.contains(mail.getTo()[0])) {
+                    failed.put(mail, new IllegalStateException("550 mailbox unavailable"));
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new MailSendException(failed);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.star.share.auth.verification;
+
+import com.star.share.auth.enumerate.VerificationCodeStatus;
+import com.star.share.auth.pojo.VerificationCheckResult;
+import com.star.share.common.redis.TestRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verify and save scripts against a real (embedded) Redis: parallel wrong guesses must never use more
+ * than maxAttempts, and the code must stay locked out afterwards.
+ */
+class VerificationCodeRepositoryImplTest {
+
+    private static final String SCENE = "TEST";
+    private static final String CODE = "123456";
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final Duration LOCKOUT = Duration.ofMinutes(30);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int THREADS = 32;
+
+    private static TestRedis redis;
+    private static StringRedisTemplate template;
+    private static VerificationCodeRepositoryImpl repository;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = TestRedis.start();
+        template = redis.template();
+        repository = new VerificationCodeRepositoryImpl(template);
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @Test
+    void concurrentWrongGuessesNeverExceedMaxAttempts() throws Exception {
+        String identifier = "race@example.com";
+        assertTrue(repository.saveCode(SCENE, identifier, CODE, TTL, MAX_ATTEMPTS, LOCKOUT));
+
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<VerificationCheckResult> results = new ArrayList<>();
+        try {
+            List<Future<VerificationCheckResult>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    return repository.verify(SCENE, identifier, "000000");
+                }));
+            }
+            go.countDown();
+            for (Future<VerificationCheckResult> f : futures) {
+                results.add(f.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long mismatches = results.stream().filter(r -> r.status() == VerificationCodeStatus.MISMATCH).count();
+        long locked = results.stream().filter(r -> r.status() == VerificationCodeStatus.TOO_MANY_ATTEMPTS).count();
+        assertEquals(MAX_ATTEMPTS - 1, mismatches);
+        assertEquals(THREADS - (MAX_ATTEMPTS - 1), locked);
+        results.forEach(r -> assertTrue(r.attempts() <= MAX_ATTEMPTS, "attempts " + r.attempts()));
+
+        String key = "auth:code:%s:%s".formatted(SCENE, identifier);
+        assertEquals(String.valueOf(MAX_ATTEMPTS), template.opsForHash().get(key, "attempts"));
+        assertTrue(template.getExpire(key) > TTL.toSeconds(), "lockout TTL replaces the code TTL");
+
+        // Locked out: even the right code fails, and no new code can be issued
+        assertEquals(VerificationCodeStatus.TOO_MANY_ATTEMPTS, repository.verify(SCENE, identifier, CODE).status());
+        assertFalse(repository.saveCode(SCENE, identifier, CODE, TTL, MAX_ATTEMPTS, LOCKOUT));
+    }
+
+    @Test
+    void rightCodeSucceedsOnceWithinAttempts() {
+        String identifier = "ok@example.com";
+        assertTrue(repository.saveCode(SCENE, identifier, CODE, TTL, MAX_ATTEMPTS, LOCKOUT));
+
+        assertEquals(VerificationCodeStatus.MISMATCH, repository.verify(SCENE, identifier, "000000").status());
+        assertTrue(repository.verify(SCENE, identifier, CODE).isSuccess());
+        assertEquals(VerificationCodeStatus.NOT_FOUND, repository.verify(SCENE, identifier, CODE).status());
+    }
+}
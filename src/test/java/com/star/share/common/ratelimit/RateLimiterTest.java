@@ -0,0 +1,150 @@
+package com.star.share.common.ratelimit;
+
+import com.star.share.common.redis.TestRedis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Both tiers of {@link RateLimiter} against a real (embedded) Redis: exact mode takes from every bucket
+ * or none and reports the rule that rejected, local-first blocks a subject once the cluster-wide window
+ * is used up and keeps its counts when a reconcile fails.
+ */
+class RateLimiterTest {
+
+    private static final long WINDOW_SECONDS = 3600;
+    // Refill slow enough that no token comes back while a test runs
+    private static final double SLOW = 0.0001;
+
+    private static TestRedis redis;
+    private static StringRedisTemplate template;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = TestRedis.start();
+        template = redis.template();
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        redis.close();
+    }
+
+    @BeforeEach
+    void clear() {
+        redis.flush();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void exactModeTakesFromAllBucketsOrNone() {
+        RateLimiter limiter = limiter();
+        RateLimitRule burst = RateLimitRule.exact("burst", 5, SLOW);
+        RateLimitRule daily = RateLimitRule.exact("daily", 2, SLOW);
+        List<RateLimitRule> rules = List.of(burst, daily);
+
+        assertNull(limiter.rejectedBy(rules, "s"));
+        assertNull(limiter.rejectedBy(rules, "s"));
+        assertSame(daily, limiter.rejectedBy(rules, "s"));
+        assertSame(daily, limiter.rejectedBy(rules, "s"));
+
+        // The rejected calls took nothing from the burst bucket
+        assertEquals(3.0, tokens("burst", "s"), 0.01);
+        assertEquals(0.0, tokens("daily", "s"), 0.01);
+        assertEquals(2.0, registry.counter("ratelimit.rejected", "limiter", "daily").count());
+        assertEquals(0.0, registry.counter("ratelimit.rejected", "limiter", "burst").count());
+    }
+
+    @Test
+    void exactModeReportsTheFirstEmptyRule() {
+        RateLimiter limiter = limiter();
+        RateLimitRule interval = RateLimitRule.exact("interval", 1, SLOW);
+        RateLimitRule daily = RateLimitRule.exact("daily", 1, SLOW);
+        List<RateLimitRule> rules = List.of(interval, daily);
+
+        assertNull(limiter.rejectedBy(rules, "s"));
+        assertSame(interval, limiter.rejectedBy(rules, "s"));
+        // Buckets are per subject
+        assertNull(limiter.rejectedBy(rules, "other"));
+        assertTrue(limiter.tryAcquire(RateLimitRule.exact("single", 1, SLOW), "s"));
+        assertFalse(limiter.tryAcquire(RateLimitRule.exact("single", 1, SLOW), "s"));
+    }
+
+    @Test
+    void localFirstBlocksOnceTheGlobalWindowIsUsedUp() {
+        // Window allowance: 3 + 0.0001 * 3600 = 3.36 permits
+        RateLimitRule rule = RateLimitRule.localFirst("follow", 3, SLOW);
+        RateLimiter first = limiter();
+        RateLimiter second = limiter();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(first.tryAcquire(rule, "s"));
+        }
+        assertFalse(first.tryAcquire(rule, "s"), "local bucket is empty");
+        first.reconcile();
+        assertEquals("3", template.opsForValue().get(windowKey(rule, "s")));
+
+        // The second instance still has local tokens, but after its report the window is over the allowance
+        assertTrue(second.tryAcquire(rule, "s"));
+        second.reconcile();
+        assertEquals("4", template.opsForValue().get(windowKey(rule, "s")));
+        assertFalse(second.tryAcquire(rule, "s"), "blocked until the window ends");
+        assertTrue(second.tryAcquire(rule, "other"), "other subjects are not blocked");
+    }
+
+    @Test
+    void failedReconcileRestoresPendingPermits() {
+        RateLimitRule rule = RateLimitRule.localFirst("follow", 10, SLOW);
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(rule, "s"));
+        }
+
+        // INCRBY on a hash fails, so does the whole pipeline
+        long window = currentWindow();
+        for (long w = window; w <= window + 1; w++) {
+            template.opsForHash().put(windowKey(rule, "s", w), "x", "1");
+        }
+        limiter.reconcile();
+        template.delete(List.of(windowKey(rule, "s", window), windowKey(rule, "s", window + 1)));
+
+        assertTrue(limiter.tryAcquire(rule, "s"));
+        limiter.reconcile();
+        String current = template.opsForValue().get(windowKey(rule, "s", currentWindow()));
+        assertEquals("5", current, "the 4 permits of the failed round are reported with the new one");
+    }
+
+    private RateLimiter limiter() {
+        return new RateLimiter(template, registry, WINDOW_SECONDS, 1_000);
+    }
+
+    private static double tokens(String rule, String subject) {
+        Object v = template.opsForHash().get("rl:" + rule + ":{" + subject + "}", "tokens");
+        return Double.parseDouble((String) v);
+    }
+
+    private static long currentWindow() {
+        return System.currentTimeMillis() / 1000 / WINDOW_SECONDS;
+    }
+
+    private static String windowKey(RateLimitRule rule, String subject) {
+        return windowKey(rule, subject, currentWindow());
+    }
+
+    private static String windowKey(RateLimitRule rule, String subject, long window) {
+        return "rl:g:" + rule.name() + ":{" + subject + "}:" + window;
+    }
+}
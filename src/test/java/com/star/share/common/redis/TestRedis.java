@@ -0,0 +1,56 @@
+package com.star.share.common.redis;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+
+/**
+ * Embedded {@code redis-server} on a free local port for script tests, stopped again by {@link #close()}.
+ */
+public final class TestRedis implements AutoCloseable {
+
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+    private final StringRedisTemplate template;
+
+    private TestRedis(RedisServer server, int port) {
+        this.server = server;
+        this.connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        this.template = new StringRedisTemplate(connectionFactory);
+        template.afterPropertiesSet();
+    }
+
+    public static TestRedis start() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer server = new RedisServer(port);
+        server.start();
+        return new TestRedis(server, port);
+    }
+
+    public StringRedisTemplate template() {
+        return template;
+    }
+
+    /**
+     * Drop every key, for tests sharing one server.
+     */
+    public void flush() {
+        template.execute((org.springframework.data.redis.core.RedisCallback<Object>) c -> {
+            c.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() throws Exception {
+        connectionFactory.destroy();
+        server.stop();
+    }
+}